@@ -0,0 +1,61 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the search of the empty line terminating a request head with {@link ByteTokenizer#next(byte[])},
+ * with the head delivered at once or in small packets, searching again after every packet like the parser does.
+ *
+ * @author Besmir Beqiri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteTokenizerBenchmark {
+
+    private static final byte[] CRLF_CRLF = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"64", "1024", "16384"})
+    public int headSize;
+
+    @Param({"65536", "64"})
+    public int packetSize;
+
+    private ByteBuffer head;
+    private ByteTokenizer tokenizer;
+
+    @Setup
+    public void setup() {
+        // header lines of 32 bytes, so the search also steps over many single CRLFs
+        final byte[] bytes = new byte[headSize + CRLF_CRLF.length];
+        Arrays.fill(bytes, (byte) 'a');
+        for (int i = 30; i + 2 < headSize; i += 32) {
+            bytes[i] = '\r';
+            bytes[i + 1] = '\n';
+        }
+        System.arraycopy(CRLF_CRLF, 0, bytes, headSize, CRLF_CRLF.length);
+        head = ByteBuffer.wrap(bytes);
+        tokenizer = new ByteTokenizer();
+    }
+
+    @Benchmark
+    public byte[] next() {
+        final ByteBuffer packets = head.duplicate();
+        byte[] token = null;
+        while (token == null) {
+            tokenizer.add(packets.slice(packets.position(), Math.min(packetSize, packets.remaining())));
+            packets.position(packets.position() + Math.min(packetSize, packets.remaining()));
+            token = tokenizer.next(CRLF_CRLF);
+        }
+        tokenizer.compact();
+        return token;
+    }
+}
@@ -0,0 +1,156 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.ExecutionMode;
+import one.jpro.platform.auth.core.http.HttpOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the round trip of keep-alive, optionally pipelined, requests to an {@link HttpServerImpl}
+ * over the loopback interface, for every handler {@link ExecutionMode}. Each benchmark thread uses its
+ * own persistent connection.
+ *
+ * @author Besmir Beqiri
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoopbackThroughputBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"EVENT_LOOP", "VIRTUAL_THREADS", "WORKER_POOL"})
+        public ExecutionMode executionMode;
+
+        @Param({"false", "true"})
+        public boolean bufferPooling;
+
+        int port;
+        HttpServerImpl server;
+
+        @Setup
+        public void setup() throws IOException {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            server = new HttpServerImpl(null, new HttpOptions()
+                    .setHost("127.0.0.1")
+                    .setPort(port)
+                    .setReuseAddr(true)
+                    .setConcurrency(2)
+                    .setBufferPooling(bufferPooling)
+                    .setTcpNoDelay(true)
+                    .setExecutionMode(executionMode));
+            server.start();
+        }
+
+        @TearDown
+        public void tearDown() {
+            server.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        @Param({"1", "16"})
+        public int pipelineDepth;
+
+        Socket socket;
+        OutputStream out;
+        InputStream in;
+        byte[] requests;
+        final byte[] buffer = new byte[64 * 1_024];
+        int start;
+        int end;
+
+        @Setup
+        public void setup(Server server) throws IOException {
+            socket = new Socket("127.0.0.1", server.port);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = socket.getInputStream();
+            requests = "GET /auth?code=4%2F0AfJohXn&state=xyz HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .repeat(pipelineDepth).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            socket.close();
+        }
+
+        /**
+         * Reads a complete response, that is its head and the number of body bytes given by the content length.
+         */
+        void readResponse() throws IOException {
+            int headEnd;
+            while ((headEnd = indexOfHeadEnd()) < 0) {
+                fill();
+            }
+            final int contentLength = contentLength(headEnd);
+            start = headEnd;
+            int remaining = contentLength;
+            while (remaining > 0) {
+                if (start == end) {
+                    fill();
+                }
+                final int consumed = Math.min(remaining, end - start);
+                start += consumed;
+                remaining -= consumed;
+            }
+        }
+
+        private void fill() throws IOException {
+            if (start == end) {
+                start = end = 0;
+            } else if (end == buffer.length) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            final int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                throw new IOException("Connection closed by the server");
+            }
+            end += read;
+        }
+
+        private int indexOfHeadEnd() {
+            for (int i = start; i + 3 < end; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n' && buffer[i + 2] == '\r' && buffer[i + 3] == '\n') {
+                    return i + 4;
+                }
+            }
+            return -1;
+        }
+
+        private int contentLength(int headEnd) {
+            final String head = new String(buffer, start, headEnd - start, StandardCharsets.US_ASCII);
+            final int index = head.indexOf("Content-Length: ");
+            if (index < 0) {
+                return 0;
+            }
+            return Integer.parseInt(head.substring(index + 16, head.indexOf('\r', index)));
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(Client client) throws IOException {
+        client.out.write(client.requests);
+        client.out.flush();
+        for (int i = 0; i < client.pipelineDepth; i++) {
+            client.readResponse();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing a complete request with the {@link RequestParser}.
+ *
+ * @author Besmir Beqiri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParserBenchmark {
+
+    @Param({"simple", "headers", "chunked"})
+    public String request;
+
+    @Param({"false", "true"})
+    public boolean pooled;
+
+    private ByteBuffer bytes;
+    private ByteTokenizer tokenizer;
+
+    @Setup
+    public void setup() {
+        bytes = ByteBuffer.wrap(request(request).getBytes(StandardCharsets.UTF_8));
+        tokenizer = pooled ? new ByteTokenizer(new BufferPool(16 * 1_024, 4, true)) : new ByteTokenizer();
+    }
+
+    @Benchmark
+    public Request parse() {
+        tokenizer.add(bytes.duplicate());
+        final RequestParser parser = new RequestParser(tokenizer);
+        if (!parser.parse()) {
+            throw new IllegalStateException("Incomplete request");
+        }
+        tokenizer.compact();
+        return parser.request();
+    }
+
+    /**
+     * Returns a simple GET request, a request with 30 headers, or a request with a chunked body.
+     */
+    static String request(String name) {
+        return switch (name) {
+            case "simple" -> "GET /auth?code=4%2F0AfJohXn&state=xyz HTTP/1.1\r\nHost: localhost:8080\r\n\r\n";
+            case "headers" -> {
+                final StringBuilder sb = new StringBuilder("GET /auth?code=4%2F0AfJohXn&state=xyz HTTP/1.1\r\n");
+                sb.append("Host: localhost:8080\r\n");
+                for (int i = 1; i < 30; i++) {
+                    sb.append("X-Header-").append(i).append(": value-of-the-header-number-").append(i).append("\r\n");
+                }
+                yield sb.append("\r\n").toString();
+            }
+            case "chunked" -> "POST /token HTTP/1.1\r\nHost: localhost:8080\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "1a\r\nabcdefghijklmnopqrstuvwxyz\r\n10\r\n0123456789abcdef\r\n0\r\n\r\n";
+            default -> throw new IllegalArgumentException("Unknown request: " + name);
+        };
+    }
+}
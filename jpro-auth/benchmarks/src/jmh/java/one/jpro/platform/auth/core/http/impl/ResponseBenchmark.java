@@ -0,0 +1,45 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing a {@link Response} into the buffers handed to the gathering write.
+ *
+ * @author Besmir Beqiri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+
+    @Param({"false", "true"})
+    public boolean httpOneDotZero;
+
+    private final List<Header> headers = List.of(new Header("Content-Type", "text/html"),
+            new Header("Cache-Control", "no-store"));
+    private final byte[] body = "<html><body>Authentication completed.</body></html>".getBytes(StandardCharsets.UTF_8);
+    private Response preSerialized;
+
+    @Setup
+    public void setup() {
+        preSerialized = new Response(200, "OK", headers, body).preSerialized();
+    }
+
+    @Benchmark
+    public ByteBuffer[] serialize() {
+        return new Response(200, "OK", headers, body).buffers(httpOneDotZero, true);
+    }
+
+    @Benchmark
+    public ByteBuffer[] preSerialized() {
+        return preSerialized.buffers(httpOneDotZero, true);
+    }
+}
@@ -0,0 +1,52 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the churn of request timeouts in the {@link Scheduler}: every request schedules a
+ * timeout that is cancelled once it completes, while the event loop keeps draining expired tasks.
+ *
+ * @author Besmir Beqiri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    private static final Duration TICK = Duration.ofMillis(100);
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final Runnable TASK = () -> {
+    };
+
+    @Param({"1000", "100000"})
+    public int pending;
+
+    private long now;
+    private Scheduler scheduler;
+    private Cancellable[] tasks;
+    private int next;
+
+    @Setup
+    public void setup() {
+        scheduler = new Scheduler(() -> now, TICK);
+        tasks = new Cancellable[pending];
+        for (int i = 0; i < pending; i++) {
+            tasks[i] = scheduler.schedule(TASK, TIMEOUT);
+        }
+    }
+
+    @Benchmark
+    public int scheduleAndCancel() {
+        tasks[next].cancel();
+        tasks[next] = scheduler.schedule(TASK, TIMEOUT);
+        next = (next + 1) % pending;
+        now += 1_000; // one microsecond per request
+        return scheduler.expired().size();
+    }
+}
@@ -0,0 +1,35 @@
+package one.jpro.platform.auth.core.http;
+
+/**
+ * Strategy used by the {@link HttpServer} to distribute accepted connections
+ * among its connection event loops.
+ *
+ * @author Besmir Beqiri
+ * @see HttpOptions#setAcceptStrategy(AcceptStrategy)
+ */
+public enum AcceptStrategy {
+
+    /**
+     * Each accepted connection is assigned to the event loop with the fewest active connections.
+     */
+    LEAST_CONNECTIONS,
+
+    /**
+     * Accepted connections are assigned to the event loops in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Each accepted connection is assigned to the less loaded of two randomly chosen event loops.
+     * This keeps the load balanced with a constant cost per connection, regardless of the concurrency.
+     */
+    POWER_OF_TWO_CHOICES,
+
+    /**
+     * Every event loop accepts connections on its own listening socket, all bound to the same
+     * address with the {@code SO_REUSEPORT} option, and the operating system distributes the
+     * incoming connections. Falls back to {@link #LEAST_CONNECTIONS} on platforms that do not
+     * support {@code SO_REUSEPORT}.
+     */
+    REUSE_PORT
+}
@@ -0,0 +1,29 @@
+package one.jpro.platform.auth.core.http;
+
+/**
+ * Defines where the {@link HttpServer} runs the request handler.
+ *
+ * @author Besmir Beqiri
+ * @see HttpOptions#setExecutionMode(ExecutionMode)
+ */
+public enum ExecutionMode {
+
+    /**
+     * The handler runs inline on the event loop thread that parsed the request. This is the
+     * cheapest mode for handlers that never block, but a blocking handler stalls every
+     * connection of that event loop.
+     */
+    EVENT_LOOP,
+
+    /**
+     * Each request is handled on its own virtual thread. Falls back to {@link #WORKER_POOL}
+     * on runtimes that do not support virtual threads.
+     */
+    VIRTUAL_THREADS,
+
+    /**
+     * Requests are handled on a bounded pool of platform threads, sized by
+     * {@link HttpOptions#getWorkerPoolSize()}.
+     */
+    WORKER_POOL
+}
@@ -4,6 +4,7 @@ import one.jpro.platform.auth.core.authentication.Options;
 import org.json.JSONObject;
 
 import java.time.Duration;
+import java.util.Objects;
 
 /**
  * Represents configuration options for {@link HttpServer} configuration.
@@ -29,6 +30,12 @@ public class HttpOptions implements Options {
     public static final int DEFAULT_ACCEPT_LENGTH = 0;
     public static final int DEFAULT_MAX_REQUEST_SIZE = 1_024 * 1_024;
     public static final int DEFAULT_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+    public static final boolean DEFAULT_BUFFER_POOLING = false;
+    public static final boolean DEFAULT_DIRECT_BUFFERS = false;
+    public static final AcceptStrategy DEFAULT_ACCEPT_STRATEGY = AcceptStrategy.LEAST_CONNECTIONS;
+    public static final ExecutionMode DEFAULT_EXECUTION_MODE = ExecutionMode.EVENT_LOOP;
+    public static final int DEFAULT_WORKER_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    public static final boolean DEFAULT_TCP_NO_DELAY = false;
 
     private String host = DEFAULT_HOST;
     private int port = DEFAULT_PORT;
@@ -40,6 +47,12 @@ public class HttpOptions implements Options {
     private int acceptLength = DEFAULT_ACCEPT_LENGTH;
     private int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
     private int concurrency = DEFAULT_CONCURRENCY;
+    private boolean bufferPooling = DEFAULT_BUFFER_POOLING;
+    private boolean directBuffers = DEFAULT_DIRECT_BUFFERS;
+    private AcceptStrategy acceptStrategy = DEFAULT_ACCEPT_STRATEGY;
+    private ExecutionMode executionMode = DEFAULT_EXECUTION_MODE;
+    private int workerPoolSize = DEFAULT_WORKER_POOL_SIZE;
+    private boolean tcpNoDelay = DEFAULT_TCP_NO_DELAY;
 
     /**
      * Retrieves the host address currently set for HTTP connections.
@@ -131,7 +144,8 @@ public class HttpOptions implements Options {
     }
 
     /**
-     * Sets the resolution duration for HTTP connections.
+     * Sets the resolution duration for HTTP connections. It bounds how long the event loops
+     * block waiting for I/O and is the tick of the wheel that expires request timeouts.
      *
      * @param resolution the resolution as a {@code Duration}
      * @return the {@code HttpOptions} instance for method chaining
@@ -241,6 +255,134 @@ public class HttpOptions implements Options {
         return this;
     }
 
+    /**
+     * Returns whether request bytes are parsed from pooled buffers.
+     *
+     * @return {@code true} if buffer pooling is enabled, {@code false} otherwise.
+     */
+    public boolean isBufferPooling() {
+        return bufferPooling;
+    }
+
+    /**
+     * Sets whether request bytes are read into, and parsed from, buffers of {@link #getReadBufferSize()}
+     * bytes that are pooled per event loop. A connection holds a pooled buffer only while it has
+     * unprocessed request bytes, so idle keep-alive connections do not retain any memory.
+     *
+     * @param bufferPooling the value to set for the buffer pooling flag
+     * @return the {@code HttpOptions} instance for method chaining
+     */
+    public HttpOptions setBufferPooling(boolean bufferPooling) {
+        this.bufferPooling = bufferPooling;
+        return this;
+    }
+
+    /**
+     * Returns whether the pooled buffers are allocated off-heap.
+     *
+     * @return {@code true} if direct buffers are used, {@code false} otherwise.
+     */
+    public boolean isDirectBuffers() {
+        return directBuffers;
+    }
+
+    /**
+     * Sets whether the pooled buffers are allocated off-heap. This flag only
+     * takes effect when buffer pooling is enabled.
+     *
+     * @param directBuffers the value to set for the direct buffers flag
+     * @return the {@code HttpOptions} instance for method chaining
+     */
+    public HttpOptions setDirectBuffers(boolean directBuffers) {
+        this.directBuffers = directBuffers;
+        return this;
+    }
+
+    /**
+     * Retrieves the strategy used to distribute accepted connections among the event loops.
+     *
+     * @return the accept strategy
+     */
+    public AcceptStrategy getAcceptStrategy() {
+        return acceptStrategy;
+    }
+
+    /**
+     * Sets the strategy used to distribute accepted connections among the event loops.
+     *
+     * @param acceptStrategy the accept strategy to use
+     * @return the {@code HttpOptions} instance for method chaining
+     */
+    public HttpOptions setAcceptStrategy(AcceptStrategy acceptStrategy) {
+        this.acceptStrategy = Objects.requireNonNull(acceptStrategy, "Accept strategy cannot be null");
+        return this;
+    }
+
+    /**
+     * Retrieves the mode in which the request handler is executed.
+     *
+     * @return the execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets the mode in which the request handler is executed. Handlers that block, for example
+     * on token exchanges or file I/O, should run on virtual threads or on the worker pool, so
+     * they do not stall the other connections of the event loop.
+     *
+     * @param executionMode the execution mode to use
+     * @return the {@code HttpOptions} instance for method chaining
+     */
+    public HttpOptions setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = Objects.requireNonNull(executionMode, "Execution mode cannot be null");
+        return this;
+    }
+
+    /**
+     * Retrieves the number of platform threads of the worker pool.
+     *
+     * @return the worker pool size
+     */
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    /**
+     * Sets the number of platform threads of the worker pool. This value only takes effect when
+     * the handler is executed on the worker pool, or on virtual threads that are not supported.
+     *
+     * @param workerPoolSize the worker pool size to set
+     * @return the {@code HttpOptions} instance for method chaining
+     */
+    public HttpOptions setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+        return this;
+    }
+
+    /**
+     * Returns whether {@code TCP_NODELAY} is enabled on accepted connections.
+     *
+     * @return {@code true} if Nagle's algorithm is disabled, {@code false} otherwise.
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * Sets whether {@code TCP_NODELAY} is enabled on accepted connections. Every response is sent with
+     * a single gathering write, so disabling Nagle's algorithm keeps pipelined responses from being
+     * delayed until the client acknowledges the previous one.
+     *
+     * @param tcpNoDelay the value to set for the TCP no delay flag
+     * @return the {@code HttpOptions} instance for method chaining
+     */
+    public HttpOptions setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
     /**
      * Converts the current settings of {@code HttpOptions} to a JSON representation.
      * This is useful for debugging or storing the configuration state.
@@ -260,6 +402,12 @@ public class HttpOptions implements Options {
         json.put("acceptLength", acceptLength);
         json.put("maxRequestSize", maxRequestSize);
         json.put("concurrency", concurrency);
+        json.put("bufferPooling", bufferPooling);
+        json.put("directBuffers", directBuffers);
+        json.put("acceptStrategy", acceptStrategy.name());
+        json.put("executionMode", executionMode.name());
+        json.put("workerPoolSize", workerPoolSize);
+        json.put("tcpNoDelay", tcpNoDelay);
         return json;
     }
 }
@@ -147,6 +147,17 @@ public interface HttpServer extends AutoCloseable {
         return getFullRequestedURL();
     }
 
+    /**
+     * Returns a snapshot of the metrics recorded by the server. If the application is
+     * running in a browser via JPro server, then no metrics are recorded.
+     *
+     * @return the server metrics, or {@code null} if no metrics are recorded
+     */
+    @Nullable
+    default HttpServerMetrics getMetrics() {
+        return null;
+    }
+
     /**
      * Opens the given URL string in the browser.
      *
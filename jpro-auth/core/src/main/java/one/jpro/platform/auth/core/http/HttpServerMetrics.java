@@ -0,0 +1,92 @@
+package one.jpro.platform.auth.core.http;
+
+import java.util.List;
+
+/**
+ * A snapshot of the metrics recorded by the {@link HttpServer} since it was created.
+ * The connection counts and latencies help sizing the {@link HttpOptions#setConcurrency(int) concurrency}
+ * and the {@link HttpOptions#setReadBufferSize(int) read buffer size} of the server.
+ *
+ * @author Besmir Beqiri
+ * @see HttpServer#getMetrics()
+ */
+public interface HttpServerMetrics {
+
+    /**
+     * Returns the number of accepted connections.
+     *
+     * @return the accepted connections count
+     */
+    long getAcceptedConnections();
+
+    /**
+     * Returns the number of closed connections, including the timed out ones.
+     *
+     * @return the closed connections count
+     */
+    long getClosedConnections();
+
+    /**
+     * Returns the number of connections closed because the request timed out.
+     *
+     * @return the timed out connections count
+     */
+    long getTimedOutConnections();
+
+    /**
+     * Returns the number of active connections of each connection event loop.
+     *
+     * @return the active connections per event loop
+     */
+    List<Integer> getActiveConnections();
+
+    /**
+     * Returns the number of handled requests.
+     *
+     * @return the requests count
+     */
+    long getRequests();
+
+    /**
+     * Returns the number of requests that were already buffered when the response
+     * to the previous request on the same connection was written.
+     *
+     * @return the pipelined requests count
+     */
+    long getPipelinedRequests();
+
+    /**
+     * Returns the number of bytes read from all the connections.
+     *
+     * @return the bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * Returns the number of bytes written to all the connections.
+     *
+     * @return the bytes written
+     */
+    long getBytesWritten();
+
+    /**
+     * Returns the time spent by the parser to complete a request once its last bytes are read.
+     *
+     * @return the parse latency histogram
+     */
+    LatencyHistogram getParseLatency();
+
+    /**
+     * Returns the time from the dispatch of a request to the handler until its response is ready.
+     *
+     * @return the handle latency histogram
+     */
+    LatencyHistogram getHandleLatency();
+
+    /**
+     * Returns the time from a response being ready until it is fully written to the connection.
+     *
+     * @return the write latency histogram
+     */
+    LatencyHistogram getWriteLatency();
+}
@@ -0,0 +1,42 @@
+package one.jpro.platform.auth.core.http;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the distribution of latencies recorded by the {@link HttpServer}.
+ * Latencies are counted in fixed buckets with a relative precision of 12.5%.
+ *
+ * @author Besmir Beqiri
+ * @see HttpServerMetrics
+ */
+public interface LatencyHistogram {
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count
+     */
+    long getCount();
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return the mean latency, or {@link Duration#ZERO} if nothing was recorded
+     */
+    Duration getMean();
+
+    /**
+     * Returns the maximum recorded latency.
+     *
+     * @return the maximum latency, or {@link Duration#ZERO} if nothing was recorded
+     */
+    Duration getMax();
+
+    /**
+     * Returns the latency below or at which the given percentage of the recorded latencies fall.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency at the given percentile, or {@link Duration#ZERO} if nothing was recorded
+     */
+    Duration getValueAtPercentile(double percentile);
+}
@@ -0,0 +1,84 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * BufferPool is a bounded pool of equally sized byte buffers, optionally allocated off-heap.
+ * Buffers are handed out to connections while they hold unprocessed request bytes and
+ * returned as soon as those bytes have been consumed, so idle connections do not pin any memory.
+ * <p>
+ * A pool is confined to the thread of the {@link ConnectionEventLoop} owning it and is not thread-safe.
+ *
+ * @author Besmir Beqiri
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final boolean direct;
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    /**
+     * Constructs a new BufferPool.
+     *
+     * @param bufferSize the capacity of the pooled buffers
+     * @param maxPooled  the maximum number of idle buffers kept in the pool
+     * @param direct     whether the pooled buffers are allocated off-heap
+     */
+    BufferPool(int bufferSize, int maxPooled, boolean direct) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.direct = direct;
+    }
+
+    /**
+     * Returns the capacity of the pooled buffers.
+     *
+     * @return the buffer capacity in bytes
+     */
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of idle buffers currently kept in the pool.
+     *
+     * @return the number of idle buffers
+     */
+    int size() {
+        return buffers.size();
+    }
+
+    /**
+     * Acquires a cleared buffer with at least the given capacity. Requests that do not fit
+     * into a pooled buffer are served with a dedicated heap buffer that is never pooled.
+     *
+     * @param capacity the minimum capacity required
+     * @return a buffer with at least the given capacity
+     */
+    ByteBuffer acquire(int capacity) {
+        if (capacity > bufferSize) {
+            return ByteBuffer.allocate(capacity);
+        }
+        ByteBuffer buffer = buffers.pollFirst();
+        if (buffer != null) {
+            return buffer;
+        }
+        return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers that were not handed out by this pool,
+     * or that exceed the pool bound, are left to the garbage collector.
+     *
+     * @param buffer the buffer to release
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && buffer.isDirect() == direct && buffers.size() < maxPooled) {
+            buffer.clear();
+            buffers.offerFirst(buffer);
+        }
+    }
+}
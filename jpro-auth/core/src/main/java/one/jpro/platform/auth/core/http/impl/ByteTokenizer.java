@@ -1,19 +1,55 @@
 package one.jpro.platform.auth.core.http.impl;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.nio.channels.ReadableByteChannel;
 
 /**
- * ByteTokenizer is an expandable, first-in first-out byte array that supports tokenization.
+ * ByteTokenizer is an expandable, first-in first-out byte buffer that supports tokenization.
  * Bytes are added at the tail and tokenization occurs at the head.
+ * <p>
+ * The bytes are stored in a {@link ByteBuffer} that is either allocated on the heap or,
+ * when a {@link BufferPool} is provided, borrowed from the pool and handed back as soon
+ * as all the bytes have been consumed.
+ * <p>
+ * Delimiter searches are incremental: when a delimiter is not found, the tokenizer remembers how
+ * many bytes have already been searched, so the next search, after more bytes have been added,
+ * resumes where the previous one stopped instead of rescanning the whole pending token. The first
+ * byte of the delimiter is located eight bytes at a time with a SWAR (SIMD within a register) scan.
  *
  * @author Besmir Beqiri
  */
 final class ByteTokenizer {
 
-    private byte[] array = new byte[0];
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ONES = 0x0101010101010101L;
+
+    @Nullable
+    private final BufferPool pool;
+    private ByteBuffer buffer = EMPTY;
     private int position;
     private int size;
+    private byte[] lastDelimiter;
+    private int scanned;
+
+    /**
+     * Creates a tokenizer backed by heap buffers.
+     */
+    ByteTokenizer() {
+        this(null);
+    }
+
+    /**
+     * Creates a tokenizer that borrows its buffers from the given pool.
+     *
+     * @param pool the buffer pool to use, or {@code null} to allocate heap buffers
+     */
+    ByteTokenizer(@Nullable BufferPool pool) {
+        this.pool = pool;
+    }
 
     /**
      * Returns the current size of the tokenized byte array.
@@ -25,12 +61,12 @@ final class ByteTokenizer {
     }
 
     /**
-     * Returns the current capacity of the underlying byte array.
+     * Returns the current capacity of the underlying byte buffer.
      *
-     * @return the capacity of the byte array
+     * @return the capacity of the byte buffer
      */
     int capacity() {
-        return array.length;
+        return buffer.capacity();
     }
 
     /**
@@ -43,14 +79,39 @@ final class ByteTokenizer {
     }
 
     /**
-     * Compacts the underlying byte array by removing processed bytes
+     * Compacts the underlying byte buffer by removing processed bytes
      * and shifting the remaining bytes to the beginning.
-     * After compaction, the position is reset to 0.
+     * After compaction, the position is reset to 0. When no bytes are left,
+     * nothing is copied and a pooled buffer is returned to its pool.
      */
     void compact() {
-        array = Arrays.copyOfRange(array, position, size);
-        size = size - position;
+        if (position == size) {
+            if (pool != null) {
+                release();
+            } else {
+                position = 0;
+                size = 0;
+                scanned = 0;
+            }
+        } else if (position > 0) {
+            shift();
+        }
+    }
+
+    /**
+     * Releases the underlying byte buffer, returning it to the pool if it was borrowed from one.
+     * Any bytes that have not been tokenized yet are discarded.
+     */
+    void release() {
+        if (buffer != EMPTY) {
+            if (pool != null) {
+                pool.release(buffer);
+            }
+            buffer = EMPTY;
+        }
         position = 0;
+        size = 0;
+        scanned = 0;
     }
 
     /**
@@ -61,13 +122,34 @@ final class ByteTokenizer {
      */
     void add(ByteBuffer buffer) {
         int bufferLen = buffer.remaining();
-        if (array.length - size < bufferLen) {
-            array = Arrays.copyOf(array, Math.max(size + bufferLen, array.length * 2));
-        }
-        buffer.get(array, size, bufferLen);
+        ensureWritable(bufferLen);
+        this.buffer.put(size, buffer, buffer.position(), bufferLen);
+        buffer.position(buffer.limit());
         size += bufferLen;
     }
 
+    /**
+     * Reads bytes from the given channel directly into the tail of the underlying byte buffer,
+     * avoiding the copy through an intermediate read buffer.
+     *
+     * @param channel the channel to read from
+     * @return the number of bytes read, possibly zero, or -1 if the channel has reached end-of-stream
+     * @throws IOException if an I/O error occurs
+     */
+    int read(ReadableByteChannel channel) throws IOException {
+        ensureWritable(1);
+        buffer.limit(buffer.capacity()).position(size);
+        try {
+            int numBytes = channel.read(buffer);
+            if (numBytes > 0) {
+                size += numBytes;
+            }
+            return numBytes;
+        } finally {
+            buffer.clear();
+        }
+    }
+
     /**
      * Retrieves the next fixed-length chunk of bytes from the tokenized byte array.
      * The position is advanced by the specified length.
@@ -79,8 +161,10 @@ final class ByteTokenizer {
         if (size - position < length) {
             return null;
         }
-        byte[] result = Arrays.copyOfRange(array, position, position + length);
+        byte[] result = new byte[length];
+        buffer.get(position, result, 0, length);
         position += length;
+        scanned = 0;
         return result;
     }
 
@@ -96,24 +180,115 @@ final class ByteTokenizer {
         if (index < 0) {
             return null;
         }
-        byte[] result = Arrays.copyOfRange(array, position, index);
+        byte[] result = new byte[index - position];
+        buffer.get(position, result, 0, result.length);
         position = index + delimiter.length;
+        scanned = 0;
         return result;
     }
 
     /**
      * Searches for the index of the specified byte array within the tokenized byte array,
-     * starting from the current position.
+     * starting from the current position, or from where the previous unsuccessful search
+     * for the same delimiter stopped.
      *
      * @param delimiter the byte array to search for
      * @return the index of the delimiter, or -1 if it is not found
      */
     private int indexOf(byte[] delimiter) {
-        for (int i = position; i <= size - delimiter.length; i++) {
-            if (Arrays.equals(delimiter, 0, delimiter.length, array, i, i + delimiter.length)) {
+        int from = delimiter == lastDelimiter ? position + scanned : position;
+        int last = size - delimiter.length;
+        byte first = delimiter[0];
+        int i = from;
+        while (i <= last) {
+            i = indexOf(first, i, last + 1);
+            if (i < 0) {
+                break;
+            }
+            if (matches(delimiter, i)) {
                 return i;
             }
+            i++;
         }
+        lastDelimiter = delimiter;
+        scanned = Math.max(from, last + 1) - position;
         return -1;
     }
+
+    /**
+     * Returns the index of the first occurrence of the given byte within the given range,
+     * comparing eight bytes at a time, or -1 if the byte is not found.
+     */
+    private int indexOf(byte value, int from, int to) {
+        int i = from;
+        if (to - i >= Long.BYTES) {
+            final long pattern = (value & 0xFFL) * ONES;
+            for (; i <= to - Long.BYTES; i += Long.BYTES) {
+                // the buffers are big-endian, so the first byte in memory is the most significant one
+                long word = buffer.getLong(i) ^ pattern;
+                // sets the high bit of exactly the bytes that are zero, without false positives
+                long found = ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+                if (found != 0) {
+                    return i + (Long.numberOfLeadingZeros(found) >>> 3);
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the specified byte array occurs at the given index.
+     */
+    private boolean matches(byte[] delimiter, int index) {
+        for (int j = 0; j < delimiter.length; j++) {
+            if (buffer.get(index + j) != delimiter[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure that at least the given number of bytes can be appended,
+     * reclaiming the processed bytes first and growing the buffer only when needed.
+     */
+    private void ensureWritable(int length) {
+        if (buffer.capacity() - size >= length) {
+            return;
+        }
+        int remaining = size - position;
+        if (position > 0 && buffer.capacity() - remaining >= length) {
+            shift();
+            return;
+        }
+        ByteBuffer grown = allocate(Math.max(remaining + length, buffer.capacity() * 2));
+        grown.put(0, buffer, position, remaining);
+        ByteBuffer old = buffer;
+        buffer = grown;
+        if (pool != null && old != EMPTY) {
+            pool.release(old);
+        }
+        position = 0;
+        size = remaining;
+    }
+
+    /**
+     * Shifts the remaining bytes in place to the beginning of the buffer.
+     */
+    private void shift() {
+        buffer.limit(size).position(position);
+        buffer.compact();
+        buffer.clear();
+        size -= position;
+        position = 0;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return pool != null ? pool.acquire(capacity) : ByteBuffer.allocate(capacity);
+    }
 }
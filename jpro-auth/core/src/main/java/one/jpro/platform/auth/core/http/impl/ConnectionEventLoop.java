@@ -1,22 +1,33 @@
 package one.jpro.platform.auth.core.http.impl;
 
 import one.jpro.platform.auth.core.http.HttpOptions;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class represents an independent, threaded event loop for managing a group of connections.
- * It has its own selector, direct off-heap byte buffer, timeout queue, task queue, and state-per-connection.
+ * It has its own selector, direct off-heap read buffer, optional request buffer pool, timeout queue,
+ * task queue, and state-per-connection. It keeps an atomic gauge of its connections, that other threads
+ * can read to balance the accepted connections, and can optionally accept connections on its own listener.
+ * The handler runs inline on the event loop thread, unless a handler executor is given, in which case
+ * parsed requests are dispatched to it and the responses are handed back through the task queue.
+ * Connection counts, transferred bytes and request latencies are recorded in its {@link EventLoopMetrics}.
  * <p>
  * ConnectionEventLoop instances are managed by a parent EventLoop.
  *
@@ -26,36 +37,75 @@ class ConnectionEventLoop {
 
     private static final Logger log = LoggerFactory.getLogger(ConnectionEventLoop.class);
 
+    /**
+     * The maximum number of idle request buffers kept by the buffer pool of each event loop.
+     */
+    private static final int MAX_POOLED_BUFFERS = 32;
+
     private final HttpOptions options;
     private final Handler handler;
+    private final StreamingHandler streamingHandler;
+    private final Executor handlerExecutor;
     private final AtomicLong connectionCounter;
     private final AtomicBoolean stop;
 
+    private final AtomicInteger connections = new AtomicInteger();
+    private final EventLoopMetrics metrics = new EventLoopMetrics();
     private final Scheduler scheduler;
     private final Queue<Runnable> taskQueue;
     private final ByteBuffer buffer;
+    private final BufferPool bufferPool;
     private final Selector selector;
     private final Thread thread;
 
     /**
-     * Constructs a ConnectionEventLoop instance.
+     * Constructs a ConnectionEventLoop instance, that buffers request bodies.
      *
      * @param options            the HTTP options to use
      * @param handler            the handler to process requests and responses
+     * @param handlerExecutor    the executor to run the handler on, or {@code null} to run
+     *                           it on the event loop thread
+     * @param connectionCounter  an atomic counter for generating connection IDs
+     * @param stop               an atomic boolean indicating whether to stop the event loop
+     * @throws IOException if an I/O error occurs during initialization
+     */
+    ConnectionEventLoop(HttpOptions options, Handler handler, @Nullable Executor handlerExecutor,
+                        AtomicLong connectionCounter, AtomicBoolean stop) throws IOException {
+        this(options, Objects.requireNonNull(handler), null, handlerExecutor, connectionCounter, stop);
+    }
+
+    /**
+     * Constructs a ConnectionEventLoop instance, that streams request bodies.
+     *
+     * @param options            the HTTP options to use
+     * @param streamingHandler   the handler to process requests with streamed bodies and responses
+     * @param handlerExecutor    the executor to run the handler on, or {@code null} to run
+     *                           it on the event loop thread
      * @param connectionCounter  an atomic counter for generating connection IDs
      * @param stop               an atomic boolean indicating whether to stop the event loop
      * @throws IOException if an I/O error occurs during initialization
      */
-    ConnectionEventLoop(HttpOptions options, Handler handler,
+    ConnectionEventLoop(HttpOptions options, StreamingHandler streamingHandler, @Nullable Executor handlerExecutor,
                         AtomicLong connectionCounter, AtomicBoolean stop) throws IOException {
+        this(options, null, Objects.requireNonNull(streamingHandler), handlerExecutor, connectionCounter, stop);
+    }
+
+    private ConnectionEventLoop(HttpOptions options, @Nullable Handler handler,
+                                @Nullable StreamingHandler streamingHandler, @Nullable Executor handlerExecutor,
+                                AtomicLong connectionCounter, AtomicBoolean stop) throws IOException {
         this.options = options;
         this.handler = handler;
+        this.streamingHandler = streamingHandler;
+        this.handlerExecutor = handlerExecutor;
         this.connectionCounter = connectionCounter;
         this.stop = stop;
 
-        scheduler = new Scheduler();
+        scheduler = new Scheduler(options.getResolution());
         taskQueue = new ConcurrentLinkedQueue<>();
         buffer = ByteBuffer.allocateDirect(options.getReadBufferSize());
+        bufferPool = options.isBufferPooling()
+                ? new BufferPool(options.getReadBufferSize(), MAX_POOLED_BUFFERS, options.isDirectBuffers())
+                : null;
         selector = Selector.open();
         thread = new Thread(this::run, "connection-event-loop");
         thread.setDaemon(true);
@@ -66,31 +116,6 @@ class ConnectionEventLoop {
      */
     private class Connection {
 
-        /**
-         * The HTTP version 1.0.
-         */
-        static final String HTTP_1_0 = "HTTP/1.0";
-
-        /**
-         * The HTTP version 1.1.
-         */
-        static final String HTTP_1_1 = "HTTP/1.1";
-
-        /**
-         * The "Connection" header name.
-         */
-        static final String HEADER_CONNECTION = "Connection";
-
-        /**
-         * The "Content-Length" header name.
-         */
-        static final String HEADER_CONTENT_LENGTH = "Content-Length";
-
-        /**
-         * The "Keep-Alive" header value.
-         */
-        static final String KEEP_ALIVE = "Keep-Alive";
-
         /**
          * The SocketChannel associated with the connection.
          */
@@ -117,15 +142,31 @@ class ConnectionEventLoop {
         RequestParser requestParser;
 
         /**
-         * The ByteBuffer for writing responses.
+         * The publisher of the request body being streamed, if any.
          */
-        ByteBuffer writeBuffer;
+        RequestBodyPublisher bodyPublisher;
 
         /**
-         * The task with timeout representing the request.
+         * The ByteBuffers holding the response being written.
+         */
+        ByteBuffer[] writeBuffers;
+
+        /**
+         * The task with timeout representing the request. While the request body is streamed,
+         * it is an idle timeout, that is restarted whenever body bytes are read or requested.
          */
         Cancellable requestTimeoutTask;
 
+        /**
+         * The time, in nanoseconds, at which the current request was dispatched to the handler.
+         */
+        long handleStartTime;
+
+        /**
+         * The time, in nanoseconds, at which the current response was ready to be written.
+         */
+        long writeStartTime;
+
         /**
          * Indicates whether the HTTP version is 1.0.
          */
@@ -136,6 +177,11 @@ class ConnectionEventLoop {
          */
         boolean keepAlive;
 
+        /**
+         * Indicates whether the connection has been closed.
+         */
+        boolean closed;
+
         /**
          * Constructs a Connection object.
          *
@@ -145,9 +191,9 @@ class ConnectionEventLoop {
         private Connection(SocketChannel socketChannel, SelectionKey selectionKey) {
             this.socketChannel = socketChannel;
             this.selectionKey = selectionKey;
-            byteTokenizer = new ByteTokenizer();
+            byteTokenizer = new ByteTokenizer(bufferPool);
             id = Long.toString(connectionCounter.getAndIncrement());
-            requestParser = new RequestParser(byteTokenizer);
+            requestParser = new RequestParser(byteTokenizer, streamingHandler != null);
             requestTimeoutTask = scheduler.schedule(this::onRequestTimeout, options.getRequestTimeout());
         }
 
@@ -156,6 +202,7 @@ class ConnectionEventLoop {
          */
         private void onRequestTimeout() {
             log.trace("Request timeout in connection with id: {}", id);
+            metrics.timedOutConnections.increment();
             failSafeClose();
         }
 
@@ -177,18 +224,33 @@ class ConnectionEventLoop {
          * @throws IOException If an I/O error occurs.
          */
         private void doOnReadable() throws IOException {
-            buffer.clear();
-            int numBytes = socketChannel.read(buffer);
+            int numBytes;
+            if (bufferPool != null) { // read straight into the pooled request buffer
+                numBytes = byteTokenizer.read(socketChannel);
+            } else {
+                buffer.clear();
+                numBytes = socketChannel.read(buffer);
+            }
             if (numBytes < 0) {
                 log.trace("Close read in connection with id: {}", id);
                 failSafeClose();
                 return;
             }
-            buffer.flip();
-            byteTokenizer.add(buffer);
+            metrics.bytesRead.add(numBytes);
+            if (bufferPool == null) {
+                buffer.flip();
+                byteTokenizer.add(buffer);
+            }
             log.trace("Read bytes in connection with id: {}, read_bytes: {}, request_bytes: {}",
                     id, numBytes, byteTokenizer.remaining());
-            if (requestParser.parse()) {
+            if (bodyPublisher != null) {
+                pumpBody();
+                if (byteTokenizer.remaining() > options.getMaxRequestSize()) {
+                    log.trace("Exceed request max_size in connection with id: {} and pending_body_bytes: {}",
+                            id, byteTokenizer.remaining());
+                    failSafeClose();
+                }
+            } else if (parseRequest()) {
                 log.trace("Read request with connection id: {} and request_bytes: {}", id, byteTokenizer.remaining());
                 onParseRequest();
             } else {
@@ -199,10 +261,73 @@ class ConnectionEventLoop {
             }
         }
 
+        /**
+         * Parses the buffered request bytes, recording the time it takes to complete a request.
+         *
+         * @return true if a request was completed, false if more bytes are needed
+         */
+        private boolean parseRequest() {
+            final long startTime = System.nanoTime();
+            if (requestParser.parse()) {
+                metrics.parseLatency.record(System.nanoTime() - startTime);
+                return true;
+            }
+            return false;
+        }
+
         /**
          * Handles the parsed request.
          */
         private void onParseRequest() {
+            metrics.requests.increment();
+            handleStartTime = System.nanoTime();
+            Request request = requestParser.request();
+            httpOneDotZero = request.version().equalsIgnoreCase(Response.HTTP_1_0);
+            keepAlive = request.hasHeader(Response.HEADER_CONNECTION, Response.KEEP_ALIVE);
+            if (streamingHandler != null) { // keep reading until the whole body has been streamed
+                final RequestBodyPublisher publisher = new RequestBodyPublisher(this::onBodyDemand);
+                bodyPublisher = publisher;
+                dispatch(() -> streamingHandler.handle(request, publisher, this::onResponse));
+                if (!closed) {
+                    pumpBody();
+                }
+            } else {
+                onRequestComplete();
+                dispatch(() -> handler.handle(request, this::onResponse));
+            }
+        }
+
+        /**
+         * Runs the handler invocation on the handler executor, if any, or inline otherwise.
+         * A failure of a dispatched invocation closes the connection on the event loop thread.
+         *
+         * @param invocation The handler invocation.
+         */
+        private void dispatch(Runnable invocation) {
+            if (handlerExecutor == null) {
+                invocation.run();
+                return;
+            }
+            try {
+                handlerExecutor.execute(() -> {
+                    try {
+                        invocation.run();
+                    } catch (RuntimeException ex) {
+                        log.error("Handler error in connection with id: {}", id, ex);
+                        taskQueue.add(this::failSafeClose);
+                        selector.wakeup();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                log.trace("Handler rejected in connection with id: {}", id);
+                failSafeClose();
+            }
+        }
+
+        /**
+         * Stops reading until the response has been written and prepares to parse the next request.
+         */
+        private void onRequestComplete() {
             if (selectionKey.interestOps() != 0) {
                 selectionKey.interestOps(0);
             }
@@ -210,12 +335,66 @@ class ConnectionEventLoop {
                 requestTimeoutTask.cancel();
                 requestTimeoutTask = null;
             }
-            Request request = requestParser.request();
-            httpOneDotZero = request.version().equalsIgnoreCase(HTTP_1_0);
-            keepAlive = request.hasHeader(HEADER_CONNECTION, KEEP_ALIVE);
             byteTokenizer.compact();
-            requestParser = new RequestParser(byteTokenizer);
-            handler.handle(request, this::onResponse);
+            requestParser = new RequestParser(byteTokenizer, streamingHandler != null);
+        }
+
+        /**
+         * Delivers the buffered body chunks as long as the subscriber requests them. Reading from the
+         * socket is paused when the subscriber falls behind and one read buffer worth of body bytes is
+         * pending, and resumed when demand is signalled again. Once the subscriber has cancelled,
+         * the rest of the body is read and discarded. The request timeout only expires while the body is
+         * read, when the client sends nothing for that long, so slow subscribers may take any time.
+         */
+        private void pumpBody() {
+            final RequestBodyPublisher publisher = bodyPublisher;
+            byte[] chunk;
+            while ((publisher.isCancelled() || publisher.hasDemand())
+                    && (chunk = requestParser.nextBodyChunk()) != null) {
+                if (!publisher.isCancelled()) {
+                    publisher.next(ByteBuffer.wrap(chunk));
+                }
+            }
+            if (requestParser.bodyComplete()) {
+                log.trace("Streamed request body with connection id: {}", id);
+                bodyPublisher = null;
+                publisher.complete();
+                onRequestComplete();
+            } else {
+                byteTokenizer.compact();
+                boolean paused = !publisher.isCancelled() && !publisher.hasDemand()
+                        && byteTokenizer.remaining() >= options.getReadBufferSize();
+                int interestOps = paused ? 0 : SelectionKey.OP_READ;
+                if (writeBuffers == null && selectionKey.interestOps() != interestOps) {
+                    selectionKey.interestOps(interestOps);
+                }
+                if (requestTimeoutTask != null) {
+                    requestTimeoutTask.cancel();
+                    requestTimeoutTask = null;
+                }
+                if (!paused) { // a paused body waits for the subscriber, not for the client
+                    requestTimeoutTask = scheduler.schedule(this::onRequestTimeout, options.getRequestTimeout());
+                }
+            }
+        }
+
+        /**
+         * Called, possibly from another thread, when the body subscriber signals demand.
+         */
+        private void onBodyDemand() {
+            taskQueue.add(() -> {
+                if (bodyPublisher != null && selectionKey.isValid()) {
+                    try {
+                        pumpBody();
+                    } catch (RuntimeException ex) {
+                        log.trace("Request body error in connection with id: {}", id);
+                        failSafeClose();
+                    }
+                }
+            });
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
         }
 
         /**
@@ -247,16 +426,12 @@ class ConnectionEventLoop {
          * @throws IOException If an I/O error occurs.
          */
         private void prepareToWriteResponse(Response response) throws IOException {
-            String version = httpOneDotZero ? HTTP_1_0 : HTTP_1_1;
-            List<Header> headers = new ArrayList<>();
-            if (httpOneDotZero && keepAlive) {
-                headers.add(new Header(HEADER_CONNECTION, KEEP_ALIVE));
-            }
-            if (!response.hasHeader(HEADER_CONTENT_LENGTH)) {
-                headers.add(new Header(HEADER_CONTENT_LENGTH, Integer.toString(response.body().length)));
+            writeStartTime = System.nanoTime();
+            metrics.handleLatency.record(writeStartTime - handleStartTime);
+            writeBuffers = response.buffers(httpOneDotZero, keepAlive);
+            if (log.isTraceEnabled()) {
+                log.trace("Response ready in connection with id: {} and num_bytes: {}", id, remaining(writeBuffers));
             }
-            writeBuffer = ByteBuffer.wrap(response.serialize(version, headers));
-            log.trace("Response ready in connection with id: {} and num_bytes: {}", id, writeBuffer.remaining());
             doOnWritable();
         }
 
@@ -273,19 +448,13 @@ class ConnectionEventLoop {
         }
 
         /**
-         * Writes data to the socket channel.
+         * Writes data to the socket channel with a single gathering write over all the response buffers.
          *
          * @return The number of bytes written.
          * @throws IOException If an I/O error occurs.
          */
-        private int doWrite() throws IOException {
-            buffer.clear(); // pos = 0, limit = capacity
-            int amount = Math.min(buffer.remaining(), writeBuffer.remaining()); // determine transfer quantity
-            buffer.put(writeBuffer.array(), writeBuffer.position(), amount); // do transfer
-            buffer.flip();
-            int written = socketChannel.write(buffer);
-            writeBuffer.position(writeBuffer.position() + written); // advance write buffer
-            return written;
+        private long doWrite() throws IOException {
+            return socketChannel.write(writeBuffers);
         }
 
         /**
@@ -294,15 +463,19 @@ class ConnectionEventLoop {
          * @throws IOException If an I/O error occurs.
          */
         private void doOnWritable() throws IOException {
-            int numBytes = doWrite();
-            if (!writeBuffer.hasRemaining()) { // Response fully written
-                writeBuffer = null; // done with current write buffer, remove reference
+            long numBytes = doWrite();
+            metrics.bytesWritten.add(numBytes);
+            if (remaining(writeBuffers) == 0) { // Response fully written
+                metrics.writeLatency.record(System.nanoTime() - writeStartTime);
+                writeBuffers = null; // done with current write buffers, remove reference
                 log.trace("Write response with connection id: {} and num_bytes: {}", id, numBytes);
-                if (httpOneDotZero && !keepAlive) { // non-persistent connection, close now
+                if ((httpOneDotZero && !keepAlive) || bodyPublisher != null) { // non-persistent connection
+                    // or response sent before the request body was fully received, close now
                     log.trace("Close after response with connection id: {}", id);
                     failSafeClose();
                 } else { // Persistent connection
-                    if (requestParser.parse()) { // Subsequent request in the buffer
+                    if (parseRequest()) { // Subsequent request in the buffer
+                        metrics.pipelinedRequests.increment();
                         log.trace("Pipeline request with connection id: {} and request_bytes: {}", id, byteTokenizer.remaining());
                         onParseRequest();
                     } else { // Switch back to read mode
@@ -322,10 +495,21 @@ class ConnectionEventLoop {
          * Closes the connection safely.
          */
         private void failSafeClose() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.decrementAndGet();
+            metrics.closedConnections.increment();
             try {
                 if (requestTimeoutTask != null) {
                     requestTimeoutTask.cancel();
                 }
+                if (bodyPublisher != null) {
+                    bodyPublisher.fail(new IOException("Connection closed before the request body was received"));
+                    bodyPublisher = null;
+                }
+                byteTokenizer.release();
                 selectionKey.cancel();
                 socketChannel.close();
             } catch (IOException e) {
@@ -335,12 +519,36 @@ class ConnectionEventLoop {
     }
 
     /**
-     * Returns the number of active connections.
+     * Returns the total number of bytes remaining in the given buffers.
+     *
+     * @param buffers the buffers to check
+     * @return the number of remaining bytes
+     */
+    private static long remaining(ByteBuffer[] buffers) {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        return remaining;
+    }
+
+    /**
+     * Returns the number of active connections, including the ones registered but not yet
+     * picked up by the event loop thread. Safe to call from any thread.
      *
      * @return The number of active connections.
      */
     int numConnections() {
-        return selector.keys().size();
+        return connections.get();
+    }
+
+    /**
+     * Returns the metrics recorded by this event loop. Safe to read from any thread.
+     *
+     * @return The event loop metrics.
+     */
+    EventLoopMetrics metrics() {
+        return metrics;
     }
 
     /**
@@ -382,7 +590,9 @@ class ConnectionEventLoop {
             Iterator<SelectionKey> it = selectedKeys.iterator();
             while (it.hasNext()) {
                 SelectionKey selKey = it.next();
-                if (selKey.isReadable()) {
+                if (selKey.isAcceptable()) {
+                    doAccept((ServerSocketChannel) selKey.channel());
+                } else if (selKey.isReadable()) {
                     ((Connection) selKey.attachment()).onReadable();
                 } else if (selKey.isWritable()) {
                     ((Connection) selKey.attachment()).onWritable();
@@ -403,19 +613,55 @@ class ConnectionEventLoop {
      * @param socketChannel The socket channel to register.
      */
     void register(SocketChannel socketChannel) {
-        taskQueue.add(() -> {
-            try {
-                doRegister(socketChannel);
-            } catch (IOException ex) {
-                log.error("Error on registering a new socket channel", ex);
-                try {
-                    socketChannel.close();
-                } catch (IOException ignore) {}
-            }
-        });
+        connections.incrementAndGet();
+        taskQueue.add(() -> safeRegister(socketChannel));
         selector.wakeup(); // wakeup event loop thread to process a task immediately
     }
 
+    /**
+     * Makes this event loop accept connections on its own listener. Must be called before the event loop is started.
+     *
+     * @param serverSocketChannel The non-blocking, bound server socket channel to accept connections from.
+     * @throws IOException If an I/O error occurs.
+     */
+    void listen(ServerSocketChannel serverSocketChannel) throws IOException {
+        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Accepts all the pending connections of the given listener and registers them with this event loop.
+     *
+     * @param serverSocketChannel The server socket channel to accept connections from.
+     */
+    private void doAccept(ServerSocketChannel serverSocketChannel) {
+        try {
+            SocketChannel socketChannel;
+            while ((socketChannel = serverSocketChannel.accept()) != null) {
+                connections.incrementAndGet();
+                safeRegister(socketChannel);
+            }
+        } catch (IOException ex) {
+            log.error("Error on accepting a new socket channel", ex);
+        }
+    }
+
+    /**
+     * Registers a socket channel with the selector, closing it if the registration fails.
+     *
+     * @param socketChannel The socket channel to register.
+     */
+    private void safeRegister(SocketChannel socketChannel) {
+        try {
+            doRegister(socketChannel);
+        } catch (IOException ex) {
+            log.error("Error on registering a new socket channel", ex);
+            connections.decrementAndGet();
+            try {
+                socketChannel.close();
+            } catch (IOException ignore) {}
+        }
+    }
+
     /**
      * Registers a socket channel with the selector and attaches a Connection instance to it.
      *
@@ -424,8 +670,12 @@ class ConnectionEventLoop {
      */
     private void doRegister(SocketChannel socketChannel) throws IOException {
         socketChannel.configureBlocking(false);
+        if (options.isTcpNoDelay()) {
+            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
         SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_READ);
         Connection connection = new Connection(socketChannel, selectionKey);
         selectionKey.attach(connection);
+        metrics.acceptedConnections.increment();
     }
 }
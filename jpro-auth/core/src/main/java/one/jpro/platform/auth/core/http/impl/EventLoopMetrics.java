@@ -0,0 +1,132 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.HttpServerMetrics;
+import one.jpro.platform.auth.core.http.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EventLoopMetrics holds the counters and latency histograms recorded by a single
+ * {@link ConnectionEventLoop}. Recording takes no locks and does not allocate, and
+ * the metrics of all the event loops are merged into a snapshot on demand.
+ *
+ * @author Besmir Beqiri
+ */
+final class EventLoopMetrics {
+
+    final LongAdder acceptedConnections = new LongAdder();
+    final LongAdder closedConnections = new LongAdder();
+    final LongAdder timedOutConnections = new LongAdder();
+    final LongAdder requests = new LongAdder();
+    final LongAdder pipelinedRequests = new LongAdder();
+    final LongAdder bytesRead = new LongAdder();
+    final LongAdder bytesWritten = new LongAdder();
+    final Histogram parseLatency = new Histogram();
+    final Histogram handleLatency = new Histogram();
+    final Histogram writeLatency = new Histogram();
+
+    /**
+     * Merges the metrics of the given event loops into a snapshot.
+     *
+     * @param eventLoops the event loops
+     * @return the metrics snapshot
+     */
+    static HttpServerMetrics snapshot(List<ConnectionEventLoop> eventLoops) {
+        long acceptedConnections = 0;
+        long closedConnections = 0;
+        long timedOutConnections = 0;
+        long requests = 0;
+        long pipelinedRequests = 0;
+        long bytesRead = 0;
+        long bytesWritten = 0;
+        final List<Integer> activeConnections = new ArrayList<>(eventLoops.size());
+        final Histogram.Snapshot parseLatency = new Histogram.Snapshot();
+        final Histogram.Snapshot handleLatency = new Histogram.Snapshot();
+        final Histogram.Snapshot writeLatency = new Histogram.Snapshot();
+        for (ConnectionEventLoop eventLoop : eventLoops) {
+            final EventLoopMetrics metrics = eventLoop.metrics();
+            acceptedConnections += metrics.acceptedConnections.sum();
+            closedConnections += metrics.closedConnections.sum();
+            timedOutConnections += metrics.timedOutConnections.sum();
+            requests += metrics.requests.sum();
+            pipelinedRequests += metrics.pipelinedRequests.sum();
+            bytesRead += metrics.bytesRead.sum();
+            bytesWritten += metrics.bytesWritten.sum();
+            activeConnections.add(eventLoop.numConnections());
+            metrics.parseLatency.addTo(parseLatency);
+            metrics.handleLatency.addTo(handleLatency);
+            metrics.writeLatency.addTo(writeLatency);
+        }
+        return new Snapshot(acceptedConnections, closedConnections, timedOutConnections,
+                Collections.unmodifiableList(activeConnections), requests, pipelinedRequests,
+                bytesRead, bytesWritten, parseLatency, handleLatency, writeLatency);
+    }
+
+    /**
+     * An immutable snapshot of the merged metrics.
+     */
+    private record Snapshot(long acceptedConnections, long closedConnections, long timedOutConnections,
+                            List<Integer> activeConnections, long requests, long pipelinedRequests,
+                            long bytesRead, long bytesWritten, LatencyHistogram parseLatency,
+                            LatencyHistogram handleLatency, LatencyHistogram writeLatency)
+            implements HttpServerMetrics {
+
+        @Override
+        public long getAcceptedConnections() {
+            return acceptedConnections;
+        }
+
+        @Override
+        public long getClosedConnections() {
+            return closedConnections;
+        }
+
+        @Override
+        public long getTimedOutConnections() {
+            return timedOutConnections;
+        }
+
+        @Override
+        public List<Integer> getActiveConnections() {
+            return activeConnections;
+        }
+
+        @Override
+        public long getRequests() {
+            return requests;
+        }
+
+        @Override
+        public long getPipelinedRequests() {
+            return pipelinedRequests;
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public LatencyHistogram getParseLatency() {
+            return parseLatency;
+        }
+
+        @Override
+        public LatencyHistogram getHandleLatency() {
+            return handleLatency;
+        }
+
+        @Override
+        public LatencyHistogram getWriteLatency() {
+            return writeLatency;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.ExecutionMode;
+import one.jpro.platform.auth.core.http.HttpOptions;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors that run the request handler off the event loop threads,
+ * according to the configured {@link ExecutionMode}.
+ *
+ * @author Besmir Beqiri
+ */
+final class HandlerExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(HandlerExecutors.class);
+
+    private HandlerExecutors() {
+        // Hide the default constructor.
+    }
+
+    /**
+     * Creates the executor for the execution mode of the given options.
+     *
+     * @param options the HTTP options to use
+     * @return the executor, or {@code null} when the handler runs on the event loop threads
+     */
+    @Nullable
+    static ExecutorService create(HttpOptions options) {
+        return switch (options.getExecutionMode()) {
+            case EVENT_LOOP -> null;
+            case VIRTUAL_THREADS -> {
+                final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+                if (executor != null) {
+                    yield executor;
+                }
+                log.warn("Virtual threads are not supported on this runtime, "
+                        + "falling back to the '{}' execution mode.", ExecutionMode.WORKER_POOL);
+                yield newWorkerPool(options.getWorkerPoolSize());
+            }
+            case WORKER_POOL -> newWorkerPool(options.getWorkerPoolSize());
+        };
+    }
+
+    /**
+     * Creates a bounded pool of daemon platform threads.
+     *
+     * @param size the number of threads
+     * @return the worker pool
+     */
+    static ExecutorService newWorkerPool(int size) {
+        final AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "http-handler-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which is only available on
+     * runtimes with virtual threads, since the module is compiled against an older release.
+     *
+     * @return the virtual thread executor, or {@code null} if virtual threads are not supported
+     */
+    @Nullable
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException | UnsupportedOperationException ex) {
+            return null;
+        } catch (Throwable ex) {
+            log.warn("Unable to create the virtual thread executor", ex);
+            return null;
+        }
+    }
+}
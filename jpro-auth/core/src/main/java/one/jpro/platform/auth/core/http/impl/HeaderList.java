@@ -0,0 +1,170 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * HeaderList is an immutable list of HTTP headers backed by the raw bytes of the request head.
+ * Only the offsets of each header name and value are recorded while parsing. The {@link Header}
+ * instances, and the strings they hold, are decoded lazily the first time they are accessed.
+ * Lookups by name compare the raw bytes and only decode the value that is returned.
+ *
+ * @author Besmir Beqiri
+ */
+final class HeaderList extends AbstractList<Header> implements RandomAccess {
+
+    private static final int NAME_START = 0;
+    private static final int NAME_END = 1;
+    private static final int VALUE_START = 2;
+    private static final int VALUE_END = 3;
+    private static final int SLOTS = 4;
+
+    private final byte[] head;
+    private int[] offsets = new int[SLOTS * 8];
+    private int size;
+    private Header[] headers;
+
+    /**
+     * Constructs an empty HeaderList over the given request head.
+     *
+     * @param head the raw bytes of the request head
+     */
+    HeaderList(byte[] head) {
+        this.head = head;
+    }
+
+    /**
+     * Records a header located in the request head. Only called by the parser.
+     *
+     * @param nameStart  the offset of the first byte of the name
+     * @param nameEnd    the offset after the last byte of the name
+     * @param valueStart the offset of the first byte of the value
+     * @param valueEnd   the offset after the last byte of the value
+     */
+    void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        int base = size * SLOTS;
+        if (base + SLOTS > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[base + NAME_START] = nameStart;
+        offsets[base + NAME_END] = nameEnd;
+        offsets[base + VALUE_START] = valueStart;
+        offsets[base + VALUE_END] = valueEnd;
+        size++;
+    }
+
+    @Override
+    public Header get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (headers == null) {
+            headers = new Header[size];
+        }
+        Header header = headers[index];
+        if (header == null) {
+            int base = index * SLOTS;
+            header = new Header(decode(offsets[base + NAME_START], offsets[base + NAME_END]),
+                    decode(offsets[base + VALUE_START], offsets[base + VALUE_END]));
+            headers[index] = header;
+        }
+        return header;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the value of the first header with the specified name, ignoring case.
+     *
+     * @param name the name of the header
+     * @return the value of the header, or null if the header is not found
+     */
+    String value(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        int base = index * SLOTS;
+        return decode(offsets[base + VALUE_START], offsets[base + VALUE_END]);
+    }
+
+    /**
+     * Checks if there is a header with the specified name and value, both compared ignoring case.
+     *
+     * @param name  the name of the header
+     * @param value the value of the header
+     * @return true if such a header is found, false otherwise
+     */
+    boolean contains(String name, String value) {
+        for (int i = 0; i < size; i++) {
+            int base = i * SLOTS;
+            if (equalsIgnoreCase(offsets[base + NAME_START], offsets[base + NAME_END], name)
+                    && equalsIgnoreCase(offsets[base + VALUE_START], offsets[base + VALUE_END], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the headers with the specified name, ignoring case.
+     *
+     * @param name the name of the header
+     * @return the number of headers with the given name
+     */
+    int count(String name) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int base = i * SLOTS;
+            if (equalsIgnoreCase(offsets[base + NAME_START], offsets[base + NAME_END], name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first header with the specified name, ignoring case.
+     */
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            int base = i * SLOTS;
+            if (equalsIgnoreCase(offsets[base + NAME_START], offsets[base + NAME_END], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares a region of the request head with the given string, ignoring the case of ASCII letters.
+     * Regions or strings containing non-ASCII characters are decoded before comparing.
+     */
+    private boolean equalsIgnoreCase(int start, int end, String str) {
+        int length = end - start;
+        for (int i = 0; i < length && i < str.length(); i++) {
+            int b = head[start + i] & 0xFF;
+            char c = str.charAt(i);
+            if (b >= 0x80 || c >= 0x80) {
+                return decode(start, end).equalsIgnoreCase(str);
+            }
+            if (b != c && toLowerCase(b) != toLowerCase(c)) {
+                return false;
+            }
+        }
+        return length == str.length();
+    }
+
+    private static int toLowerCase(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private String decode(int start, int end) {
+        return new String(head, start, end - start, StandardCharsets.UTF_8);
+    }
+}
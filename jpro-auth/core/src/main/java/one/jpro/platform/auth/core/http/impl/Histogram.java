@@ -0,0 +1,157 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram records latencies in nanoseconds into a fixed array of log-linear buckets, in the style
+ * of an HDR histogram: every power of two is split in {@link #SUB_BUCKETS} equally sized buckets, which
+ * bounds the relative error to 12.5%. Recording takes no locks and does not allocate, and snapshots
+ * can be taken from any thread while latencies are being recorded.
+ *
+ * @author Besmir Beqiri
+ */
+final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of buckets per power of two.
+     */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The highest power of two that is tracked, larger values are counted in the last bucket.
+     * With nanoseconds, it is a little more than 36 minutes.
+     */
+    private static final int MAX_EXPONENT = 41;
+
+    /**
+     * The number of buckets.
+     */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the given latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as zero
+     */
+    void record(long nanos) {
+        final long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Adds the counts of this histogram to the given snapshot.
+     *
+     * @param snapshot the snapshot to add to
+     */
+    void addTo(Snapshot snapshot) {
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot.counts[i] += counts.get(i);
+        }
+        snapshot.sum += sum.sum();
+        snapshot.max = Math.max(snapshot.max, max.get());
+    }
+
+    /**
+     * Returns the index of the bucket for the given non-negative value.
+     *
+     * @param value the value
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest value that is counted in the given bucket.
+     *
+     * @param bucket the bucket index
+     * @return the highest value of the bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * An immutable view of the counts of one or more histograms.
+     */
+    static final class Snapshot implements LatencyHistogram {
+
+        private final long[] counts = new long[BUCKETS];
+        private long sum;
+        private long max;
+
+        @Override
+        public long getCount() {
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            return count;
+        }
+
+        @Override
+        public Duration getMean() {
+            final long count = getCount();
+            return count == 0 ? Duration.ZERO : Duration.ofNanos(sum / count);
+        }
+
+        @Override
+        public Duration getMax() {
+            return Duration.ofNanos(max);
+        }
+
+        @Override
+        public Duration getValueAtPercentile(double percentile) {
+            final long count = getCount();
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            final double clamped = Math.min(Math.max(percentile, 0.0), 100.0);
+            final long rank = Math.max(1, (long) Math.ceil(clamped / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Duration.ofNanos(Math.min(highestValue(i), max));
+                }
+            }
+            return Duration.ofNanos(max);
+        }
+
+        @Override
+        public String toString() {
+            return "LatencyHistogram[count=" + getCount() + ", mean=" + getMean()
+                    + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99)
+                    + ", max=" + getMax() + "]";
+        }
+    }
+}
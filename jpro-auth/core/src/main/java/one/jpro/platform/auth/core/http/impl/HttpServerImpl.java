@@ -2,9 +2,11 @@ package one.jpro.platform.auth.core.http.impl;
 
 import javafx.application.Platform;
 import javafx.stage.Stage;
+import one.jpro.platform.auth.core.http.AcceptStrategy;
 import one.jpro.platform.auth.core.http.HttpOptions;
 import one.jpro.platform.auth.core.http.HttpServer;
 import one.jpro.platform.auth.core.http.HttpServerException;
+import one.jpro.platform.auth.core.http.HttpServerMetrics;
 import one.jpro.platform.auth.core.http.HttpStatus;
 import one.jpro.platform.internal.openlink.OpenLink;
 import org.jetbrains.annotations.NotNull;
@@ -22,8 +24,11 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -60,7 +65,11 @@ public final class HttpServerImpl implements HttpServer {
     private final Selector selector;
     private final AtomicBoolean stop;
     private final ServerSocketChannel serverSocketChannel;
+    private final List<ServerSocketChannel> eventLoopServerSocketChannels = new ArrayList<>();
     private final List<ConnectionEventLoop> connectionEventLoops;
+    private final AcceptStrategy acceptStrategy;
+    private final ExecutorService handlerExecutor;
+    private int nextEventLoop;
     private final CompletableFuture<String> serverResponseFuture = new CompletableFuture<>();
     private final Thread thread;
 
@@ -74,12 +83,12 @@ public final class HttpServerImpl implements HttpServer {
         this.stage = stage;
         this.options = Objects.requireNonNull(options, "Http options cannot be null");
 
-        // Create a default response
+        // Create a default response, serialized once and shared by all connections
         final Response response = new Response(
                 HttpStatus.OK.getCode(),
                 HttpStatus.OK.getMessage(),
                 List.of(new Header(HEADER_CONTENT_TYPE, MIME_HTML)),
-                getResourceAsBytes("default-response.html"));
+                getResourceAsBytes("default-response.html")).preSerialized();
 
         final Handler handler = (request, callback) -> {
             this.uri = request.uri();
@@ -107,10 +116,12 @@ public final class HttpServerImpl implements HttpServer {
         selector = Selector.open();
         stop = new AtomicBoolean();
 
+        handlerExecutor = HandlerExecutors.create(options);
         AtomicLong connectionCounter = new AtomicLong();
         connectionEventLoops = new ArrayList<>();
         for (int i = 0; i < options.getConcurrency(); i++) {
-            connectionEventLoops.add(new ConnectionEventLoop(options, handler, connectionCounter, stop));
+            connectionEventLoops.add(new ConnectionEventLoop(options, handler, handlerExecutor,
+                    connectionCounter, stop));
         }
 
         thread = new Thread(this::run, "http-server-thread");
@@ -122,23 +133,50 @@ public final class HttpServerImpl implements HttpServer {
 
         serverSocketChannel = ServerSocketChannel.open();
         final Set<SocketOption<?>> supportedOptions = serverSocketChannel.supportedOptions();
+        final boolean reusePortSupported = supportedOptions.contains(StandardSocketOptions.SO_REUSEPORT);
+        if (options.getAcceptStrategy() == AcceptStrategy.REUSE_PORT && !reusePortSupported) {
+            logger.warn("The 'SO_REUSEPORT' option is not supported on this platform, "
+                    + "falling back to the '{}' accept strategy.", AcceptStrategy.LEAST_CONNECTIONS);
+            acceptStrategy = AcceptStrategy.LEAST_CONNECTIONS;
+        } else {
+            acceptStrategy = options.getAcceptStrategy();
+        }
+        configure(serverSocketChannel, supportedOptions);
+        serverSocketChannel.bind(address, options.getAcceptLength());
+        if (acceptStrategy == AcceptStrategy.REUSE_PORT) {
+            // every event loop accepts on its own listener bound to the same port
+            final InetSocketAddress boundAddress = new InetSocketAddress(address.getAddress(),
+                    ((InetSocketAddress) serverSocketChannel.getLocalAddress()).getPort());
+            connectionEventLoops.get(0).listen(serverSocketChannel);
+            for (int i = 1; i < connectionEventLoops.size(); i++) {
+                final ServerSocketChannel eventLoopServerSocketChannel = ServerSocketChannel.open();
+                eventLoopServerSocketChannels.add(eventLoopServerSocketChannel);
+                configure(eventLoopServerSocketChannel, supportedOptions);
+                eventLoopServerSocketChannel.bind(boundAddress, options.getAcceptLength());
+                connectionEventLoops.get(i).listen(eventLoopServerSocketChannel);
+            }
+        } else {
+            serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void configure(@NotNull final ServerSocketChannel channel,
+                           @NotNull final Set<SocketOption<?>> supportedOptions) throws IOException {
         if (options.isReuseAddr()) {
             if (supportedOptions.contains(StandardSocketOptions.SO_REUSEADDR)) {
-                serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, options.isReuseAddr());
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, options.isReuseAddr());
             } else {
                 logger.warn("The 'SO_REUSEADDR' option is not supported on this platform.");
             }
         }
-        if (options.isReusePort()) {
+        if (options.isReusePort() || acceptStrategy == AcceptStrategy.REUSE_PORT) {
             if (supportedOptions.contains(StandardSocketOptions.SO_REUSEPORT)) {
-                serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, options.isReusePort());
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
             } else {
                 logger.warn("The 'SO_REUSEPORT' option is not supported on this platform.");
             }
         }
-        serverSocketChannel.configureBlocking(false);
-        serverSocketChannel.bind(address, options.getAcceptLength());
-        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+        channel.configureBlocking(false);
     }
 
     private byte[] getResourceAsBytes(@NotNull final String name) throws IOException {
@@ -152,7 +190,9 @@ public final class HttpServerImpl implements HttpServer {
 
     @Override
     public void start() {
-        thread.start();
+        if (acceptStrategy != AcceptStrategy.REUSE_PORT) {
+            thread.start();
+        }
         connectionEventLoops.forEach(ConnectionEventLoop::start);
         logger.info("Starting server on port: {}", getServerPort());
     }
@@ -173,24 +213,66 @@ public final class HttpServerImpl implements HttpServer {
             Iterator<SelectionKey> it = selectedKeys.iterator();
             while (it.hasNext()) {
                 SelectionKey selKey = it.next();
-                Optional<ConnectionEventLoop> leastConnections = leastConnections();
-                if (selKey.isAcceptable() && leastConnections.isPresent()) {
-                    ConnectionEventLoop connectionEventLoop = leastConnections.get();
-                    connectionEventLoop.register(serverSocketChannel.accept());
+                if (selKey.isAcceptable()) {
+                    // drain all the pending connections in a single wakeup
+                    SocketChannel socketChannel;
+                    while ((socketChannel = serverSocketChannel.accept()) != null) {
+                        nextConnectionEventLoop().register(socketChannel);
+                    }
                 }
                 it.remove();
             }
         }
     }
 
-    private Optional<ConnectionEventLoop> leastConnections() {
-        return connectionEventLoops.stream().min(Comparator.comparing(ConnectionEventLoop::numConnections));
+    /**
+     * Selects the event loop for the next accepted connection according to the accept strategy.
+     * Only called on the server thread.
+     */
+    private ConnectionEventLoop nextConnectionEventLoop() {
+        final int size = connectionEventLoops.size();
+        switch (acceptStrategy) {
+            case ROUND_ROBIN -> {
+                final ConnectionEventLoop next = connectionEventLoops.get(nextEventLoop);
+                nextEventLoop = (nextEventLoop + 1) % size;
+                return next;
+            }
+            case POWER_OF_TWO_CHOICES -> {
+                if (size == 1) {
+                    return connectionEventLoops.get(0);
+                }
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int first = random.nextInt(size);
+                final int second = (first + 1 + random.nextInt(size - 1)) % size;
+                final ConnectionEventLoop a = connectionEventLoops.get(first);
+                final ConnectionEventLoop b = connectionEventLoops.get(second);
+                return a.numConnections() <= b.numConnections() ? a : b;
+            }
+            default -> {
+                ConnectionEventLoop leastConnections = connectionEventLoops.get(0);
+                for (int i = 1; i < size; i++) {
+                    final ConnectionEventLoop connectionEventLoop = connectionEventLoops.get(i);
+                    if (connectionEventLoop.numConnections() < leastConnections.numConnections()) {
+                        leastConnections = connectionEventLoop;
+                    }
+                }
+                return leastConnections;
+            }
+        }
     }
 
     @Override
     public void stop() {
         stop.set(true);
 
+        for (ServerSocketChannel eventLoopServerSocketChannel : eventLoopServerSocketChannels) {
+            try {
+                eventLoopServerSocketChannel.close();
+            } catch (IOException ex) {
+                throw new HttpServerException(ex);
+            }
+        }
+
         if (serverSocketChannel.isOpen()) {
             try {
                 serverSocketChannel.close();
@@ -201,6 +283,10 @@ public final class HttpServerImpl implements HttpServer {
             logger.info("Server stopped on port: {}", getServerPort());
         }
 
+        if (handlerExecutor != null) {
+            handlerExecutor.shutdown();
+        }
+
         if (selector.isOpen()) {
             try {
                 for (SelectionKey key : selector.keys()) {
@@ -216,6 +302,11 @@ public final class HttpServerImpl implements HttpServer {
         }
     }
 
+    @Override
+    public HttpServerMetrics getMetrics() {
+        return EventLoopMetrics.snapshot(connectionEventLoops);
+    }
+
     @Override
     public String getServerHost() {
         return options.getHost();
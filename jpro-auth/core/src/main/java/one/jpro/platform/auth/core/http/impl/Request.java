@@ -4,6 +4,7 @@ import java.util.List;
 
 /**
  * This class represents discrete HTTP requests with request line, headers, and body.
+ * Headers produced by the request parser are decoded lazily, the first time they are read.
  *
  * @author Besmir Beqiri
  */
@@ -16,6 +17,9 @@ public record Request(String method, String uri, String version, List<Header> he
      * @return The value of the header, or null if the header is not found.
      */
     public String header(String name) {
+        if (headers instanceof HeaderList headerList) {
+            return headerList.value(name);
+        }
         for (Header header : headers) {
             if (header.name().equalsIgnoreCase(name)) {
                 return header.value();
@@ -32,6 +36,9 @@ public record Request(String method, String uri, String version, List<Header> he
      * @return true if the request has a header with the specified name and value, false otherwise.
      */
     public boolean hasHeader(String name, String value) {
+        if (headers instanceof HeaderList headerList) {
+            return headerList.contains(name, value);
+        }
         for (Header header : headers) {
             if (header.name().equalsIgnoreCase(name) && header.value().equalsIgnoreCase(value)) {
                 return true;
@@ -0,0 +1,156 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of a streamed request body, which is also the subscription handed to its single subscriber.
+ * Body chunks and the completion are pushed by the event loop thread owning the connection, while
+ * demand may be signalled from any thread. Whenever demand becomes available, the given callback
+ * is run so that the connection can resume delivering body chunks on its event loop.
+ *
+ * @author Besmir Beqiri
+ */
+final class RequestBodyPublisher implements Flow.Publisher<ByteBuffer>, Flow.Subscription {
+
+    private final Runnable onDemand;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile Flow.Subscriber<? super ByteBuffer> subscriber;
+    private volatile boolean cancelled;
+    private boolean completed;
+    private Throwable error;
+
+    /**
+     * Constructs a new RequestBodyPublisher.
+     *
+     * @param onDemand the callback to run when new demand is signalled by the subscriber
+     */
+    RequestBodyPublisher(Runnable onDemand) {
+        this.onDemand = onDemand;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The request body can only be subscribed once"));
+            return;
+        }
+        subscriber.onSubscribe(this);
+        final boolean completed;
+        final Throwable error;
+        synchronized (this) {
+            this.subscriber = subscriber;
+            completed = this.completed;
+            error = this.error;
+        }
+        if (error != null) {
+            subscriber.onError(error);
+        } else if (completed) {
+            subscriber.onComplete();
+        } else {
+            onDemand.run(); // deliver the chunks that may have been requested within onSubscribe
+        }
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancel();
+            fail(new IllegalArgumentException("The number of requested chunks must be positive"));
+            return;
+        }
+        long previous = demand.getAndAccumulate(n, (current, added) -> {
+            long sum = current + added;
+            return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+        if (previous == 0) {
+            onDemand.run();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        onDemand.run(); // let the connection discard the rest of the body
+    }
+
+    /**
+     * Checks whether the subscriber has been attached and requested more chunks.
+     *
+     * @return true if a chunk can be delivered
+     */
+    boolean hasDemand() {
+        return subscriber != null && !cancelled && demand.get() > 0;
+    }
+
+    /**
+     * Checks whether the subscriber has cancelled its subscription.
+     *
+     * @return true if the subscription has been cancelled
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Delivers the next body chunk. Must only be called when {@link #hasDemand()} is true.
+     *
+     * @param chunk the body chunk
+     */
+    void next(ByteBuffer chunk) {
+        if (demand.get() != Long.MAX_VALUE) {
+            demand.decrementAndGet();
+        }
+        subscriber.onNext(chunk);
+    }
+
+    /**
+     * Signals that the whole body has been delivered.
+     */
+    void complete() {
+        final Flow.Subscriber<? super ByteBuffer> subscriber;
+        synchronized (this) {
+            if (completed || error != null) {
+                return;
+            }
+            completed = true;
+            subscriber = this.subscriber;
+        }
+        if (subscriber != null && !cancelled) {
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * Signals that the body could not be received completely.
+     *
+     * @param throwable the cause of the failure
+     */
+    void fail(Throwable throwable) {
+        final Flow.Subscriber<? super ByteBuffer> subscriber;
+        synchronized (this) {
+            if (completed || error != null) {
+                return;
+            }
+            error = throwable;
+            subscriber = this.subscriber;
+        }
+        if (subscriber != null) {
+            subscriber.onError(throwable);
+        }
+    }
+}
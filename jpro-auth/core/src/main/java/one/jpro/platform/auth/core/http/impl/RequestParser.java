@@ -1,7 +1,6 @@
 package one.jpro.platform.auth.core.http.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -9,6 +8,13 @@ import java.util.function.Function;
  * This class is responsible for parsing HTTP requests.
  * It parses the request line, headers, and optional request body.
  * It supports both fixed-length and chunked transfer encoding.
+ * <p>
+ * The request line and the headers are taken from the tokenizer as a single request head token.
+ * Header names and values are not decoded while parsing, only their offsets in the request head
+ * are recorded in a {@link HeaderList}, which decodes them on demand.
+ * <p>
+ * In streaming mode, parsing stops once the request head is complete and the body is decoded
+ * incrementally, as bytes arrive, by {@link #nextBodyChunk()} instead of being buffered.
  *
  * @author Besmir Beqiri
  */
@@ -20,9 +26,14 @@ final class RequestParser {
     private static final byte[] CRLF = "\r\n".getBytes();
 
     /**
-     * SPACE: A byte array representing a space character (" ").
+     * CRLF_CRLF: A byte array representing the empty line that terminates the request head ("\r\n\r\n").
      */
-    private static final byte[] SPACE = " ".getBytes();
+    private static final byte[] CRLF_CRLF = "\r\n\r\n".getBytes();
+
+    /**
+     * Frequently used request line tokens, shared instead of being decoded for every request.
+     */
+    private static final String[] COMMON_TOKENS = {"GET", "POST", "HTTP/1.1", "HTTP/1.0"};
 
     /**
      * HEADER_CONTENT_LENGTH: A string constant for the "Content-Length" header.
@@ -48,10 +59,7 @@ final class RequestParser {
      * Enumeration representing the different parsing states of the request.
      */
     enum State {
-        METHOD(p -> p.tokenizer.next(SPACE), RequestParser::parseMethod),
-        URI(p -> p.tokenizer.next(SPACE), RequestParser::parseUri),
-        VERSION(p -> p.tokenizer.next(CRLF), RequestParser::parseVersion),
-        HEADER(p -> p.tokenizer.next(CRLF), RequestParser::parseHeader),
+        HEAD(p -> p.tokenizer.next(CRLF_CRLF), RequestParser::parseHead),
         BODY(p -> p.tokenizer.next(p.contentLength), RequestParser::parseBody),
         CHUNK_SIZE(p -> p.tokenizer.next(CRLF), RequestParser::parseChunkSize),
         CHUNK_DATA(p -> p.tokenizer.next(p.chunkSize), RequestParser::parseChunkData),
@@ -75,14 +83,16 @@ final class RequestParser {
     }
 
     private final ByteTokenizer tokenizer;
-    private State state = State.METHOD;
+    private final boolean streaming;
+    private State state = State.HEAD;
+    private State bodyState = State.DONE;
     private int contentLength;
     private int chunkSize;
     private final ByteMerger chunks = new ByteMerger();
     private String method;
     private String uri;
     private String version;
-    private final List<Header> headers = new ArrayList<>();
+    private HeaderList headers;
     private byte[] body;
 
     /**
@@ -91,7 +101,18 @@ final class RequestParser {
      * @param tokenizer The tokenizer used for tokenizing the request data.
      */
     RequestParser(ByteTokenizer tokenizer) {
+        this(tokenizer, false);
+    }
+
+    /**
+     * Constructor for RequestParser.
+     *
+     * @param tokenizer The tokenizer used for tokenizing the request data.
+     * @param streaming Whether the request body is streamed through {@link #nextBodyChunk()}.
+     */
+    RequestParser(ByteTokenizer tokenizer, boolean streaming) {
         this.tokenizer = tokenizer;
+        this.streaming = streaming;
     }
 
     /**
@@ -111,103 +132,200 @@ final class RequestParser {
     }
 
     /**
-     * Returns the parsed Request object representing the HTTP request.
+     * Decodes the next chunk of the request body available in the tokenizer.
+     * Only used in streaming mode, once the request head has been parsed.
      *
-     * @return The parsed Request object.
+     * @return The next chunk of the body, or <code>null</code> if more bytes are needed or the body is complete.
      */
-    Request request() {
-        return new Request(method, uri, version, headers, body);
+    byte[] nextBodyChunk() {
+        while (true) {
+            switch (bodyState) {
+                case BODY -> {
+                    int length = Math.min(tokenizer.remaining(), contentLength);
+                    if (length == 0) {
+                        return null;
+                    }
+                    contentLength -= length;
+                    if (contentLength == 0) {
+                        bodyState = State.DONE;
+                    }
+                    return tokenizer.next(length);
+                }
+                case CHUNK_SIZE -> {
+                    byte[] token = tokenizer.next(CRLF);
+                    if (token == null) {
+                        return null;
+                    }
+                    chunkSize = chunkSize(token);
+                    bodyState = chunkSize == 0 ? State.CHUNK_TRAILER : State.CHUNK_DATA;
+                }
+                case CHUNK_DATA -> {
+                    int length = Math.min(tokenizer.remaining(), chunkSize);
+                    if (length == 0) {
+                        return null;
+                    }
+                    chunkSize -= length;
+                    if (chunkSize == 0) {
+                        bodyState = State.CHUNK_DATA_END;
+                    }
+                    return tokenizer.next(length);
+                }
+                case CHUNK_DATA_END, CHUNK_TRAILER -> {
+                    if (tokenizer.next(CRLF) == null) {
+                        return null;
+                    }
+                    bodyState = bodyState == State.CHUNK_DATA_END ? State.CHUNK_SIZE : State.DONE;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
     }
 
     /**
-     * Parses the method token and updates the state accordingly.
+     * Checks whether the whole request body has been decoded by {@link #nextBodyChunk()}.
+     *
+     * @return <code>true</code> if the body is complete, <code>false</code> otherwise.
      */
-    private void parseMethod(byte[] token) {
-        method = new String(token);
-        state = State.URI;
+    boolean bodyComplete() {
+        return bodyState == State.DONE;
     }
 
     /**
-     * Parses the uri token and updates the state accordingly.
+     * Returns the parsed Request object representing the HTTP request.
+     *
+     * @return The parsed Request object.
      */
-    private void parseUri(byte[] token) {
-        uri = new String(token);
-        state = State.VERSION;
+    Request request() {
+        return new Request(method, uri, version, headers, body);
     }
 
     /**
-     * Parses the version token and updates the state accordingly.
+     * Parses the request head token, made of the request line and the header lines,
+     * and updates the state accordingly.
      */
-    private void parseVersion(byte[] token) {
-        version = new String(token);
-        state = State.HEADER;
-    }
+    private void parseHead(byte[] head) {
+        int lineEnd = indexOfCrlf(head, 0);
+        int methodEnd = indexOf(head, (byte) ' ', 0, lineEnd);
+        int uriEnd = methodEnd < 0 ? -1 : indexOf(head, (byte) ' ', methodEnd + 1, lineEnd);
+        if (uriEnd < 0) {
+            throw new IllegalStateException("malformed request line");
+        }
+        method = decodeToken(head, 0, methodEnd);
+        uri = new String(head, methodEnd + 1, uriEnd - methodEnd - 1, StandardCharsets.UTF_8);
+        version = decodeToken(head, uriEnd + 1, lineEnd);
 
-    /**
-     * Parses the header token and updates the state accordingly.
-     */
-    private void parseHeader(byte[] token) {
-        if (token.length == 0) { // CR-LF on own line, end of headers
-            if (hasMultipleTransferLengths()) {
-                throw new IllegalStateException("multiple message lengths");
-            }
-            Integer contentLength = findContentLength();
-            if (contentLength == null) {
-                if (hasChunkedEncodingHeader()) {
-                    state = State.CHUNK_SIZE;
-                } else {
-                    state = State.DONE;
-                }
+        headers = new HeaderList(head);
+        int lineStart = lineEnd + CRLF.length;
+        while (lineStart < head.length) {
+            lineEnd = indexOfCrlf(head, lineStart);
+            parseHeaderLine(head, lineStart, lineEnd);
+            lineStart = lineEnd + CRLF.length;
+        }
+
+        if (hasMultipleTransferLengths()) {
+            throw new IllegalStateException("multiple message lengths");
+        }
+        Integer contentLength = findContentLength();
+        if (contentLength == null) {
+            if (hasChunkedEncodingHeader()) {
+                state = State.CHUNK_SIZE;
             } else {
-                this.contentLength = contentLength;
-                state = State.BODY;
+                state = State.DONE;
             }
         } else {
-            headers.add(parseHeaderLine(token));
+            this.contentLength = contentLength;
+            state = contentLength == 0 && streaming ? State.DONE : State.BODY;
+        }
+        if (streaming) { // the body is decoded separately, as it arrives
+            bodyState = state;
+            state = State.DONE;
         }
     }
 
     /**
-     * Parses a header line and returns a Header object.
+     * Parses a header line and records the offsets of its name and value.
      */
-    private static Header parseHeaderLine(byte[] line) {
-        int colonIndex = indexOfColon(line);
-        if (colonIndex <= 0) {
+    private void parseHeaderLine(byte[] head, int start, int end) {
+        int colonIndex = indexOf(head, (byte) ':', start, end);
+        if (colonIndex <= start) {
             throw new IllegalStateException("malformed header line");
         }
         int spaceIndex = colonIndex + 1;
-        while (spaceIndex < line.length && line[spaceIndex] == ' ') { // advance beyond variable-length space prefix
+        while (spaceIndex < end && head[spaceIndex] == ' ') { // advance beyond variable-length space prefix
             spaceIndex++;
         }
-        return new Header(
-                new String(line, 0, colonIndex),
-                new String(line, spaceIndex, line.length - spaceIndex));
+        headers.add(start, colonIndex, spaceIndex, end);
     }
 
     /**
-     * Finds the index of the colon character in a byte array.
+     * Finds the index of the next CRLF in a byte array, or the end of the array if there is none.
      */
-    private static int indexOfColon(byte[] line) {
-        for (int i = 0; i < line.length; i++) {
-            if (line[i] == ':') {
+    private static int indexOfCrlf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length - 1; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    /**
+     * Finds the index of the given byte in a region of a byte array.
+     */
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
                 return i;
             }
         }
         return -1;
     }
 
+    /**
+     * Decodes a request line token, reusing the shared instance of the common ones.
+     */
+    private static String decodeToken(byte[] bytes, int start, int end) {
+        for (String token : COMMON_TOKENS) {
+            if (token.length() == end - start && matches(bytes, start, token)) {
+                return token;
+            }
+        }
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether a region of a byte array holds exactly the characters of the given ASCII token.
+     */
+    private static boolean matches(byte[] bytes, int start, String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (bytes[start + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Parses the chunk size token and updates the state accordingly.
      */
     private void parseChunkSize(byte[] token) {
+        chunkSize = chunkSize(token);
+        state = chunkSize == 0
+                ? State.CHUNK_TRAILER
+                : State.CHUNK_DATA;
+    }
+
+    /**
+     * Decodes the hexadecimal size of a chunk.
+     */
+    private static int chunkSize(byte[] token) {
         try {
-            chunkSize = Integer.parseInt(new String(token), RADIX_HEX);
+            return Integer.parseInt(new String(token), RADIX_HEX);
         } catch (NumberFormatException e) {
             throw new IllegalStateException("invalid chunk size");
         }
-        state = chunkSize == 0
-                ? State.CHUNK_TRAILER
-                : State.CHUNK_DATA;
     }
 
     /**
@@ -245,27 +363,19 @@ final class RequestParser {
      * Checks if there are multiple transfer length headers in the request.
      */
     private boolean hasMultipleTransferLengths() {
-        int count = 0;
-        for (Header header : headers) {
-            if (header.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH)
-                    || header.name().equalsIgnoreCase(HEADER_TRANSFER_ENCODING)) {
-                count++;
-            }
-        }
-        return count > 1;
+        return headers.count(HEADER_CONTENT_LENGTH) + headers.count(HEADER_TRANSFER_ENCODING) > 1;
     }
 
     /**
      * Finds the content length from the request headers.
      */
     private Integer findContentLength() {
-        try {
-            for (Header header : headers) {
-                if (header.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH)) {
-                    return Integer.parseInt(header.value());
-                }
-            }
+        String value = headers.value(HEADER_CONTENT_LENGTH);
+        if (value == null) {
             return null;
+        }
+        try {
+            return Integer.parseInt(value);
         } catch (NumberFormatException e) {
             throw new IllegalStateException("invalid content-length header value");
         }
@@ -275,12 +385,6 @@ final class RequestParser {
      * Checks if the request has a chunked encoding header.
      */
     private boolean hasChunkedEncodingHeader() {
-        for (Header header : headers) {
-            if (header.name().equalsIgnoreCase(HEADER_TRANSFER_ENCODING)
-                    && header.value().equalsIgnoreCase(CHUNKED)) {
-                return true;
-            }
-        }
-        return false;
+        return headers.contains(HEADER_TRANSFER_ENCODING, CHUNKED);
     }
 }
@@ -1,33 +1,117 @@
 package one.jpro.platform.auth.core.http.impl;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * Represents an HTTP response object with the specified status, reason, headers, and body.
- *
- * @param status  the status code of the response
- * @param reason  the reason phrase of the response
- * @param headers the headers of the response
- * @param body    the body of the response
+ * <p>
+ * The status line and the header block are encoded once, when the response is created,
+ * and are written together with the body by a single gathering write, without merging
+ * them into an intermediate array. Responses that are sent over and over again can be
+ * {@link #preSerialized() pre-serialized} into read-only direct buffers instead.
  *
  * @author Besmir Beqiri
  */
-record Response(int status, String reason, List<Header> headers, byte[] body) {
+final class Response {
+
+    /**
+     * The HTTP version 1.0.
+     */
+    static final String HTTP_1_0 = "HTTP/1.0";
+
+    /**
+     * The HTTP version 1.1.
+     */
+    static final String HTTP_1_1 = "HTTP/1.1";
+
+    /**
+     * The "Connection" header name.
+     */
+    static final String HEADER_CONNECTION = "Connection";
+
+    /**
+     * The "Content-Length" header name.
+     */
+    static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    /**
+     * The "Keep-Alive" header value.
+     */
+    static final String KEEP_ALIVE = "Keep-Alive";
+
+    private static final ByteBuffer HTTP_1_0_PREFIX = readOnly(HTTP_1_0 + " ");
+    private static final ByteBuffer HTTP_1_1_PREFIX = readOnly(HTTP_1_1 + " ");
+    private static final ByteBuffer KEEP_ALIVE_HEADER = readOnly(HEADER_CONNECTION + ": " + KEEP_ALIVE + "\r\n");
+
+    private final int status;
+    private final String reason;
+    private final List<Header> headers;
+    private final byte[] body;
+    private final ByteBuffer statusLine;
+    private final ByteBuffer headerBlock;
+    private final ByteBuffer[] serialized;
+
+    /**
+     * Creates a response with the specified status, reason, headers, and body.
+     *
+     * @param status  the status code of the response
+     * @param reason  the reason phrase of the response
+     * @param headers the headers of the response
+     * @param body    the body of the response
+     */
+    Response(int status, String reason, List<Header> headers, byte[] body) {
+        this(status, reason, headers, body, false);
+    }
+
+    private Response(int status, String reason, List<Header> headers, byte[] body, boolean preSerialize) {
+        this.status = status;
+        this.reason = reason;
+        this.headers = headers;
+        this.body = body;
+        statusLine = readOnly(status + " " + reason + "\r\n");
+        headerBlock = encodeHeaderBlock();
+        serialized = preSerialize
+                ? new ByteBuffer[]{serialize(false, false), serialize(true, false), serialize(true, true)}
+                : null;
+    }
+
+    /**
+     * Returns the status code of the response.
+     *
+     * @return the status code
+     */
+    int status() {
+        return status;
+    }
 
     /**
-     * The byte array representing the ": " separator.
+     * Returns the reason phrase of the response.
+     *
+     * @return the reason phrase
      */
-    static final byte[] COLON_SPACE = ": ".getBytes();
+    String reason() {
+        return reason;
+    }
 
     /**
-     * The byte array representing a space.
+     * Returns the headers of the response.
+     *
+     * @return the headers
      */
-    static final byte[] SPACE = " ".getBytes();
+    List<Header> headers() {
+        return headers;
+    }
 
     /**
-     * The byte array representing the carriage return and line feed.
+     * Returns the body of the response.
+     *
+     * @return the body
      */
-    static final byte[] CRLF = "\r\n".getBytes();
+    byte[] body() {
+        return body;
+    }
 
     /**
      * Checks if the response has a header with the specified name.
@@ -45,39 +129,87 @@ record Response(int status, String reason, List<Header> headers, byte[] body) {
     }
 
     /**
-     * Serializes the response to a byte array using the specified version and headers.
+     * Returns a copy of this response that is serialized once, for every HTTP version and
+     * connection persistence combination, into read-only direct buffers. Writing such a
+     * response only hands a duplicate of the matching buffer to the socket channel.
      *
-     * @param version the HTTP version to use in the serialization
-     * @param headers the additional headers to include in the serialization
-     * @return the serialized response as a byte array
-     */
-    byte[] serialize(String version, List<Header> headers) {
-        ByteMerger merger = new ByteMerger();
-        merger.add(version.getBytes());
-        merger.add(SPACE);
-        merger.add(Integer.toString(status).getBytes());
-        merger.add(SPACE);
-        merger.add(reason.getBytes());
-        merger.add(CRLF);
-        appendHeaders(merger, headers);
-        appendHeaders(merger, this.headers);
-        merger.add(CRLF);
-        merger.add(body);
-        return merger.merge();
+     * @return the pre-serialized response
+     */
+    Response preSerialized() {
+        return serialized != null ? this : new Response(status, reason, headers, body, true);
     }
 
     /**
-     * Appends the headers to the specified ByteMerger.
+     * Returns the buffers holding the serialized response, in the order they must be written
+     * with a gathering write. The returned buffers are independent of the ones returned by
+     * previous calls, so the same response can be written to many connections concurrently.
      *
-     * @param merger  the ByteMerger to append the headers to
-     * @param headers the headers to append
+     * @param httpOneDotZero whether the response is sent with HTTP version 1.0
+     * @param keepAlive      whether an HTTP 1.0 connection is kept alive
+     * @return the buffers to write
+     */
+    ByteBuffer[] buffers(boolean httpOneDotZero, boolean keepAlive) {
+        if (serialized != null) {
+            return new ByteBuffer[]{serialized[variant(httpOneDotZero, keepAlive)].duplicate()};
+        }
+        return encode(httpOneDotZero, keepAlive);
+    }
+
+    @Override
+    public String toString() {
+        return "Response[status=" + status + ", reason=" + reason + ", headers=" + headers + "]";
+    }
+
+    /**
+     * Returns fresh views of the encoded status line and header block, followed by the body.
+     */
+    private ByteBuffer[] encode(boolean httpOneDotZero, boolean keepAlive) {
+        ByteBuffer versionPrefix = httpOneDotZero ? HTTP_1_0_PREFIX : HTTP_1_1_PREFIX;
+        if (httpOneDotZero && keepAlive) {
+            return new ByteBuffer[]{versionPrefix.duplicate(), statusLine.duplicate(), KEEP_ALIVE_HEADER.duplicate(),
+                    headerBlock.duplicate(), ByteBuffer.wrap(body)};
+        }
+        return new ByteBuffer[]{versionPrefix.duplicate(), statusLine.duplicate(),
+                headerBlock.duplicate(), ByteBuffer.wrap(body)};
+    }
+
+    /**
+     * Serializes the whole response into a single read-only direct buffer.
      */
-    private static void appendHeaders(ByteMerger merger, List<Header> headers) {
+    private ByteBuffer serialize(boolean httpOneDotZero, boolean keepAlive) {
+        ByteBuffer[] buffers = encode(httpOneDotZero, keepAlive);
+        int size = 0;
+        for (ByteBuffer buffer : buffers) {
+            size += buffer.remaining();
+        }
+        ByteBuffer result = ByteBuffer.allocateDirect(size);
+        for (ByteBuffer buffer : buffers) {
+            result.put(buffer);
+        }
+        return result.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Encodes the headers of the response, followed by the content length when it is not
+     * explicitly set and the empty line that terminates the header section.
+     */
+    private ByteBuffer encodeHeaderBlock() {
+        StringBuilder sb = new StringBuilder();
         for (Header header : headers) {
-            merger.add(header.name().getBytes());
-            merger.add(COLON_SPACE);
-            merger.add(header.value().getBytes());
-            merger.add(CRLF);
+            sb.append(header.name()).append(": ").append(header.value()).append("\r\n");
         }
+        if (!hasHeader(HEADER_CONTENT_LENGTH)) {
+            sb.append(HEADER_CONTENT_LENGTH).append(": ").append(body.length).append("\r\n");
+        }
+        sb.append("\r\n");
+        return readOnly(sb.toString());
+    }
+
+    private static int variant(boolean httpOneDotZero, boolean keepAlive) {
+        return httpOneDotZero ? (keepAlive ? 2 : 1) : 0;
+    }
+
+    private static ByteBuffer readOnly(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
     }
 }
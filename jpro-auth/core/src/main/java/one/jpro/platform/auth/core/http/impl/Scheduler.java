@@ -1,36 +1,59 @@
 package one.jpro.platform.auth.core.http.impl;
 
 import java.time.Duration;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Scheduler is a simple data structure for efficiently scheduling deferred tasks and draining
  * expired tasks. A {@link Cancellable} handle is returned to clients when a new task is scheduled.
  * That handle can be used to cancel a task.
+ * <p>
+ * Tasks are kept in a hashed timing wheel: a fixed ring of slots, each covering one tick, where
+ * every slot holds an intrusive doubly-linked list of the tasks due in that tick or in a later
+ * revolution of the wheel. Scheduling and cancelling a task are O(1) and do not allocate anything
+ * besides the task handle itself. Tasks expire at the first tick boundary after their deadline,
+ * so they are never run early and run at most one tick late.
  *
  * @author Besmir Beqiri
  */
 final class Scheduler {
 
+    /**
+     * The number of slots in the wheel. Must be a power of two.
+     */
+    static final int WHEEL_SIZE = 512;
+
     private final Clock clock;
-    private final SortedSet<Task> tasks;
-    private long counter;
+    private final long tickNanos;
+    private final long startTime;
+    private final Task[] wheel = new Task[WHEEL_SIZE];
+    private long currentTick;
+    private int size;
 
     /**
      * Constructs a new Scheduler with the default system clock.
+     *
+     * @param tick the duration of a single tick of the wheel
      */
-    Scheduler() {
-        this(new SystemClock());
+    Scheduler(Duration tick) {
+        this(new SystemClock(), tick);
     }
 
     /**
      * Constructs a new Scheduler with the specified clock.
      *
      * @param clock the clock to use for time-related operations
+     * @param tick  the duration of a single tick of the wheel
      */
-    Scheduler(Clock clock) {
+    Scheduler(Clock clock, Duration tick) {
+        if (tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
         this.clock = clock;
-        this.tasks = new TreeSet<>(Comparator.comparing((Task t) -> t.time).thenComparing(t -> t.id));
+        this.tickNanos = tick.toNanos();
+        this.startTime = clock.nanoTime();
     }
 
     /**
@@ -39,7 +62,7 @@ final class Scheduler {
      * @return the number of tasks
      */
     int size() {
-        return tasks.size();
+        return size;
     }
 
     /**
@@ -50,8 +73,10 @@ final class Scheduler {
      * @return a Cancellable object that can be used to cancel the scheduled task
      */
     Cancellable schedule(Runnable task, Duration duration) {
-        final Task t = new Task(task, clock.nanoTime() + duration.toNanos(), counter++);
-        tasks.add(t);
+        long elapsed = clock.nanoTime() + duration.toNanos() - startTime;
+        long tick = Math.max(Math.floorDiv(elapsed + tickNanos - 1, tickNanos), currentTick + 1);
+        final Task t = new Task(task, tick);
+        link(t);
         return t;
     }
 
@@ -62,15 +87,62 @@ final class Scheduler {
      * @return a list of expired tasks
      */
     List<Runnable> expired() {
-        long time = clock.nanoTime();
-        List<Runnable> result = new ArrayList<>();
-        Iterator<Task> it = tasks.iterator();
-        Task item;
-        while (it.hasNext() && (item = it.next()).time <= time) {
-            result.add(item.task);
-            it.remove();
+        long targetTick = Math.floorDiv(clock.nanoTime() - startTime, tickNanos);
+        if (targetTick <= currentTick) {
+            return Collections.emptyList();
+        }
+        List<Runnable> result = null;
+        // after a full revolution every slot has been visited, so the remaining ticks can be skipped
+        long lastTick = Math.min(targetTick, currentTick + WHEEL_SIZE);
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Task item = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+            while (item != null) {
+                Task next = item.next;
+                if (item.tick <= targetTick) {
+                    unlink(item);
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(item.task);
+                }
+                item = next;
+            }
+        }
+        currentTick = targetTick;
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Adds the task to the head of the list of its slot.
+     */
+    private void link(Task task) {
+        int slot = (int) (task.tick & (WHEEL_SIZE - 1));
+        Task head = wheel[slot];
+        task.slot = slot;
+        task.next = head;
+        if (head != null) {
+            head.prev = task;
+        }
+        wheel[slot] = task;
+        size++;
+    }
+
+    /**
+     * Removes the task from the list of its slot.
+     */
+    private void unlink(Task task) {
+        if (task.prev != null) {
+            task.prev.next = task.next;
+        } else {
+            wheel[task.slot] = task.next;
+        }
+        if (task.next != null) {
+            task.next.prev = task.prev;
         }
-        return result;
+        task.prev = null;
+        task.next = null;
+        task.slot = -1;
+        size--;
     }
 
     /**
@@ -89,28 +161,31 @@ final class Scheduler {
      */
     class Task implements Cancellable {
         final Runnable task;
-        final long time;
-        final long id;
+        final long tick;
+        int slot = -1;
+        Task prev;
+        Task next;
 
         /**
-         * Constructs a new Task with the specified task, scheduled time, and unique identifier.
+         * Constructs a new Task with the specified task and the tick at which it expires.
          *
          * @param task the task to be executed
-         * @param time the scheduled time of the task
-         * @param id   the unique identifier of the task
+         * @param tick the tick of the wheel at which the task expires
          */
-        Task(Runnable task, long time, long id) {
+        Task(Runnable task, long tick) {
             this.task = task;
-            this.time = time;
-            this.id = id;
+            this.tick = tick;
         }
 
         /**
          * Cancels the task by removing it from the scheduler.
+         * Cancelling a task that already expired or was cancelled has no effect.
          */
         @Override
         public void cancel() {
-            tasks.remove(this);
+            if (slot >= 0) {
+                unlink(this);
+            }
         }
     }
 }
@@ -0,0 +1,35 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * HTTP request handler that receives the request body as a stream instead of a buffered byte array,
+ * the streaming counterpart of {@link Handler}.
+ * <p>
+ * The body publisher accepts a single subscriber. Body chunks are only read from the connection as
+ * fast as the subscriber requests them: once the subscriber stops requesting, the event loop stops
+ * reading from the socket after one read buffer worth of bytes and resumes when demand is signalled
+ * again. All subscriber signals are delivered on the event loop thread, so {@code onNext} must not block.
+ * The maximum request size then bounds the request head and the body bytes pending delivery,
+ * rather than the whole request.
+ *
+ * @author Besmir Beqiri
+ */
+@FunctionalInterface
+interface StreamingHandler {
+
+    /**
+     * HTTP request handle with a streamed body.
+     * This method is called on the event loop thread. It must be non-blocking!
+     * The request passed has no buffered body, it is published through the given publisher,
+     * which completes immediately if the request has no body.
+     * The callee must invoke the callback once and only once. If the response is sent
+     * before the whole body has been received, the connection is closed after the response.
+     */
+    void handle(@NotNull Request request, @NotNull Flow.Publisher<ByteBuffer> body,
+                @NotNull Consumer<Response> callback);
+}
@@ -0,0 +1,82 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ByteTokenizer tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class ByteTokenizerTests {
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF_CRLF = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 7, 8, 9, 64})
+    public void testDelimiterSplitAcrossPackets(int packetSize) {
+        final byte[] bytes = "GET / HTTP/1.1\r\nHost: localhost\r\nX-Long-Header: 0123456789abcdef\r\n\r\nrest"
+                .getBytes(StandardCharsets.US_ASCII);
+        final ByteTokenizer tokenizer = new ByteTokenizer(new BufferPool(16, 2, true));
+        byte[] head = null;
+        for (int offset = 0; offset < bytes.length && head == null; offset += packetSize) {
+            tokenizer.add(ByteBuffer.wrap(bytes, offset, Math.min(packetSize, bytes.length - offset)));
+            head = tokenizer.next(CRLF_CRLF);
+            tokenizer.compact();
+        }
+        assertThat(new String(head, StandardCharsets.US_ASCII))
+                .isEqualTo("GET / HTTP/1.1\r\nHost: localhost\r\nX-Long-Header: 0123456789abcdef");
+    }
+
+    @Test
+    public void testIncrementalSearchFindsTheSameTokensAsAFullScan() {
+        final Random random = new Random(42);
+        final byte[] alphabet = {'a', '\r', '\n', ' '};
+        for (int round = 0; round < 200; round++) {
+            final byte[] bytes = new byte[random.nextInt(200)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            final byte[] delimiter = random.nextBoolean() ? CRLF : CRLF_CRLF;
+
+            final ByteTokenizer tokenizer = new ByteTokenizer();
+            final List<String> tokens = new ArrayList<>();
+            int offset = 0;
+            while (offset < bytes.length) {
+                final int length = Math.min(1 + random.nextInt(20), bytes.length - offset);
+                tokenizer.add(ByteBuffer.wrap(bytes, offset, length));
+                offset += length;
+                byte[] token;
+                while ((token = tokenizer.next(delimiter)) != null) {
+                    tokens.add(new String(token, StandardCharsets.US_ASCII));
+                }
+                if (random.nextBoolean()) {
+                    tokenizer.compact();
+                }
+            }
+            assertThat(tokens).isEqualTo(split(new String(bytes, StandardCharsets.US_ASCII),
+                    new String(delimiter, StandardCharsets.US_ASCII)));
+        }
+    }
+
+    private static List<String> split(String data, String delimiter) {
+        final List<String> tokens = new ArrayList<>();
+        int from = 0;
+        int index;
+        while ((index = data.indexOf(delimiter, from)) >= 0) {
+            tokens.add(data.substring(from, index));
+            from = index + delimiter.length();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,72 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.HttpOptions;
+import one.jpro.platform.auth.core.http.HttpServerMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EventLoopMetrics tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class EventLoopMetricsTests {
+
+    private static final String PIPELINED_REQUESTS = "GET /first HTTP/1.1\r\n\r\n"
+            + "GET /second HTTP/1.1\r\n\r\nGET /last HTTP/1.0\r\n\r\n";
+
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private ServerSocketChannel serverSocketChannel;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        stop.set(true);
+        if (serverSocketChannel != null) {
+            serverSocketChannel.close();
+        }
+    }
+
+    @Test
+    public void testMetricsOfPipelinedRequests() throws Exception {
+        final Handler handler = (request, callback) -> callback.accept(new Response(200, "OK", List.of(),
+                request.uri().getBytes(StandardCharsets.UTF_8)));
+        final ConnectionEventLoop eventLoop = new ConnectionEventLoop(new HttpOptions(), handler, null,
+                new AtomicLong(), stop);
+        eventLoop.start();
+        serverSocketChannel = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+
+        final int responseBytes;
+        try (Socket client = new Socket("127.0.0.1", serverSocketChannel.socket().getLocalPort())) {
+            eventLoop.register(serverSocketChannel.accept());
+            client.getOutputStream().write(PIPELINED_REQUESTS.getBytes(StandardCharsets.UTF_8));
+            client.setSoTimeout(5_000);
+            final String responses = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(responses).endsWith("/last");
+            responseBytes = responses.length();
+        }
+
+        final HttpServerMetrics metrics = EventLoopMetrics.snapshot(List.of(eventLoop));
+        assertThat(metrics.getAcceptedConnections()).isEqualTo(1);
+        assertThat(metrics.getClosedConnections()).isEqualTo(1);
+        assertThat(metrics.getTimedOutConnections()).isZero();
+        assertThat(metrics.getActiveConnections()).containsExactly(0);
+        assertThat(metrics.getRequests()).isEqualTo(3);
+        assertThat(metrics.getPipelinedRequests()).isGreaterThanOrEqualTo(1);
+        assertThat(metrics.getBytesRead()).isEqualTo(PIPELINED_REQUESTS.length());
+        assertThat(metrics.getBytesWritten()).isEqualTo(responseBytes);
+        assertThat(metrics.getParseLatency().getCount()).isEqualTo(3);
+        assertThat(metrics.getHandleLatency().getCount()).isEqualTo(3);
+        assertThat(metrics.getWriteLatency().getCount()).isEqualTo(3);
+    }
+}
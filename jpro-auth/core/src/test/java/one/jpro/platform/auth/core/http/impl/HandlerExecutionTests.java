@@ -0,0 +1,87 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.ExecutionMode;
+import one.jpro.platform.auth.core.http.HttpOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Handler execution mode tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class HandlerExecutionTests {
+
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private ServerSocketChannel serverSocketChannel;
+    private ExecutorService handlerExecutor;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        stop.set(true);
+        if (handlerExecutor != null) {
+            handlerExecutor.shutdownNow();
+        }
+        if (serverSocketChannel != null) {
+            serverSocketChannel.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExecutionMode.class, names = {"VIRTUAL_THREADS", "WORKER_POOL"})
+    public void testBlockingHandlerDoesNotStallTheEventLoop(ExecutionMode executionMode) throws Exception {
+        final HttpOptions options = new HttpOptions().setExecutionMode(executionMode).setWorkerPoolSize(2);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final Handler handler = (request, callback) -> {
+            if (request.uri().equals("/blocking")) {
+                try {
+                    unblock.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            callback.accept(new Response(200, "OK", List.of(), request.uri().getBytes(StandardCharsets.UTF_8)));
+        };
+        handlerExecutor = HandlerExecutors.create(options);
+        final ConnectionEventLoop eventLoop = new ConnectionEventLoop(options, handler, handlerExecutor,
+                new AtomicLong(), stop);
+        eventLoop.start();
+        serverSocketChannel = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        final int port = serverSocketChannel.socket().getLocalPort();
+
+        try (Socket blocking = new Socket("127.0.0.1", port); Socket other = new Socket("127.0.0.1", port)) {
+            eventLoop.register(serverSocketChannel.accept());
+            eventLoop.register(serverSocketChannel.accept());
+            blocking.getOutputStream().write("GET /blocking HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            other.getOutputStream().write("GET /other HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+
+            // the second connection is served by the same event loop while the first handler blocks
+            other.setSoTimeout(5_000);
+            assertThat(readFully(other.getInputStream())).startsWith("HTTP/1.0 200 OK").endsWith("/other");
+
+            unblock.countDown();
+            blocking.setSoTimeout(5_000);
+            assertThat(readFully(blocking.getInputStream())).startsWith("HTTP/1.0 200 OK").endsWith("/blocking");
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Histogram tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class HistogramTests {
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE})
+    public void testValueIsCountedInABucketWithBoundedRelativeError(long value) {
+        final int bucket = Histogram.bucket(value);
+        assertThat(bucket).isBetween(0, Histogram.BUCKETS - 1);
+        if (bucket < Histogram.BUCKETS - 1) {
+            final long highest = Histogram.highestValue(bucket);
+            assertThat(highest).isGreaterThanOrEqualTo(value);
+            assertThat(highest - value).isLessThanOrEqualTo(value / Histogram.SUB_BUCKETS);
+            assertThat(Histogram.bucket(highest)).isEqualTo(bucket);
+            assertThat(Histogram.bucket(highest + 1)).isEqualTo(bucket + 1);
+        }
+    }
+
+    @Test
+    public void testSnapshotMergesHistograms() {
+        final Histogram first = new Histogram();
+        final Histogram second = new Histogram();
+        for (int i = 1; i <= 90; i++) {
+            first.record(Duration.ofMillis(1).toNanos());
+        }
+        for (int i = 1; i <= 10; i++) {
+            second.record(Duration.ofMillis(100).toNanos());
+        }
+
+        final Histogram.Snapshot snapshot = new Histogram.Snapshot();
+        first.addTo(snapshot);
+        second.addTo(snapshot);
+        assertThat(snapshot.getCount()).isEqualTo(100);
+        assertThat(snapshot.getMax()).isEqualTo(Duration.ofMillis(100));
+        assertThat(snapshot.getMean()).isEqualTo(Duration.ofNanos(10_900_000));
+        assertThat(snapshot.getValueAtPercentile(50).toNanos()).isBetween(1_000_000L, 1_125_000L);
+        assertThat(snapshot.getValueAtPercentile(99)).isEqualTo(Duration.ofMillis(100));
+        assertThat(new Histogram.Snapshot().getValueAtPercentile(99)).isEqualTo(Duration.ZERO);
+    }
+}
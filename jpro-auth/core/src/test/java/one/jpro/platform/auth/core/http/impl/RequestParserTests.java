@@ -0,0 +1,112 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RequestParser tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class RequestParserTests {
+
+    private static final String PIPELINED_REQUESTS = """
+            POST /auth?code=1 HTTP/1.1\r
+            Host: localhost\r
+            Content-Length:   5\r
+            X-Custom: Value\r
+            \r
+            helloGET / HTTP/1.0\r
+            Connection: Keep-Alive\r
+            \r
+            PUT /chunked HTTP/1.1\r
+            Transfer-Encoding: chunked\r
+            \r
+            3\r
+            abc\r
+            2\r
+            de\r
+            0\r
+            \r
+            """;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "pooled", "pooled-direct"})
+    public void testParsePipelinedRequestsDeliveredInSmallPackets(String mode) {
+        final ByteTokenizer tokenizer = switch (mode) {
+            case "pooled" -> new ByteTokenizer(new BufferPool(16, 4, false));
+            case "pooled-direct" -> new ByteTokenizer(new BufferPool(16, 4, true));
+            default -> new ByteTokenizer();
+        };
+        final List<Request> requests = parseInPackets(tokenizer, PIPELINED_REQUESTS, 3);
+        assertThat(requests).hasSize(3);
+
+        final Request post = requests.get(0);
+        assertThat(post.method()).isEqualTo("POST");
+        assertThat(post.uri()).isEqualTo("/auth?code=1");
+        assertThat(post.version()).isEqualTo("HTTP/1.1");
+        assertThat(post.header("content-length")).isEqualTo("5");
+        assertThat(post.hasHeader("x-custom", "VALUE")).isTrue();
+        assertThat(post.headers()).containsExactly(new Header("Host", "localhost"),
+                new Header("Content-Length", "5"), new Header("X-Custom", "Value"));
+        assertThat(post.body()).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+
+        final Request get = requests.get(1);
+        assertThat(get.version()).isEqualTo("HTTP/1.0");
+        assertThat(get.hasHeader("Connection", "Keep-Alive")).isTrue();
+        assertThat(get.body()).isNull();
+
+        final Request put = requests.get(2);
+        assertThat(put.uri()).isEqualTo("/chunked");
+        assertThat(put.body()).isEqualTo("abcde".getBytes(StandardCharsets.UTF_8));
+        assertThat(tokenizer.remaining()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Host: localhost", "Content-Type: text/html"})
+    public void testHeaderLookupDoesNotRequireMaterializedHeaders(String headerLine) {
+        final ByteTokenizer tokenizer = new ByteTokenizer();
+        final List<Request> requests = parseInPackets(tokenizer,
+                "GET / HTTP/1.1\r\n" + headerLine + "\r\n\r\n", Integer.MAX_VALUE);
+        assertThat(requests).hasSize(1);
+
+        final int colon = headerLine.indexOf(':');
+        final String name = headerLine.substring(0, colon);
+        final String value = headerLine.substring(colon + 2);
+        assertThat(requests.get(0).header(name.toUpperCase())).isEqualTo(value);
+        assertThat(requests.get(0).header("Missing")).isNull();
+        assertThat(requests.get(0).headers()).containsExactly(new Header(name, value));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testPooledBufferIsReleasedOnceAllBytesAreConsumed(boolean direct) {
+        final BufferPool pool = new BufferPool(64, 4, direct);
+        final ByteTokenizer tokenizer = new ByteTokenizer(pool);
+        assertThat(parseInPackets(tokenizer, "GET / HTTP/1.1\r\n\r\n", Integer.MAX_VALUE)).hasSize(1);
+        assertThat(tokenizer.capacity()).isZero();
+        assertThat(pool.size()).isEqualTo(1);
+    }
+
+    private static List<Request> parseInPackets(ByteTokenizer tokenizer, String data, int packetSize) {
+        final byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        final List<Request> requests = new ArrayList<>();
+        RequestParser parser = new RequestParser(tokenizer);
+        for (int offset = 0; offset < bytes.length; offset += packetSize) {
+            tokenizer.add(ByteBuffer.wrap(bytes, offset, Math.min(packetSize, bytes.length - offset)));
+            while (parser.parse()) {
+                requests.add(parser.request());
+                tokenizer.compact();
+                parser = new RequestParser(tokenizer);
+            }
+        }
+        return requests;
+    }
+}
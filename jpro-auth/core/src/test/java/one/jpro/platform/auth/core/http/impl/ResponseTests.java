@@ -0,0 +1,63 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Response tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class ResponseTests {
+
+    private final Response response = new Response(200, "OK",
+            List.of(new Header("Content-Type", "text/html")), "<html/>".getBytes(StandardCharsets.UTF_8));
+
+    static Stream<Arguments> serializedResponses() {
+        return Stream.of(
+                Arguments.of(false, false, "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: 7\r\n\r\n<html/>"),
+                Arguments.of(true, false, "HTTP/1.0 200 OK\r\nContent-Type: text/html\r\nContent-Length: 7\r\n\r\n<html/>"),
+                Arguments.of(true, true, "HTTP/1.0 200 OK\r\nConnection: Keep-Alive\r\n"
+                        + "Content-Type: text/html\r\nContent-Length: 7\r\n\r\n<html/>"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("serializedResponses")
+    public void testBuffersHoldTheSerializedResponse(boolean httpOneDotZero, boolean keepAlive, String expected) {
+        assertThat(toString(response.buffers(httpOneDotZero, keepAlive))).isEqualTo(expected);
+        assertThat(toString(response.preSerialized().buffers(httpOneDotZero, keepAlive))).isEqualTo(expected);
+    }
+
+    @Test
+    public void testPreSerializedResponseIsSharedAcrossWrites() {
+        final Response preSerialized = response.preSerialized();
+        assertThat(preSerialized.preSerialized()).isSameAs(preSerialized);
+
+        final ByteBuffer[] first = preSerialized.buffers(false, false);
+        assertThat(first).hasSize(1);
+        assertThat(first[0].isDirect()).isTrue();
+        assertThat(first[0].isReadOnly()).isTrue();
+
+        first[0].position(first[0].limit()); // simulate a complete write
+        assertThat(toString(preSerialized.buffers(false, false))).startsWith("HTTP/1.1 200 OK");
+    }
+
+    private static String toString(ByteBuffer[] buffers) {
+        final StringBuilder sb = new StringBuilder();
+        for (ByteBuffer buffer : buffers) {
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            sb.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Scheduler tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class SchedulerTests {
+
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    private long time;
+    private Scheduler scheduler;
+    private List<String> executed;
+
+    @BeforeEach
+    public void setup() {
+        time = 1_000_000L;
+        scheduler = new Scheduler(() -> time, TICK);
+        executed = new ArrayList<>();
+    }
+
+    @Test
+    public void testTaskExpiresOnceItsDeadlineHasPassed() {
+        scheduler.schedule(() -> executed.add("task"), Duration.ofMillis(250));
+        assertThat(scheduler.size()).isEqualTo(1);
+
+        advance(Duration.ofMillis(200));
+        runExpired();
+        assertThat(executed).isEmpty();
+
+        advance(Duration.ofMillis(100));
+        runExpired();
+        assertThat(executed).containsExactly("task");
+        assertThat(scheduler.size()).isZero();
+
+        advance(Duration.ofSeconds(1));
+        runExpired();
+        assertThat(executed).containsExactly("task");
+    }
+
+    @Test
+    public void testCancelledTaskNeverExpires() {
+        final Cancellable first = scheduler.schedule(() -> executed.add("first"), Duration.ofMillis(100));
+        scheduler.schedule(() -> executed.add("second"), Duration.ofMillis(100));
+        final Cancellable third = scheduler.schedule(() -> executed.add("third"), Duration.ofMillis(100));
+        first.cancel();
+        third.cancel();
+        third.cancel(); // cancelling twice has no effect
+        assertThat(scheduler.size()).isEqualTo(1);
+
+        advance(Duration.ofMillis(100));
+        runExpired();
+        assertThat(executed).containsExactly("second");
+        assertThat(scheduler.size()).isZero();
+    }
+
+    @Test
+    public void testTasksBeyondOneRevolutionOfTheWheel() {
+        final Duration revolution = TICK.multipliedBy(Scheduler.WHEEL_SIZE);
+        scheduler.schedule(() -> executed.add("late"), revolution.multipliedBy(2).plus(TICK));
+        scheduler.schedule(() -> executed.add("early"), TICK);
+
+        for (int i = 0; i < 2 * Scheduler.WHEEL_SIZE; i++) {
+            advance(TICK);
+            runExpired();
+        }
+        assertThat(executed).containsExactly("early");
+
+        advance(TICK);
+        runExpired();
+        assertThat(executed).containsExactly("early", "late");
+    }
+
+    @Test
+    public void testStalledEventLoopCatchesUpWithAllExpiredTasks() {
+        for (int i = 1; i <= 1_000; i++) {
+            scheduler.schedule(() -> executed.add("task"), TICK.multipliedBy(i));
+        }
+        final Cancellable pending = scheduler.schedule(() -> executed.add("pending"), TICK.multipliedBy(5_000));
+
+        advance(TICK.multipliedBy(4_000));
+        runExpired();
+        assertThat(executed).hasSize(1_000);
+        assertThat(scheduler.size()).isEqualTo(1);
+
+        pending.cancel();
+        assertThat(scheduler.size()).isZero();
+    }
+
+    private void advance(Duration duration) {
+        time += duration.toNanos();
+    }
+
+    private void runExpired() {
+        scheduler.expired().forEach(Runnable::run);
+    }
+}
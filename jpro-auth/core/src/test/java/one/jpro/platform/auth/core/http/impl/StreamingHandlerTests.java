@@ -0,0 +1,160 @@
+package one.jpro.platform.auth.core.http.impl;
+
+import one.jpro.platform.auth.core.http.HttpOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streaming request body tests.
+ *
+ * @author Besmir Beqiri
+ */
+public class StreamingHandlerTests {
+
+    private static final int BODY_SIZE = 4 * 1_024 * 1_024;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMillis(500);
+
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final ScheduledExecutorService consumer = Executors.newSingleThreadScheduledExecutor();
+    private final CompletableFuture<Long> received = new CompletableFuture<>();
+    private volatile long requestDelayMicros = 100;
+    private ServerSocketChannel serverSocketChannel;
+    private ConnectionEventLoop eventLoop;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        // a maximum request size below the body size proves the body is never buffered as a whole
+        final HttpOptions options = new HttpOptions()
+                .setReadBufferSize(16 * 1_024)
+                .setMaxRequestSize(64 * 1_024)
+                .setRequestTimeout(REQUEST_TIMEOUT);
+        final StreamingHandler handler = (request, body, callback) -> body.subscribe(new SlowSubscriber(callback));
+        eventLoop = new ConnectionEventLoop(options, handler, null, new AtomicLong(), stop);
+        eventLoop.start();
+        serverSocketChannel = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        stop.set(true);
+        consumer.shutdownNow();
+        serverSocketChannel.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testLargeBodyIsStreamedWithBackPressure(boolean chunked) throws Exception {
+        try (Socket client = new Socket("127.0.0.1", serverSocketChannel.socket().getLocalPort())) {
+            eventLoop.register(serverSocketChannel.accept());
+
+            final OutputStream out = client.getOutputStream();
+            out.write(("POST /upload HTTP/1.1\r\n" + (chunked
+                    ? "Transfer-Encoding: chunked\r\n\r\n"
+                    : "Content-Length: " + BODY_SIZE + "\r\n\r\n")).getBytes(StandardCharsets.UTF_8));
+            final byte[] part = new byte[64 * 1_024];
+            for (int sent = 0; sent < BODY_SIZE; sent += part.length) {
+                if (chunked) {
+                    out.write((Integer.toHexString(part.length) + "\r\n").getBytes(StandardCharsets.UTF_8));
+                }
+                out.write(part);
+                if (chunked) {
+                    out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            if (chunked) {
+                out.write("0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+
+            assertThat(received.get(30, TimeUnit.SECONDS)).isEqualTo((long) BODY_SIZE);
+            final InputStream in = client.getInputStream();
+            final byte[] status = new byte[15];
+            assertThat(in.readNBytes(status, 0, status.length)).isEqualTo(status.length);
+            assertThat(new String(status, StandardCharsets.UTF_8)).isEqualTo("HTTP/1.1 200 OK");
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberOutlivesRequestTimeout() throws Exception {
+        // the whole body takes several request timeouts to be consumed
+        final int bodySize = 128 * 1_024;
+        requestDelayMicros = REQUEST_TIMEOUT.toNanos() / 1_000 / 2;
+        try (Socket client = new Socket("127.0.0.1", serverSocketChannel.socket().getLocalPort())) {
+            eventLoop.register(serverSocketChannel.accept());
+
+            final OutputStream out = client.getOutputStream();
+            out.write(("POST /upload HTTP/1.1\r\nContent-Length: " + bodySize + "\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.write(new byte[bodySize]);
+            out.flush();
+
+            final long start = System.nanoTime();
+            assertThat(received.get(30, TimeUnit.SECONDS)).isEqualTo((long) bodySize);
+            assertThat(System.nanoTime() - start).isGreaterThan(2 * REQUEST_TIMEOUT.toNanos());
+            final InputStream in = client.getInputStream();
+            final byte[] status = new byte[15];
+            assertThat(in.readNBytes(status, 0, status.length)).isEqualTo(status.length);
+            assertThat(new String(status, StandardCharsets.UTF_8)).isEqualTo("HTTP/1.1 200 OK");
+        }
+    }
+
+    /**
+     * Subscriber that requests one chunk at a time and processes it on another thread.
+     */
+    private class SlowSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final java.util.function.Consumer<Response> callback;
+        private Flow.Subscription subscription;
+        private long count;
+
+        SlowSubscriber(java.util.function.Consumer<Response> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            count += item.remaining();
+            consumer.schedule(() -> subscription.request(1), requestDelayMicros, TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            received.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            received.complete(count);
+            callback.accept(new Response(200, "OK", List.of(), new byte[0]));
+        }
+    }
+}
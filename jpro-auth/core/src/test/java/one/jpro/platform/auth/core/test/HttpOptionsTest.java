@@ -27,6 +27,12 @@ public class HttpOptionsTest {
         assertEquals(httpOptions.getAcceptLength(), HttpOptions.DEFAULT_ACCEPT_LENGTH);
         assertEquals(httpOptions.getMaxRequestSize(), HttpOptions.DEFAULT_MAX_REQUEST_SIZE);
         assertEquals(httpOptions.getConcurrency(), HttpOptions.DEFAULT_CONCURRENCY);
+        assertEquals(httpOptions.isBufferPooling(), HttpOptions.DEFAULT_BUFFER_POOLING);
+        assertEquals(httpOptions.isDirectBuffers(), HttpOptions.DEFAULT_DIRECT_BUFFERS);
+        assertEquals(httpOptions.getAcceptStrategy(), HttpOptions.DEFAULT_ACCEPT_STRATEGY);
+        assertEquals(httpOptions.getExecutionMode(), HttpOptions.DEFAULT_EXECUTION_MODE);
+        assertEquals(httpOptions.getWorkerPoolSize(), HttpOptions.DEFAULT_WORKER_POOL_SIZE);
+        assertEquals(httpOptions.isTcpNoDelay(), HttpOptions.DEFAULT_TCP_NO_DELAY);
     }
 
     @Test
@@ -44,6 +50,12 @@ public class HttpOptionsTest {
         json.put("acceptLength", httpOptions.getAcceptLength());
         json.put("maxRequestSize", httpOptions.getMaxRequestSize());
         json.put("concurrency", httpOptions.getConcurrency());
+        json.put("bufferPooling", httpOptions.isBufferPooling());
+        json.put("directBuffers", httpOptions.isDirectBuffers());
+        json.put("acceptStrategy", httpOptions.getAcceptStrategy().name());
+        json.put("executionMode", httpOptions.getExecutionMode().name());
+        json.put("workerPoolSize", httpOptions.getWorkerPoolSize());
+        json.put("tcpNoDelay", httpOptions.isTcpNoDelay());
 
 
         assertTrue(httpOptions.toJSON().similar(json));
@@ -0,0 +1,65 @@
+package one.jpro.platform.image.manager.transformer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reducing a large photo sized image to a thumbnail with every {@link ImageResampler.Method},
+ * compared to the single scaling step into the type of the source image, that the transformers used before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageResamplerBenchmark {
+
+    @Param({"legacy", "BILINEAR", "PROGRESSIVE", "LANCZOS"})
+    public String method;
+
+    @Param({"6000x4000", "1200x800"})
+    public String sourceSize;
+
+    @Param({"3BYTE_BGR", "INT_ARGB"})
+    public String sourceType;
+
+    private BufferedImage source;
+
+    @Setup
+    public void setup() {
+        final String[] size = sourceSize.split("x");
+        final int width = Integer.parseInt(size[0]);
+        final int height = Integer.parseInt(size[1]);
+        final int type = sourceType.equals("INT_ARGB") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_3BYTE_BGR;
+        source = new BufferedImage(width, height, type);
+        final Graphics2D g2d = source.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        g2d.fillRect(0, 0, width, height);
+        g2d.setColor(Color.WHITE);
+        for (int x = 0; x < width; x += 7) {
+            g2d.drawLine(x, 0, x, height);
+        }
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        if (method.equals("legacy")) {
+            return legacy(source, 300, 200);
+        }
+        return ImageResampler.resize(source, 300, 200, ImageResampler.Method.valueOf(method));
+    }
+
+    private static BufferedImage legacy(BufferedImage original, int width, int height) {
+        final BufferedImage resized = new BufferedImage(width, height, original.getType());
+        final Graphics2D g2d = resized.createGraphics();
+        ImageTransformerHelpers.graphicsDefaultConfiguration(g2d);
+        g2d.drawImage(original, 0, 0, width, height, null);
+        g2d.dispose();
+        return resized;
+    }
+}
@@ -0,0 +1,152 @@
+package one.jpro.platform.image.manager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded executor for image processing, so decoding and encoding images never blocks the threads of the
+ * common pool. Tasks with a higher priority run first, tasks of the same priority in the order they were submitted,
+ * and tasks whose future is cancelled before they start are dropped.
+ * <p>
+ * The executor also limits the number of decoded pixels in flight, so a few very large images are processed
+ * one after another instead of all at once.
+ *
+ * @author Besmir Beqiri
+ */
+final class ImageExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long pixelBudget;
+    private final AtomicLong sequence = new AtomicLong();
+    private long pixelsInFlight;
+
+    /**
+     * Constructs a new ImageExecutor.
+     *
+     * @param threads     the maximum number of threads processing images
+     * @param pixelBudget the maximum number of decoded pixels in flight
+     */
+    ImageExecutor(int threads, long pixelBudget) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (pixelBudget < 1) {
+            throw new IllegalArgumentException("pixelBudget must be positive");
+        }
+        this.pixelBudget = pixelBudget;
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "jpro-image-manager-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the supplier on the executor.
+     *
+     * @param supplier the work to do
+     * @param priority the priority of the work, higher priorities run first
+     * @return a future of the result, cancelling it drops the work if it hasn't started yet
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> supplier, int priority) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Task task = new Task(priority, sequence.getAndIncrement(), () -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        executor.execute(task);
+        future.whenComplete((result, ex) -> {
+            if (future.isCancelled()) {
+                executor.remove(task);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the number of tasks waiting to run.
+     *
+     * @return the number of queued tasks
+     */
+    int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Waits until the given number of pixels fits into the pixel budget and reserves them.
+     * Images larger than the whole budget are processed alone.
+     *
+     * @param pixels the number of pixels of the decoded image
+     * @return the number of reserved pixels, to be passed to {@link #releasePixels(long)}
+     */
+    synchronized long acquirePixels(long pixels) {
+        final long reserved = Math.max(1, Math.min(pixels, pixelBudget));
+        boolean interrupted = false;
+        while (pixelsInFlight + reserved > pixelBudget) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        pixelsInFlight += reserved;
+        return reserved;
+    }
+
+    /**
+     * Releases pixels reserved with {@link #acquirePixels(long)}.
+     *
+     * @param reserved the number of reserved pixels
+     */
+    synchronized void releasePixels(long reserved) {
+        pixelsInFlight -= reserved;
+        notifyAll();
+    }
+
+    /**
+     * A task ordered by priority and submission order.
+     */
+    private static final class Task implements Runnable, Comparable<Task> {
+        private final int priority;
+        private final long sequence;
+        private final Runnable runnable;
+
+        Task(int priority, long sequence, Runnable runnable) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -2,13 +2,22 @@ package one.jpro.platform.image.manager;
 
 import javafx.scene.image.Image;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import one.jpro.platform.image.manager.encoder.ImageEncoder;
 import one.jpro.platform.image.manager.source.ImageSource;
@@ -27,11 +36,68 @@ public class ImageManager {
 
     private static final String CACHE_DIR_NAME = "jpro.imagemanager.cache";
     private static final String CACHE_DIR_HOME = System.getProperty("user.home") + "/.jpro" + "/image-manager";
+    private static final String MEMORY_CACHE_SIZE_NAME = "jpro.imagemanager.memoryCacheSize";
+    private static final int DEFAULT_MEMORY_CACHE_SIZE = 1024;
+    private static final String THREADS_NAME = "jpro.imagemanager.threads";
+    private static final String PIXEL_BUDGET_NAME = "jpro.imagemanager.pixelBudget";
+    private static final long DEFAULT_PIXEL_BUDGET = 64L * 1024 * 1024;
+    // the pixels reserved for an image whose size is not known before decoding it
+    private static final long UNKNOWN_IMAGE_PIXELS = 16L * 1024 * 1024;
+    private static final String REVALIDATION_INTERVAL_NAME = "jpro.imagemanager.revalidationInterval";
+    private static final long DEFAULT_REVALIDATION_INTERVAL = 2000;
+    private static final String REMOTE_REVALIDATION_INTERVAL_NAME = "jpro.imagemanager.remoteRevalidationInterval";
+    private static final long DEFAULT_REMOTE_REVALIDATION_INTERVAL = 5 * 60 * 1000;
+    // background revalidations run after all the images that are waited for
+    private static final int REVALIDATION_PRIORITY = Integer.MIN_VALUE;
     private static String CACHE_DIR = null;
     private static volatile ImageManager defaultInstance;
 
+    /**
+     * The most recently used image results, keyed by the JSON of their definition,
+     * so a cached image is found without touching the disk.
+     */
+    private final Map<String, CachedImage> memoryCache;
+
+    /**
+     * The time in nanoseconds, during which an image in memory is used without checking whether its source changed,
+     * given by the system property {@code jpro.imagemanager.revalidationInterval} in milliseconds (2 seconds by
+     * default). A negative value never checks the source again.
+     */
+    private volatile long revalidationInterval;
+
+    /**
+     * The revalidation interval in nanoseconds of {@link ImageSource#isRemote() remote} sources, given by the system
+     * property {@code jpro.imagemanager.remoteRevalidationInterval} in milliseconds (5 minutes by default).
+     */
+    private volatile long remoteRevalidationInterval;
+
+    /**
+     * The images that are currently loaded, so concurrent requests for the same definition share the work.
+     */
+    private final Map<String, CompletableFuture<ImageResult>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The executor of the asynchronous loads, sized by the system properties {@code jpro.imagemanager.threads}
+     * (the number of processors by default) and {@code jpro.imagemanager.pixelBudget}, the number of decoded pixels
+     * in flight (64 megapixels by default).
+     */
+    private final ImageExecutor executor = new ImageExecutor(
+            Integer.getInteger(THREADS_NAME, Runtime.getRuntime().availableProcessors()),
+            Long.getLong(PIXEL_BUDGET_NAME, DEFAULT_PIXEL_BUDGET));
+
     // Private constructor to prevent instantiation
-    private ImageManager() {}
+    private ImageManager() {
+        final int memoryCacheSize = Integer.getInteger(MEMORY_CACHE_SIZE_NAME, DEFAULT_MEMORY_CACHE_SIZE);
+        memoryCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedImage> eldest) {
+                return size() > memoryCacheSize;
+            }
+        };
+        setRevalidationInterval(Long.getLong(REVALIDATION_INTERVAL_NAME, DEFAULT_REVALIDATION_INTERVAL));
+        setRemoteRevalidationInterval(Long.getLong(REMOTE_REVALIDATION_INTERVAL_NAME,
+                DEFAULT_REMOTE_REVALIDATION_INTERVAL));
+    }
 
     /**
      * Returns the singleton instance of ImageManager.
@@ -64,51 +130,404 @@ public class ImageManager {
         return new File(CACHE_DIR);
     }
 
+    /**
+     * Sets the time, during which an image in memory is used without checking whether its source changed.
+     *
+     * @param millis the revalidation interval in milliseconds, 0 to check the source on every call,
+     *               or a negative value to never check it again
+     */
+    void setRevalidationInterval(long millis) {
+        revalidationInterval = millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Sets the time, during which an image of a remote source in memory is used without checking
+     * whether its source changed.
+     *
+     * @param millis the revalidation interval in milliseconds, 0 to check the source on every call,
+     *               or a negative value to never check it again
+     */
+    void setRemoteRevalidationInterval(long millis) {
+        remoteRevalidationInterval = millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
     /**
      * Loads the image based on the given definition, caches it, and returns the image result.
+     * Recently used results are kept in memory, up to the number given by the system property
+     * {@code jpro.imagemanager.memoryCacheSize} (1024 by default). Concurrent calls for the same definition
+     * wait for a single load, instead of processing the image several times.
+     * <p>
+     * Images are cached under their definition and the {@link ImageSource#identityHashValue() fingerprint}
+     * of their source, so a changed source is processed again. An image in memory is revalidated against
+     * the fingerprint of its source, once the interval given by the system property
+     * {@code jpro.imagemanager.revalidationInterval} has passed. Images of {@link ImageSource#isRemote() remote}
+     * sources are revalidated in the background, once the interval given by the system property
+     * {@code jpro.imagemanager.remoteRevalidationInterval} has passed, while the image in memory is still returned.
+     * If the fingerprint can't be computed, for example for a URL while offline, the newest image of the definition
+     * on disk is used.
      *
      * @param imageDefinition the image definition containing source, transformation and encoder
      * @return the loaded and potentially cached image result
      */
     public ImageResult loadImage(ImageDefinition imageDefinition) {
-        String origFileName = imageDefinition.getSource().getFileName();
-        String baseName = origFileName.substring(0, origFileName.lastIndexOf("."));
-        String fileName = baseName + "." + imageDefinition.getEncoder().getFileExtension();
+        final String json = imageDefinition.toJSON().toString();
+        final CachedImage cached;
+        synchronized (memoryCache) {
+            cached = memoryCache.get(json);
+        }
+        if (cached == null) {
+            return loadSharedImage(imageDefinition, json, null);
+        }
+        final ImageSource source = imageDefinition.getSource();
+        final boolean remote = source.isRemote();
+        final long now = System.nanoTime();
+        final long interval = remote ? remoteRevalidationInterval : revalidationInterval;
+        if (interval < 0 || now - cached.validated < interval) {
+            return cached.result;
+        }
+        if (remote) {
+            // the request for the fingerprint must not block the caller, which may be the FX thread
+            cached.validated = now;
+            executor.submit(() -> revalidateImage(imageDefinition, json, cached, now), REVALIDATION_PRIORITY)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            logger.debug("Failed to revalidate the cached image: " + json, ex);
+                        }
+                    });
+            return cached.result;
+        }
+        return revalidateImage(imageDefinition, json, cached, now);
+    }
 
+    /**
+     * Revalidates an image in memory against the fingerprint of its source, and loads it again, if it changed.
+     *
+     * @param imageDefinition the image definition containing source, transformation and encoder
+     * @param json            the JSON of the image definition
+     * @param cached          the image in memory
+     * @param now             the time of the revalidation
+     * @return the revalidated image result
+     */
+    private ImageResult revalidateImage(ImageDefinition imageDefinition, String json, CachedImage cached, long now) {
+        final long fingerprint;
         try {
-            String hash = computeImageDefinitionHash(imageDefinition);
-            File hashDir = new File(CACHE_DIR, hash);
-            File imageFile = new File(hashDir, fileName);
-
-            if (hashDir.exists()) {
-                File keyFile = new File(hashDir, "key");
-                if (keyFile.exists() && imageFile.exists()) {
-                    String savedDef = Files.readString(keyFile.toPath());
-                    if (savedDef.equals(imageDefinition.toJSON().toString())) {
-                        String wh = Files.readString(new File(hashDir, "wh").toPath());
-                        String[] dims = wh.split(",");
-                        return new ImageResult(imageFile, Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+            fingerprint = imageDefinition.getSource().identityHashValue();
+        } catch (RuntimeException ex) {
+            // an unreachable source, for example a URL while offline, keeps its cached image
+            logger.debug("Failed to revalidate the cached image: " + json, ex);
+            cached.validated = now;
+            return cached.result;
+        }
+        if (fingerprint == cached.fingerprint) {
+            final CachedImage verified = verifyCachedImage(cached, imageDefinition.getSource(), json);
+            if (verified != null) {
+                verified.validated = now;
+                if (verified != cached) {
+                    synchronized (memoryCache) {
+                        memoryCache.put(json, verified);
                     }
                 }
+                return verified.result;
+            }
+        }
+        return loadSharedImage(imageDefinition, json, fingerprint);
+    }
+
+    /**
+     * Loads the image once for concurrent calls with the same definition, and keeps it in memory.
+     *
+     * @param imageDefinition the image definition containing source, transformation and encoder
+     * @param json            the JSON of the image definition
+     * @param fingerprint     the fingerprint of the source, or {@code null} to compute it
+     * @return the loaded image result
+     */
+    private ImageResult loadSharedImage(ImageDefinition imageDefinition, String json, Long fingerprint) {
+        final CompletableFuture<ImageResult> future = new CompletableFuture<>();
+        final CompletableFuture<ImageResult> running = inFlight.putIfAbsent(json, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (ex.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw ex;
+            }
+        }
+
+        try {
+            final CachedImage loaded = loadImage(imageDefinition, json, fingerprint);
+            synchronized (memoryCache) {
+                memoryCache.put(json, loaded);
             }
+            future.complete(loaded.result);
+            return loaded.result;
+        } catch (Throwable ex) {
+            // errors, like an OutOfMemoryError while decoding a huge image, must release the waiting calls, too
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(json, future);
+        }
+    }
 
-            BufferedImage img = imageDefinition.getSource().loadImage();
-            img = imageDefinition.getTransformer().transform(img);
-            imageDefinition.getEncoder().saveImage(img, imageFile);
+    /**
+     * Loads the image for the fingerprint of its source from the disk cache, or processes it and stores it there.
+     * If the fingerprint can't be computed, for example for a URL while offline, the newest image
+     * of the definition on disk is used.
+     *
+     * @param imageDefinition the image definition containing source, transformation and encoder
+     * @param json            the JSON of the image definition
+     * @param fingerprint     the fingerprint of the source, or {@code null} to compute it
+     * @return the loaded image in memory
+     */
+    private CachedImage loadImage(ImageDefinition imageDefinition, String json, Long fingerprint) {
+        final long validated = System.nanoTime();
+        if (fingerprint != null) {
+            return loadImage(imageDefinition, json, fingerprint, validated);
+        }
+        final long sourceFingerprint;
+        try {
+            sourceFingerprint = imageDefinition.getSource().identityHashValue();
+        } catch (RuntimeException ex) {
+            final CachedImage newest = loadNewestImage(imageDefinition, json, validated);
+            if (newest == null) {
+                throw ex;
+            }
+            logger.debug("Failed to compute the fingerprint, using the newest cached image: " + json, ex);
+            return newest;
+        }
+        return loadImage(imageDefinition, json, sourceFingerprint, validated);
+    }
+
+    /**
+     * Loads the image from the disk cache, or processes it and stores it there.
+     *
+     * @param imageDefinition the image definition containing source, transformation and encoder
+     * @param json            the JSON of the image definition
+     * @param fingerprint     the fingerprint of the source
+     * @param validated       the time the fingerprint was computed
+     * @return the loaded image in memory
+     */
+    private CachedImage loadImage(ImageDefinition imageDefinition, String json, long fingerprint, long validated) {
+        final String key = json + "\n" + Long.toHexString(fingerprint);
+        final ImageSource source = imageDefinition.getSource();
+
+        try {
+            String hash = computeImageDefinitionHash(key);
+            File hashDir = new File(CACHE_DIR, hash);
+            File imageFile = new File(hashDir, getCachedFileName(imageDefinition));
+
+            final CachedImage saved = readCachedImage(hashDir, imageFile, key, fingerprint, validated);
+            if (saved != null) {
+                final CachedImage verified = verifyCachedImage(saved, source, json);
+                if (verified != null) {
+                    writeNewestFingerprint(json, fingerprint);
+                    return verified;
+                }
+            }
+
+            // a source modified too recently to rely on its fingerprint is verified against its content later on
+            final Long contentHash = source.isIdentityHashAmbiguous() ? source.contentHashValue() : null;
+            final ImageTransformer transformer = imageDefinition.getTransformer();
+            final Dimension size = source.getImageSize();
+            final Dimension targetSize = size == null ? null : transformer.getTargetSize(size.width, size.height);
+            final long pixels = decodedPixels(size, targetSize);
+            final long reserved = executor.acquirePixels(pixels > 0 ? pixels : UNKNOWN_IMAGE_PIXELS);
+            BufferedImage img;
+            try {
+                if (targetSize != null) {
+                    img = source.loadImage(targetSize.width, targetSize.height);
+                    img = transformer.transform(img, targetSize);
+                } else if (size == null) { // the size is only known once the source reads the image header
+                    final Dimension[] decodedTargetSize = new Dimension[1];
+                    img = source.loadImage(original -> decodedTargetSize[0] =
+                            transformer.getTargetSize(original.width, original.height));
+                    img = decodedTargetSize[0] != null ? transformer.transform(img, decodedTargetSize[0])
+                            : transformer.transform(img);
+                } else {
+                    img = source.loadImage();
+                    img = transformer.transform(img);
+                }
+                imageDefinition.getEncoder().saveImage(img, imageFile);
+            } finally {
+                executor.releasePixels(reserved);
+            }
 
             ImageResult result = new ImageResult(imageFile, img.getWidth(), img.getHeight());
 
             // Save metadata
-            Files.writeString(new File(hashDir, "key").toPath(), imageDefinition.toJSON().toString());
+            Files.writeString(new File(hashDir, "key").toPath(), key);
             Files.writeString(new File(hashDir, "wh").toPath(), img.getWidth() + "," + img.getHeight());
+            final File contentFile = new File(hashDir, "content");
+            if (contentHash != null) {
+                Files.writeString(contentFile.toPath(), Long.toHexString(contentHash));
+            } else {
+                Files.deleteIfExists(contentFile.toPath());
+            }
+            writeNewestFingerprint(json, fingerprint);
 
-            return result;
+            return new CachedImage(result, fingerprint, validated, contentHash);
         } catch (IOException ex) {
             logger.error("Error while loading image", ex);
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Reads an image from the disk cache.
+     *
+     * @param hashDir     the directory of the cached image
+     * @param imageFile   the file of the cached image
+     * @param key         the JSON of the image definition, followed by the fingerprint of its source
+     * @param fingerprint the fingerprint of the source
+     * @param validated   the time the fingerprint was computed
+     * @return the cached image, or {@code null} if it is not on disk
+     * @throws IOException if the metadata of the cached image can't be read
+     */
+    private static CachedImage readCachedImage(File hashDir, File imageFile, String key,
+                                               long fingerprint, long validated) throws IOException {
+        final File keyFile = new File(hashDir, "key");
+        if (!keyFile.exists() || !imageFile.exists() || !Files.readString(keyFile.toPath()).equals(key)) {
+            return null;
+        }
+        final String[] dims = Files.readString(new File(hashDir, "wh").toPath()).split(",");
+        final ImageResult result = new ImageResult(imageFile, Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+        final File contentFile = new File(hashDir, "content");
+        final Long contentHash = contentFile.exists()
+                ? Long.parseUnsignedLong(Files.readString(contentFile.toPath()), 16) : null;
+        return new CachedImage(result, fingerprint, validated, contentHash);
+    }
+
+    /**
+     * Verifies an image, that was cached while the fingerprint of its source was ambiguous, against the content
+     * of the source. Once the fingerprint is no longer ambiguous, the image doesn't need to be verified again.
+     * An unreachable source keeps the cached image.
+     *
+     * @param saved  the cached image
+     * @param source the source of the image
+     * @param json   the JSON of the image definition
+     * @return the verified image, or {@code null} if the source changed without changing its fingerprint
+     */
+    private CachedImage verifyCachedImage(CachedImage saved, ImageSource source, String json) {
+        if (saved.contentHash == null) {
+            return saved;
+        }
+        final long contentHash;
+        final boolean ambiguous;
+        try {
+            contentHash = source.contentHashValue();
+            ambiguous = source.isIdentityHashAmbiguous();
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to verify the cached image: " + json, ex);
+            return saved;
+        }
+        if (contentHash != saved.contentHash) {
+            return null;
+        }
+        if (ambiguous) {
+            return saved;
+        }
+        final String key = json + "\n" + Long.toHexString(saved.fingerprint);
+        final File contentFile = new File(new File(CACHE_DIR, computeImageDefinitionHash(key)), "content");
+        try {
+            Files.deleteIfExists(contentFile.toPath());
+        } catch (IOException ex) {
+            // verified once more, when it is loaded from disk again
+            logger.debug("Failed to delete the content hash of the cached image: " + json, ex);
+        }
+        return new CachedImage(saved.result, saved.fingerprint, saved.validated, null);
+    }
+
+    /**
+     * Loads the newest image of the definition from the disk cache, without the fingerprint of its source.
+     *
+     * @param imageDefinition the image definition containing source, transformation and encoder
+     * @param json            the JSON of the image definition
+     * @param validated       the time the image is used from
+     * @return the newest cached image, or {@code null} if there is none
+     */
+    private CachedImage loadNewestImage(ImageDefinition imageDefinition, String json, long validated) {
+        final File newestFile = getNewestFingerprintFile(json);
+        try {
+            if (!newestFile.exists()) {
+                return null;
+            }
+            final long fingerprint = Long.parseUnsignedLong(Files.readString(newestFile.toPath()), 16);
+            final String key = json + "\n" + Long.toHexString(fingerprint);
+            final File hashDir = new File(CACHE_DIR, computeImageDefinitionHash(key));
+            final File imageFile = new File(hashDir, getCachedFileName(imageDefinition));
+            return readCachedImage(hashDir, imageFile, key, fingerprint, validated);
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Failed to read the newest cached image: " + json, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Records the fingerprint of the newest image of the definition on disk, if it changed,
+     * and deletes the image of the previous fingerprint, which is superseded.
+     *
+     * @param json        the JSON of the image definition
+     * @param fingerprint the fingerprint of the source of the newest image
+     * @throws IOException if the fingerprint can't be written
+     */
+    private void writeNewestFingerprint(String json, long fingerprint) throws IOException {
+        final File newestFile = getNewestFingerprintFile(json);
+        final String newest = Long.toHexString(fingerprint);
+        final String previous = newestFile.exists() ? Files.readString(newestFile.toPath()) : null;
+        if (!newest.equals(previous)) {
+            Files.writeString(newestFile.toPath(), newest);
+            if (previous != null) {
+                deleteDirectoryRecursively(new File(CACHE_DIR, computeImageDefinitionHash(json + "\n" + previous)));
+            }
+        }
+    }
+
+    /**
+     * Returns the file, that holds the fingerprint of the newest image of the definition on disk.
+     *
+     * @param json the JSON of the image definition
+     * @return the file of the newest fingerprint
+     */
+    private File getNewestFingerprintFile(String json) {
+        return new File(CACHE_DIR, computeImageDefinitionHash(json) + ".newest");
+    }
+
+    /**
+     * Returns the name of the cached image file, made of the name of its source and the extension of its encoder.
+     *
+     * @param imageDefinition the image definition containing source, transformation and encoder
+     * @return the file name of the cached image
+     */
+    private static String getCachedFileName(ImageDefinition imageDefinition) {
+        String origFileName = imageDefinition.getSource().getFileName();
+        String baseName = origFileName.substring(0, origFileName.lastIndexOf("."));
+        return baseName + "." + imageDefinition.getEncoder().getFileExtension();
+    }
+
+    /**
+     * Returns the number of pixels of the decoded image, which is smaller than the original image,
+     * when it is decoded for a smaller target size.
+     *
+     * @param size       the size of the original image, or {@code null} if it is not known
+     * @param targetSize the size of the transformed image, or {@code null} if it is not known
+     * @return the number of decoded pixels, or -1 if it is not known
+     */
+    private static long decodedPixels(Dimension size, Dimension targetSize) {
+        if (size == null) {
+            return -1;
+        }
+        final int subsampling = targetSize == null ? 1
+                : ImageUtils.computeSubsampling(size.width, size.height, targetSize.width, targetSize.height);
+        final long width = (size.width + subsampling - 1) / subsampling;
+        final long height = (size.height + subsampling - 1) / subsampling;
+        return width * height;
+    }
+
     /**
      * Loads the image asynchronously based on the given definition.
      *
@@ -116,7 +535,35 @@ public class ImageManager {
      * @return a CompletableFuture containing the image result
      */
     CompletableFuture<ImageResult> loadImageFuture(ImageDefinition imageDefinition) {
-        return CompletableFuture.supplyAsync(() -> loadImage(imageDefinition));
+        return executor.submit(() -> loadImage(imageDefinition), 0);
+    }
+
+    /**
+     * Loads the images asynchronously, for example the thumbnails of a gallery. The images are processed
+     * in the order of the collection, before the images of batches with a lower priority.
+     * Cancelling a returned future drops the image, if it hasn't started processing yet.
+     *
+     * @param imageDefinitions the image definitions to load
+     * @param priority         the priority of the batch, higher priorities are processed first
+     * @return the futures of the image results, in the order of the collection
+     */
+    public List<CompletableFuture<ImageResult>> loadImages(Collection<ImageDefinition> imageDefinitions, int priority) {
+        final List<CompletableFuture<ImageResult>> futures = new ArrayList<>(imageDefinitions.size());
+        for (ImageDefinition imageDefinition : imageDefinitions) {
+            futures.add(executor.submit(() -> loadImage(imageDefinition), priority));
+        }
+        return futures;
+    }
+
+    /**
+     * Loads the images asynchronously with the default priority.
+     *
+     * @param imageDefinitions the image definitions to load
+     * @return the futures of the image results, in the order of the collection
+     * @see #loadImages(Collection, int)
+     */
+    public List<CompletableFuture<ImageResult>> loadImages(Collection<ImageDefinition> imageDefinitions) {
+        return loadImages(imageDefinitions, 0);
     }
 
     /**
@@ -142,19 +589,19 @@ public class ImageManager {
      * @return a CompletableFuture containing the processed FX image
      */
     CompletableFuture<Image> loadFXImageFuture(ImageSource source, ImageTransformer transformer, ImageEncoder encoder) {
-        return CompletableFuture.supplyAsync(() -> loadFXImage(source, transformer, encoder));
+        return executor.submit(() -> loadFXImage(source, transformer, encoder), 0);
     }
 
     /**
-     * Computes the hash for the given image definition.
+     * Computes the hash for the cache key of an image definition.
      *
-     * @param imageDefinition the image definition
+     * @param key the JSON of the image definition, followed by the fingerprint of its source
      * @return the computed MD5 hash as a string
      */
-    private String computeImageDefinitionHash(ImageDefinition imageDefinition) {
+    private String computeImageDefinitionHash(String key) {
         try {
             MessageDigest digest = MessageDigest.getInstance("MD5");
-            byte[] hashBytes = digest.digest(imageDefinition.toJSON().toString().getBytes(StandardCharsets.UTF_8));
+            byte[] hashBytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
             StringBuilder hexString = new StringBuilder();
             for (byte b : hashBytes) {
                 String hex = Integer.toHexString(0xFF & b);
@@ -174,10 +621,20 @@ public class ImageManager {
      * Clears the entire image cache.
      */
     void clearCache() {
+        clearMemoryCache();
         File cacheDirectory = new File(CACHE_DIR);
         deleteDirectoryRecursively(cacheDirectory);
     }
 
+    /**
+     * Clears the images in memory, keeping the images on disk.
+     */
+    void clearMemoryCache() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+    }
+
     /**
      * Recursively deletes the given directory or file.
      *
@@ -194,4 +651,22 @@ public class ImageManager {
         }
         file.delete();
     }
-}
\ No newline at end of file
+
+    /**
+     * An image result in memory, with the fingerprint of its source, the time it was last validated,
+     * and the content hash of its source, if it still has to be verified against it.
+     */
+    private static final class CachedImage {
+        final ImageResult result;
+        final long fingerprint;
+        final Long contentHash;
+        volatile long validated;
+
+        CachedImage(ImageResult result, long fingerprint, long validated, Long contentHash) {
+            this.result = result;
+            this.fingerprint = fingerprint;
+            this.contentHash = contentHash;
+            this.validated = validated;
+        }
+    }
+}
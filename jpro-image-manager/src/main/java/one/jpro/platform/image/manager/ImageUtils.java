@@ -1,7 +1,29 @@
 package one.jpro.platform.image.manager;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.function.UnaryOperator;
+import java.util.jar.JarEntry;
 
 /**
  * This class provides utility methods for various image operations.
@@ -10,6 +32,8 @@ import java.security.MessageDigest;
  */
 public class ImageUtils {
 
+    private static final long AMBIGUOUS_MODIFICATION_MILLIS = 2000;
+
     /**
      * Computes the MD5 hash of the given data and returns the first 8 bytes
      * of the hash as a long value.
@@ -30,6 +54,210 @@ public class ImageUtils {
         }
     }
 
+    /**
+     * Computes the MD5 hash of the data read from the stream, without holding all of it in memory,
+     * and returns the first 8 bytes of the hash as a long value.
+     *
+     * @param in The stream of the data, which is read to its end.
+     * @return The first 8 bytes of the MD5 hash as a long value.
+     * @throws IOException if the stream can't be read.
+     */
+    public static long computeHashValue(InputStream in) throws IOException {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Error computing hash value", ex);
+        }
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            md.update(buffer, 0, read);
+        }
+        return ByteBuffer.wrap(md.digest(), 0, 8).getLong();
+    }
+
+    /**
+     * Computes a fingerprint of a file from its size, modification time and file key (the inode on Unix),
+     * without reading it. The fingerprint stays the same as long as the file is unchanged, but a file modified
+     * within the timestamp granularity of the file system could be modified again without changing it,
+     * see {@link #isRecentlyModified(Path)}.
+     *
+     * @param path The path of the file.
+     * @return The fingerprint, that changes when the file changes.
+     * @throws IOException if the attributes of the file can't be read.
+     */
+    public static long computeFileFingerprint(Path path) throws IOException {
+        return fileFingerprint(Files.readAttributes(path, BasicFileAttributes.class)).value();
+    }
+
+    /**
+     * Returns whether a file was modified too recently to tell apart a later modification by its modification time,
+     * given a timestamp granularity of up to 2 seconds, as on FAT file systems.
+     *
+     * @param path The path of the file.
+     * @return {@code true} if the fingerprint of the file could miss a later modification.
+     * @throws IOException if the attributes of the file can't be read.
+     */
+    public static boolean isRecentlyModified(Path path) throws IOException {
+        return isAmbiguous(Files.getLastModifiedTime(path).toMillis());
+    }
+
+    /**
+     * A fingerprint of the content behind a URL.
+     *
+     * @param value            The fingerprint, that changes when the content changes.
+     * @param recentlyModified Whether the fingerprint is taken from a modification time, that is too recent
+     *                         to tell apart a later modification.
+     */
+    public record URLFingerprint(long value, boolean recentlyModified) {
+    }
+
+    /**
+     * Computes a fingerprint of the content behind a URL without downloading it, if possible:
+     * from the file for {@code file:} URLs, from the CRC of the entry for {@code jar:} URLs, and from the
+     * {@code ETag} or {@code Last-Modified} header for HTTP URLs. The headers are requested with a {@code HEAD}
+     * request, or with a {@code GET} request, if the server rejects it. Without any of these,
+     * the content is downloaded and hashed. Whether the fingerprint could miss a later modification
+     * is taken from the same response.
+     *
+     * @param url The URL of the content.
+     * @return The fingerprint, that changes when the content changes.
+     * @throws IOException if the content can't be accessed.
+     */
+    public static URLFingerprint computeURLFingerprint(URL url) throws IOException {
+        final Path path = toPath(url);
+        if (path != null) {
+            return fileFingerprint(Files.readAttributes(path, BasicFileAttributes.class));
+        }
+        final URLConnection connection = url.openConnection();
+        URLFingerprint fingerprint = null;
+        if (connection instanceof JarURLConnection jarConnection) {
+            final JarEntry entry = jarConnection.getJarEntry();
+            if (entry != null && entry.getCrc() != -1) {
+                fingerprint = fingerprint("crc:" + entry.getSize() + ":" + entry.getCrc(), false);
+            }
+        } else if (connection instanceof HttpURLConnection httpConnection) {
+            fingerprint = readHttpHeaders(url, httpConnection, response -> {
+                final URLFingerprint headers = headerFingerprint(response);
+                if (headers == null && "GET".equals(((HttpURLConnection) response).getRequestMethod())) {
+                    try (InputStream in = response.getInputStream()) {
+                        return fingerprint("md5:" + computeHashValue(in), false);
+                    }
+                }
+                return headers;
+            });
+        } else {
+            fingerprint = headerFingerprint(connection);
+        }
+        if (fingerprint == null) {
+            try (InputStream in = url.openStream()) {
+                fingerprint = fingerprint("md5:" + computeHashValue(in), false);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of a file from its attributes.
+     */
+    private static URLFingerprint fileFingerprint(BasicFileAttributes attributes) {
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        return fingerprint("file:" + attributes.size() + ":" + lastModified + ":" + attributes.fileKey(),
+                isAmbiguous(lastModified));
+    }
+
+    /**
+     * Returns the hashed fingerprint of a description of the content.
+     */
+    private static URLFingerprint fingerprint(String description, boolean recentlyModified) {
+        return new URLFingerprint(computeHashValue(description.getBytes(StandardCharsets.UTF_8)), recentlyModified);
+    }
+
+    /**
+     * Returns the local path of a {@code file:} URL.
+     *
+     * @return The path, or {@code null} if the URL is not a local path.
+     */
+    private static Path toPath(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Paths.get(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                // not a local path
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a fingerprint from the {@code ETag} or the {@code Last-Modified} header of a response.
+     *
+     * @return The fingerprint, or {@code null} if the response has neither of them.
+     */
+    private static URLFingerprint headerFingerprint(URLConnection response) {
+        final String etag = response.getHeaderField("ETag");
+        if (etag != null) {
+            return fingerprint("etag:" + etag, false);
+        }
+        final long lastModified = response.getLastModified();
+        if (lastModified != 0) {
+            return fingerprint("modified:" + response.getContentLengthLong() + ":" + lastModified,
+                    isAmbiguous(lastModified));
+        }
+        return null;
+    }
+
+    /**
+     * Reads the headers of an HTTP URL from the response to a {@code HEAD} request. Servers, that reject or drop
+     * {@code HEAD} requests, like presigned S3 URLs with a 403, are asked again with a {@code GET} request.
+     *
+     * @param url        The HTTP URL.
+     * @param connection The connection for the {@code HEAD} request.
+     * @param reader     The reader of the headers, that may read the content of a {@code GET} response, too.
+     * @return The result of the reader.
+     * @throws IOException if neither request succeeds.
+     */
+    private static <T> T readHttpHeaders(URL url, HttpURLConnection connection, HeaderReader<T> reader)
+            throws IOException {
+        try {
+            connection.setRequestMethod("HEAD");
+            if (connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST) {
+                return reader.read(connection);
+            }
+        } catch (IOException ex) {
+            // asked again with a GET request below
+        } finally {
+            connection.disconnect();
+        }
+        final HttpURLConnection getConnection = (HttpURLConnection) url.openConnection();
+        try {
+            final int responseCode = getConnection.getResponseCode();
+            if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + url);
+            }
+            return reader.read(getConnection);
+        } finally {
+            getConnection.disconnect();
+        }
+    }
+
+    /**
+     * Reads a value from the headers of a response.
+     */
+    @FunctionalInterface
+    private interface HeaderReader<T> {
+        T read(URLConnection response) throws IOException;
+    }
+
+    /**
+     * Returns whether a modification time is too recent to tell apart a later modification,
+     * given a timestamp granularity of up to 2 seconds, as on FAT file systems and in HTTP dates.
+     */
+    private static boolean isAmbiguous(long lastModified) {
+        return lastModified <= 0 || System.currentTimeMillis() - lastModified < AMBIGUOUS_MODIFICATION_MILLIS;
+    }
+
     /**
      * Escapes certain special characters in a JSON string to ensure it's valid.
      * Specifically, it escapes backslashes and double quotes.
@@ -40,4 +268,112 @@ public class ImageUtils {
     public static String escapeJson(String str) {
         return str.replace("\\", "\\\\").replace("\"", "\\\"");
     }
+
+    /**
+     * Reads the size of an image from its header, without decoding the image.
+     *
+     * @param input a file or an input stream of the image
+     * @return the size of the first image, or {@code null} if it can't be read
+     */
+    public static Dimension readImageSize(Object input) {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            final ImageReader reader = createReader(stream);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes an image, that is going to be scaled down to the given size. Rows and columns are skipped
+     * while decoding, as long as the decoded image stays at least twice as large as the target size.
+     *
+     * @param input        a file or an input stream of the image
+     * @param targetWidth  the width the image is going to be scaled to
+     * @param targetHeight the height the image is going to be scaled to
+     * @return the decoded image, or {@code null} if no reader supports the image format
+     * @throws IOException if the image can't be read
+     */
+    public static BufferedImage readImage(Object input, int targetWidth, int targetHeight) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            final ImageReader reader = createReader(stream);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                final ImageReadParam param = reader.getDefaultReadParam();
+                final int subsampling = computeSubsampling(reader.getWidth(0), reader.getHeight(0),
+                        targetWidth, targetHeight);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes an image, that is going to be scaled down to a size computed from the size in its header,
+     * like {@link #readImage(Object, int, int)}, for sources that don't know the size of the image in advance.
+     *
+     * @param input      a file or an input stream of the image
+     * @param targetSize computes the size the image is going to be scaled to from the size of the image,
+     *                   or returns {@code null} if it is not known
+     * @return the decoded image, or {@code null} if no reader supports the image format
+     * @throws IOException if the image can't be read
+     */
+    public static BufferedImage readImage(Object input, UnaryOperator<Dimension> targetSize) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            final ImageReader reader = createReader(stream);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                final ImageReadParam param = reader.getDefaultReadParam();
+                final Dimension target = targetSize.apply(new Dimension(reader.getWidth(0), reader.getHeight(0)));
+                final int subsampling = target == null ? 1 : computeSubsampling(reader.getWidth(0),
+                        reader.getHeight(0), target.width, target.height);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Computes the subsampling factor, that keeps an image at least twice as large as the target size.
+     *
+     * @return the number of source pixels per decoded pixel in each direction, at least 1
+     */
+    static int computeSubsampling(int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(width / (2 * targetWidth), height / (2 * targetHeight)));
+    }
+
+    private static ImageReader createReader(ImageInputStream stream) {
+        if (stream == null) {
+            return null;
+        }
+        final Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        final ImageReader reader = readers.next();
+        reader.setInput(stream, true, true);
+        return reader;
+    }
 }
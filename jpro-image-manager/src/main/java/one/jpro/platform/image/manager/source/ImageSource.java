@@ -2,7 +2,9 @@ package one.jpro.platform.image.manager.source;
 
 import one.jpro.platform.image.manager.JsonConvertible;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.function.UnaryOperator;
 
 /**
  * The ImageSource interface represents a source of images that can be loaded and manipulated.
@@ -20,12 +22,97 @@ public interface ImageSource extends JsonConvertible {
     BufferedImage loadImage();
 
     /**
-     * Returns the identity hash code associated with this image source.
+     * Loads an image, that is going to be scaled down to the given size. Sources may decode a reduced image,
+     * by skipping pixels while decoding, as long as it stays at least twice as large as the target size,
+     * which keeps the memory and time needed for large images low.
+     *
+     * @param targetWidth  The width the image is going to be scaled to.
+     * @param targetHeight The height the image is going to be scaled to.
+     * @return The loaded image as a BufferedImage object.
+     */
+    default BufferedImage loadImage(int targetWidth, int targetHeight) {
+        return loadImage();
+    }
+
+    /**
+     * Loads an image, that is going to be scaled down to a size computed from its original size. Sources, that
+     * don't know the size of the image in advance, but read it from the header of the image while decoding it,
+     * may decode a reduced image like {@link #loadImage(int, int)}, without reading the image twice.
+     *
+     * @param targetSize Computes the size the image is going to be scaled to from the size of the image,
+     *                   or returns {@code null} if it is not known.
+     * @return The loaded image as a BufferedImage object.
+     */
+    default BufferedImage loadImage(UnaryOperator<Dimension> targetSize) {
+        final Dimension size = getImageSize();
+        final Dimension target = size == null ? null : targetSize.apply(size);
+        return target == null ? loadImage() : loadImage(target.width, target.height);
+    }
+
+    /**
+     * Returns the size of the image, if it can be determined without decoding the image.
+     *
+     * @return the size of the image, or {@code null} if it is not known
+     */
+    default Dimension getImageSize() {
+        return null;
+    }
+
+    /**
+     * Returns the number of pixels of the decoded image, if it can be determined without decoding the image.
+     *
+     * @return the number of pixels, or -1 if it is not known
+     */
+    default long getPixelCount() {
+        final Dimension size = getImageSize();
+        return size == null ? -1 : (long) size.width * size.height;
+    }
+
+    /**
+     * Returns the identity hash code associated with this image source, a fingerprint of the image,
+     * that changes when the image changes. It is part of the cache key of the image, and is checked again
+     * when a cached image is revalidated, so it should be cheap to compute, without reading the whole image.
      *
      * @return The identity hash value corresponding to this object.
      */
     long identityHashValue();
 
+    /**
+     * Returns whether the image could still change without changing its {@link #identityHashValue() fingerprint},
+     * for example a file modified within the timestamp granularity of its file system. An image cached while
+     * its fingerprint is ambiguous is verified against the {@link #contentHashValue() content hash}, until
+     * it is no longer ambiguous.
+     *
+     * Sources, whose fingerprint needs a request, may answer it for the fingerprint last returned by
+     * {@link #identityHashValue()}, from the same response.
+     *
+     * @return {@code true} if the fingerprint could miss a later change of the image
+     */
+    default boolean isIdentityHashAmbiguous() {
+        return false;
+    }
+
+    /**
+     * Returns whether computing the {@link #identityHashValue() fingerprint} of the image needs a network request.
+     * Cached images of remote sources are revalidated in the background, and less often, once the interval given
+     * by the system property {@code jpro.imagemanager.remoteRevalidationInterval} has passed.
+     *
+     * @return {@code true} if the image is fetched from a remote server
+     */
+    default boolean isRemote() {
+        return false;
+    }
+
+    /**
+     * Returns a hash of the whole content of the image, that is used to verify an image cached
+     * while its {@link #identityHashValue() fingerprint} was {@link #isIdentityHashAmbiguous() ambiguous}.
+     *
+     * @return The hash value of the content of the image.
+     */
+    default long contentHashValue() {
+        return identityHashValue();
+    }
+
     /**
      * Returns the file name associated with this image source.
      *
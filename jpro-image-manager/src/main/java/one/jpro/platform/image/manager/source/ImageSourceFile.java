@@ -3,11 +3,13 @@ package one.jpro.platform.image.manager.source;
 import one.jpro.platform.image.manager.ImageUtils;
 import org.json.JSONObject;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.File;
-import java.nio.file.Files;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 
 /**
  * Represents an image source based on a file.
@@ -49,11 +51,52 @@ public class ImageSourceFile implements ImageSource {
         }
     }
 
+    @Override
+    public BufferedImage loadImage(int targetWidth, int targetHeight) {
+        try {
+            if (!file.canRead()) {
+                throw new IOException("Can't read input file!");
+            }
+            return ImageUtils.readImage(file, targetWidth, targetHeight);
+        } catch (IOException ex) {
+            throw new ImageSourceException("Failed to load image from file: " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    @Override
+    public Dimension getImageSize() {
+        return ImageUtils.readImageSize(file);
+    }
+
+    /**
+     * Returns a fingerprint of the file, made of its size, modification time and file key, which is computed
+     * without reading the file.
+     *
+     * @return The fingerprint of the file.
+     */
     @Override
     public long identityHashValue() {
         try {
-            byte[] fileBytes = Files.readAllBytes(file.toPath());
-            return ImageUtils.computeHashValue(fileBytes);
+            return ImageUtils.computeFileFingerprint(file.toPath());
+        } catch (IOException ex) {
+            throw new ImageSourceException("Failed to compute hash value for the file: " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    @Override
+    public boolean isIdentityHashAmbiguous() {
+        try {
+            return ImageUtils.isRecentlyModified(file.toPath());
+        } catch (IOException ex) {
+            throw new ImageSourceException("Failed to read the modification time of the file: "
+                    + file.getAbsolutePath(), ex);
+        }
+    }
+
+    @Override
+    public long contentHashValue() {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            return ImageUtils.computeHashValue(is);
         } catch (IOException ex) {
             throw new ImageSourceException("Failed to compute hash value for the file: " + file.getAbsolutePath(), ex);
         }
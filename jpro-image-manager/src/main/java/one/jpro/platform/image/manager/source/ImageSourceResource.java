@@ -4,12 +4,11 @@ import one.jpro.platform.image.manager.ImageUtils;
 import org.json.JSONObject;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.net.URLConnection;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 /**
  * This class provides an implementation of the ImageSource interface
@@ -44,22 +43,69 @@ public class ImageSourceResource implements ImageSource {
         }
     }
 
+    @Override
+    public BufferedImage loadImage(int targetWidth, int targetHeight) {
+        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
+            if (is == null) {
+                throw new ImageSourceException("Resource not found: " + resourcePath);
+            }
+            return ImageUtils.readImage(is, targetWidth, targetHeight);
+        } catch (Exception e) {
+            throw new ImageSourceException("Error loading resource: " + resourcePath, e);
+        }
+    }
+
+    @Override
+    public Dimension getImageSize() {
+        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
+            return is == null ? null : ImageUtils.readImageSize(is);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a fingerprint of the resource, taken from the CRC of its entry, when it is packaged in a jar,
+     * or from its file otherwise.
+     *
+     * @return The fingerprint of the resource.
+     * @see ImageUtils#computeURLFingerprint(URL)
+     */
     @Override
     public long identityHashValue() {
+        URL resourceUrl = getClass().getResource(resourcePath);
+        if (resourceUrl == null) {
+            throw new ImageSourceException("Resource not found: " + resourcePath);
+        }
+        try {
+            return ImageUtils.computeURLFingerprint(resourceUrl).value();
+        } catch (IOException ex) {
+            throw new ImageSourceException("Error computing the fingerprint of resource: " + resourcePath, ex);
+        }
+    }
+
+    @Override
+    public boolean isIdentityHashAmbiguous() {
+        URL resourceUrl = getClass().getResource(resourcePath);
+        if (resourceUrl == null) {
+            throw new ImageSourceException("Resource not found: " + resourcePath);
+        }
         try {
-            URL resourceUrl = getClass().getResource(resourcePath);
-            if (resourceUrl == null) {
+            return ImageUtils.computeURLFingerprint(resourceUrl).recentlyModified();
+        } catch (IOException ex) {
+            throw new ImageSourceException("Error checking the modification time of resource: " + resourcePath, ex);
+        }
+    }
+
+    @Override
+    public long contentHashValue() {
+        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
+            if (is == null) {
                 throw new ImageSourceException("Resource not found: " + resourcePath);
             }
-            URLConnection conn = resourceUrl.openConnection();
-            long lastModified = conn.getLastModified();
-            if (lastModified == 0) { // fallback to binary data hash
-                byte[] resourceData = Files.readAllBytes(Paths.get(resourceUrl.toURI()));
-                return ImageUtils.computeHashValue(resourceData);
-            }
-            return lastModified;
-        } catch (Exception ex) {
-            throw new ImageSourceException("Error obtaining modification date for resource: " + resourcePath, ex);
+            return ImageUtils.computeHashValue(is);
+        } catch (IOException ex) {
+            throw new ImageSourceException("Error computing the hash value of resource: " + resourcePath, ex);
         }
     }
 
@@ -4,10 +4,12 @@ import one.jpro.platform.image.manager.ImageUtils;
 import org.json.JSONObject;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
-import java.net.URLConnection;
+import java.util.function.UnaryOperator;
 
 /**
  * This class provides an implementation of the ImageSource interface
@@ -20,6 +22,7 @@ import java.net.URLConnection;
 public class ImageSourceURL implements ImageSource {
 
     private final URL url;
+    private volatile ImageUtils.URLFingerprint fingerprint;
 
     public ImageSourceURL(URL url) {
         this.url = url;
@@ -34,19 +37,77 @@ public class ImageSourceURL implements ImageSource {
         }
     }
 
+    @Override
+    public BufferedImage loadImage(int targetWidth, int targetHeight) {
+        try (InputStream is = url.openStream()) {
+            return ImageUtils.readImage(is, targetWidth, targetHeight);
+        } catch (IOException ex) {
+            throw new ImageSourceException("Error while reading image from URL: " + url, ex);
+        }
+    }
+
+    /**
+     * Loads the image with a single request, decoding a reduced image for the target size
+     * computed from the size in its header.
+     */
+    @Override
+    public BufferedImage loadImage(UnaryOperator<Dimension> targetSize) {
+        try (InputStream is = url.openStream()) {
+            return ImageUtils.readImage(is, targetSize);
+        } catch (IOException ex) {
+            throw new ImageSourceException("Error while reading image from URL: " + url, ex);
+        }
+    }
+
+    /**
+     * Returns a fingerprint of the content behind the URL, taken from its {@code ETag} or {@code Last-Modified}
+     * header for HTTP URLs, so the image is only downloaded when the server provides neither of them.
+     *
+     * @return The fingerprint of the content.
+     * @see ImageUtils#computeURLFingerprint(URL)
+     */
     @Override
     public long identityHashValue() {
         try {
-            // First, get the modification date.
-            URLConnection connection = url.openConnection();
-            long lastModified = connection.getLastModified();
+            final ImageUtils.URLFingerprint computed = ImageUtils.computeURLFingerprint(url);
+            fingerprint = computed;
+            return computed.value();
+        } catch (IOException e) {
+            throw new ImageSourceException("Error while computing the fingerprint of URL: " + url, e);
+        }
+    }
+
+    /**
+     * Returns whether the last computed fingerprint was taken from a recent {@code Last-Modified} header,
+     * which is read from the same response as the fingerprint, without another request.
+     *
+     * @return {@code true} if the fingerprint could miss a later change of the image
+     */
+    @Override
+    public boolean isIdentityHashAmbiguous() {
+        if (fingerprint == null) {
+            identityHashValue();
+        }
+        return fingerprint.recentlyModified();
+    }
 
-            // Combine the URL and modification date to generate the hash.
-            String combined = url.toString() + lastModified;
-            return ImageUtils.computeHashValue(combined.getBytes());
+    /**
+     * Returns whether the URL is not a local file, nor an entry of a local jar.
+     *
+     * @return {@code true} if computing the fingerprint needs a network request
+     */
+    @Override
+    public boolean isRemote() {
+        final String protocol = url.getProtocol();
+        return !"file".equals(protocol) && !("jar".equals(protocol) && url.getPath().startsWith("file:"));
+    }
 
-        } catch (IOException e) {
-            throw new ImageSourceException("Error while getting modification date for URL: " + url, e);
+    @Override
+    public long contentHashValue() {
+        try (InputStream is = url.openStream()) {
+            return ImageUtils.computeHashValue(is);
+        } catch (IOException ex) {
+            throw new ImageSourceException("Error while computing the hash value of URL: " + url, ex);
         }
     }
 
@@ -0,0 +1,343 @@
+package one.jpro.platform.image.manager.transformer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The resampling engine shared by the image transformers. Images are first normalized to an
+ * {@link BufferedImage#TYPE_INT_ARGB} or {@link BufferedImage#TYPE_INT_RGB} raster, which every source type,
+ * including {@link BufferedImage#TYPE_CUSTOM}, can be converted to, and which Java2D scales fastest.
+ * <p>
+ * The resampling method defaults to {@link Method#PROGRESSIVE} and can be changed with the system property
+ * {@code jpro.imagemanager.resampling}, set to {@code bilinear}, {@code progressive} or {@code lanczos}.
+ *
+ * @author Besmir Beqiri
+ */
+public final class ImageResampler {
+
+    /**
+     * The methods used to resample an image.
+     */
+    public enum Method {
+
+        /**
+         * A single bilinear scaling step. Fast, but aliased when an image is reduced by more than half.
+         */
+        BILINEAR,
+
+        /**
+         * Halves the image in bilinear steps, each of which averages every pixel, until it is less than twice
+         * as large as the target size, followed by a final bicubic step.
+         */
+        PROGRESSIVE,
+
+        /**
+         * A separable Lanczos filter with three lobes, the sharpest of the methods, applied after halving the image
+         * as long as it stays at least four times as large as the target size.
+         * Row bands of the image are filtered in parallel.
+         */
+        LANCZOS
+    }
+
+    private static final String METHOD_NAME = "jpro.imagemanager.resampling";
+    private static final Method DEFAULT_METHOD = parseMethod(System.getProperty(METHOD_NAME));
+    private static final int LANCZOS_LOBES = 3;
+    // the number of rows below which a band is filtered on the current thread
+    private static final int BAND_ROWS = 32;
+    private static volatile ForkJoinPool pool;
+
+    private ImageResampler() {
+    }
+
+    /**
+     * Returns the method used by {@link #resize(BufferedImage, int, int)}.
+     *
+     * @return the default resampling method
+     */
+    public static Method getDefaultMethod() {
+        return DEFAULT_METHOD;
+    }
+
+    /**
+     * Resizes the image with the default method.
+     *
+     * @param image  the image to be resized
+     * @param width  the width of the resized image
+     * @param height the height of the resized image
+     * @return the resized image
+     */
+    public static BufferedImage resize(BufferedImage image, int width, int height) {
+        return resize(image, width, height, DEFAULT_METHOD);
+    }
+
+    /**
+     * Resizes the image with the given method.
+     *
+     * @param image  the image to be resized
+     * @param width  the width of the resized image
+     * @param height the height of the resized image
+     * @param method the resampling method
+     * @return the resized image, with an {@link BufferedImage#TYPE_INT_ARGB} or {@link BufferedImage#TYPE_INT_RGB} raster
+     */
+    public static BufferedImage resize(BufferedImage image, int width, int height, Method method) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive: " + width + "x" + height);
+        }
+        final BufferedImage source = normalize(image);
+        return switch (method) {
+            case BILINEAR -> draw(source, width, height, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            case PROGRESSIVE -> progressive(source, width, height);
+            case LANCZOS -> lanczos(source, width, height);
+        };
+    }
+
+    /**
+     * Converts the image to an {@link BufferedImage#TYPE_INT_ARGB} raster, if it has an alpha channel,
+     * or to an {@link BufferedImage#TYPE_INT_RGB} raster otherwise. Images of these types are returned as they are.
+     *
+     * @param image the image to be converted
+     * @return the normalized image
+     */
+    public static BufferedImage normalize(BufferedImage image) {
+        final int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            return image;
+        }
+        final int normalizedType = image.getColorModel().hasAlpha()
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        final BufferedImage normalized = new BufferedImage(image.getWidth(), image.getHeight(), normalizedType);
+        final Graphics2D g2d = normalized.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return normalized;
+    }
+
+    private static BufferedImage progressive(BufferedImage source, int width, int height) {
+        final BufferedImage halved = halve(source, 2 * width, 2 * height);
+        if (halved.getWidth() == width && halved.getHeight() == height && halved != source) {
+            return halved;
+        }
+        return draw(halved, width, height, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    /**
+     * Halves the image in bilinear steps, as long as it stays at least as large as the given size.
+     */
+    private static BufferedImage halve(BufferedImage source, int minWidth, int minHeight) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        while (currentWidth >= minWidth || currentHeight >= minHeight) {
+            final int nextWidth = currentWidth >= minWidth ? Math.max(1, currentWidth / 2) : currentWidth;
+            final int nextHeight = currentHeight >= minHeight ? Math.max(1, currentHeight / 2) : currentHeight;
+            if (nextWidth == currentWidth && nextHeight == currentHeight) {
+                break;
+            }
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+            current = draw(current, currentWidth, currentHeight, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        final BufferedImage resized = new BufferedImage(width, height, source.getType());
+        final Graphics2D g2d = resized.createGraphics();
+        ImageTransformerHelpers.graphicsDefaultConfiguration(g2d);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return resized;
+    }
+
+    private static BufferedImage lanczos(BufferedImage image, int width, int height) {
+        // large reductions are halved first, which leaves the filter at least twice the target size to work on
+        final BufferedImage source = halve(image, 4 * width, 4 * height);
+        final int sourceWidth = source.getWidth();
+        final int sourceHeight = source.getHeight();
+        final boolean alpha = source.getType() == BufferedImage.TYPE_INT_ARGB;
+        final int[] pixels = (int[]) source.getRaster().getDataElements(0, 0, sourceWidth, sourceHeight, null);
+
+        // horizontal pass into premultiplied float channels, then the vertical pass back into packed pixels
+        final Kernel horizontal = new Kernel(sourceWidth, width);
+        final Kernel vertical = new Kernel(sourceHeight, height);
+        final float[] rows = new float[width * sourceHeight * 4];
+        final int[] result = new int[width * height];
+        final ForkJoinPool pool = pool();
+        pool.invoke(new Band(0, sourceHeight, (from, to) ->
+                filterRows(pixels, sourceWidth, alpha, horizontal, rows, width, from, to)));
+        pool.invoke(new Band(0, height, (from, to) ->
+                filterColumns(rows, width, alpha, vertical, result, from, to)));
+
+        final BufferedImage resized = new BufferedImage(width, height, source.getType());
+        resized.getRaster().setDataElements(0, 0, width, height, result);
+        return resized;
+    }
+
+    private static void filterRows(int[] pixels, int sourceWidth, boolean alpha, Kernel kernel,
+                                   float[] rows, int width, int from, int to) {
+        for (int y = from; y < to; y++) {
+            final int rowOffset = y * sourceWidth;
+            for (int x = 0; x < width; x++) {
+                final int start = kernel.start[x];
+                final float[] weights = kernel.weights[x];
+                float a = 0, r = 0, g = 0, b = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    final int pixel = pixels[rowOffset + start + i];
+                    final float pixelAlpha = alpha ? (pixel >>> 24) : 255;
+                    final float weight = weights[i];
+                    final float premultiplied = weight * pixelAlpha / 255;
+                    a += weight * pixelAlpha;
+                    r += premultiplied * ((pixel >> 16) & 0xff);
+                    g += premultiplied * ((pixel >> 8) & 0xff);
+                    b += premultiplied * (pixel & 0xff);
+                }
+                final int index = (y * width + x) * 4;
+                rows[index] = a;
+                rows[index + 1] = r;
+                rows[index + 2] = g;
+                rows[index + 3] = b;
+            }
+        }
+    }
+
+    private static void filterColumns(float[] rows, int width, boolean alpha, Kernel kernel,
+                                      int[] result, int from, int to) {
+        for (int y = from; y < to; y++) {
+            final int start = kernel.start[y];
+            final float[] weights = kernel.weights[y];
+            for (int x = 0; x < width; x++) {
+                float a = 0, r = 0, g = 0, b = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    final int index = ((start + i) * width + x) * 4;
+                    final float weight = weights[i];
+                    a += weight * rows[index];
+                    r += weight * rows[index + 1];
+                    g += weight * rows[index + 2];
+                    b += weight * rows[index + 3];
+                }
+                final int pixelAlpha = clamp(a);
+                final float unpremultiply = pixelAlpha == 0 ? 0 : 255f / pixelAlpha;
+                result[y * width + x] = (alpha ? pixelAlpha << 24 : 0xff000000)
+                        | clamp(r * unpremultiply) << 16
+                        | clamp(g * unpremultiply) << 8
+                        | clamp(b * unpremultiply);
+            }
+        }
+    }
+
+    private static int clamp(float value) {
+        final int rounded = Math.round(value);
+        return rounded < 0 ? 0 : Math.min(rounded, 255);
+    }
+
+    private static double lanczos(double x) {
+        x = Math.abs(x);
+        if (x < 1e-8) {
+            return 1;
+        }
+        if (x >= LANCZOS_LOBES) {
+            return 0;
+        }
+        final double pix = Math.PI * x;
+        return LANCZOS_LOBES * Math.sin(pix) * Math.sin(pix / LANCZOS_LOBES) / (pix * pix);
+    }
+
+    private static ForkJoinPool pool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (ImageResampler.class) {
+                result = pool;
+                if (result == null) {
+                    pool = result = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Method parseMethod(String name) {
+        if (name == null) {
+            return Method.PROGRESSIVE;
+        }
+        try {
+            return Method.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return Method.PROGRESSIVE;
+        }
+    }
+
+    /**
+     * The normalized Lanczos weights of the source pixels that contribute to every target pixel of one dimension.
+     */
+    private static final class Kernel {
+        final int[] start;
+        final float[][] weights;
+
+        Kernel(int sourceSize, int targetSize) {
+            start = new int[targetSize];
+            weights = new float[targetSize][];
+            final double scale = (double) sourceSize / targetSize;
+            final double filterScale = Math.max(1.0, scale);
+            final double support = LANCZOS_LOBES * filterScale;
+            for (int i = 0; i < targetSize; i++) {
+                final double center = (i + 0.5) * scale - 0.5;
+                final int left = Math.max(0, (int) Math.ceil(center - support));
+                final int right = Math.min(sourceSize - 1, (int) Math.floor(center + support));
+                final float[] w = new float[right - left + 1];
+                double sum = 0;
+                for (int j = left; j <= right; j++) {
+                    final double weight = lanczos((j - center) / filterScale);
+                    w[j - left] = (float) weight;
+                    sum += weight;
+                }
+                if (sum != 0) {
+                    for (int j = 0; j < w.length; j++) {
+                        w[j] /= (float) sum;
+                    }
+                }
+                start[i] = left;
+                weights[i] = w;
+            }
+        }
+    }
+
+    /**
+     * Filters the rows of an image in bands, that are split until they are small enough.
+     * Tasks are never serialized, so the row filter doesn't need to be serializable.
+     */
+    @SuppressWarnings("serial")
+    private static final class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final RowFilter filter;
+
+        Band(int from, int to, RowFilter filter) {
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BAND_ROWS) {
+                filter.filter(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Band(from, middle, filter), new Band(middle, to, filter));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowFilter {
+        void filter(int from, int to);
+    }
+}
@@ -2,6 +2,7 @@ package one.jpro.platform.image.manager.transformer;
 
 import one.jpro.platform.image.manager.JsonConvertible;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
 
 /**
@@ -19,4 +20,28 @@ public interface ImageTransformer extends JsonConvertible {
      * @return A new BufferedImage resulting from the applied transformation.
      */
     BufferedImage transform(BufferedImage image);
+
+    /**
+     * Returns the size of the transformed image, for an image of the given size.
+     * Transformers that return a size let the image source decode a reduced image,
+     * which is then passed to {@link #transform(BufferedImage, Dimension)}.
+     *
+     * @param width  The width of the original image.
+     * @param height The height of the original image.
+     * @return The size of the transformed image, or {@code null} if it is not known in advance.
+     */
+    default Dimension getTargetSize(int width, int height) {
+        return null;
+    }
+
+    /**
+     * Transforms the given image, that may have been decoded at a reduced size, into an image of the target size.
+     *
+     * @param image      The BufferedImage to be transformed.
+     * @param targetSize The size returned by {@link #getTargetSize(int, int)} for the original image.
+     * @return A new BufferedImage resulting from the applied transformation.
+     */
+    default BufferedImage transform(BufferedImage image, Dimension targetSize) {
+        return transform(image);
+    }
 }
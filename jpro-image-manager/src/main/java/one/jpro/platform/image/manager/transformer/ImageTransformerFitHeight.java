@@ -46,13 +46,18 @@ public class ImageTransformerFitHeight implements ImageTransformer {
      */
     @Override
     public BufferedImage transform(BufferedImage original) {
-        double aspectRatio = (double) original.getWidth() / original.getHeight();
-        int newWidth = (int) (targetHeight * aspectRatio);
-        BufferedImage resized = new BufferedImage(newWidth, targetHeight, original.getType());
-        Graphics2D g2d = resized.createGraphics();
-        ImageTransformerHelpers.graphicsDefaultConfiguration(g2d);
-        g2d.drawImage(original, 0, 0, newWidth, targetHeight, null);
-        return resized;
+        return transform(original, getTargetSize(original.getWidth(), original.getHeight()));
+    }
+
+    @Override
+    public BufferedImage transform(BufferedImage original, Dimension targetSize) {
+        return ImageTransformerHelpers.resize(original, targetSize.width, targetSize.height);
+    }
+
+    @Override
+    public Dimension getTargetSize(int width, int height) {
+        double aspectRatio = (double) width / height;
+        return new Dimension((int) (targetHeight * aspectRatio), targetHeight);
     }
 
     @Override
@@ -46,17 +46,18 @@ public class ImageTransformerFitWidth implements ImageTransformer {
      */
     @Override
     public BufferedImage transform(BufferedImage inputImage) {
-        int originalWidth = inputImage.getWidth();
-        int originalHeight = inputImage.getHeight();
+        return transform(inputImage, getTargetSize(inputImage.getWidth(), inputImage.getHeight()));
+    }
 
-        double aspectRatio = (double) originalHeight / originalWidth;
-        int targetHeight = (int) (targetWidth * aspectRatio);
+    @Override
+    public BufferedImage transform(BufferedImage inputImage, Dimension targetSize) {
+        return ImageTransformerHelpers.resize(inputImage, targetSize.width, targetSize.height);
+    }
 
-        BufferedImage outputImage = new BufferedImage(targetWidth, targetHeight, inputImage.getType());
-        Graphics2D g2d = (Graphics2D) outputImage.getGraphics();
-        ImageTransformerHelpers.graphicsDefaultConfiguration(g2d);
-        g2d.drawImage(inputImage, 0, 0, targetWidth, targetHeight, null);
-        return outputImage;
+    @Override
+    public Dimension getTargetSize(int width, int height) {
+        double aspectRatio = (double) height / width;
+        return new Dimension(targetWidth, (int) (targetWidth * aspectRatio));
     }
 
     @Override
@@ -1,6 +1,7 @@
 package one.jpro.platform.image.manager.transformer;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 /**
  * Provides helper methods for image transformation tasks.
@@ -23,4 +24,16 @@ public class ImageTransformerHelpers {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
     }
+
+    /**
+     * Resizes the image to the given size with the default method of the {@link ImageResampler}.
+     *
+     * @param image  The image to be resized.
+     * @param width  The width of the resized image.
+     * @param height The height of the resized image.
+     * @return The resized image.
+     */
+    public static BufferedImage resize(BufferedImage image, int width, int height) {
+        return ImageResampler.resize(image, width, height);
+    }
 }
@@ -51,15 +51,20 @@ public class ImageTransformerScaleToArea implements ImageTransformer {
      */
     @Override
     public BufferedImage transform(BufferedImage image) {
-        double aspectRatio = (double) image.getWidth() / image.getHeight();
+        return transform(image, getTargetSize(image.getWidth(), image.getHeight()));
+    }
+
+    @Override
+    public BufferedImage transform(BufferedImage image, Dimension targetSize) {
+        return ImageTransformerHelpers.resize(image, targetSize.width, targetSize.height);
+    }
+
+    @Override
+    public Dimension getTargetSize(int width, int height) {
+        double aspectRatio = (double) width / height;
         double newWidth = Math.sqrt(targetArea * aspectRatio);
         double newHeight = newWidth / aspectRatio;
-
-        BufferedImage newImage = new BufferedImage((int) newWidth, (int) newHeight, image.getType());
-        Graphics2D g2d = (Graphics2D) newImage.getGraphics();
-        ImageTransformerHelpers.graphicsDefaultConfiguration(g2d);
-        g2d.drawImage(image, 0, 0, (int) newWidth, (int) newHeight, null);
-        return newImage;
+        return new Dimension((int) newWidth, (int) newHeight);
     }
 
     @Override
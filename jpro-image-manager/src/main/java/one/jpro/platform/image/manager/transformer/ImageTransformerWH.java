@@ -2,7 +2,7 @@ package one.jpro.platform.image.manager.transformer;
 
 import org.json.JSONObject;
 import java.awt.image.BufferedImage;
-import java.awt.Graphics2D;
+import java.awt.Dimension;
 
 /**
  * Implements the ImageTransformer interface to provide functionalities
@@ -49,12 +49,17 @@ public class ImageTransformerWH implements ImageTransformer {
      */
     @Override
     public BufferedImage transform(BufferedImage original) {
-        BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, original.getType());
-        Graphics2D g2d = resizedImage.createGraphics();
-        ImageTransformerHelpers.graphicsDefaultConfiguration(g2d);
-        g2d.drawImage(original, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        return resizedImage;
+        return transform(original, getTargetSize(original.getWidth(), original.getHeight()));
+    }
+
+    @Override
+    public BufferedImage transform(BufferedImage original, Dimension targetSize) {
+        return ImageTransformerHelpers.resize(original, targetSize.width, targetSize.height);
+    }
+
+    @Override
+    public Dimension getTargetSize(int width, int height) {
+        return new Dimension(targetWidth, targetHeight);
     }
 
     @Override
@@ -0,0 +1,80 @@
+package one.jpro.platform.image.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageExecutorTest {
+
+    @Test
+    void testPriorityAndCancellation() throws Exception {
+        ImageExecutor executor = new ImageExecutor(1, 100);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> blocker = executor.submit(() -> {
+            started.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return "blocker";
+        }, 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> low = executor.submit(() -> record(order, "low"), 0);
+        CompletableFuture<String> cancelled = executor.submit(() -> record(order, "cancelled"), 5);
+        CompletableFuture<String> high1 = executor.submit(() -> record(order, "high1"), 10);
+        CompletableFuture<String> high2 = executor.submit(() -> record(order, "high2"), 10);
+        assertEquals(4, executor.getQueueSize());
+
+        assertTrue(cancelled.cancel(true));
+        assertEquals(3, executor.getQueueSize());
+
+        blocked.countDown();
+        CompletableFuture.allOf(blocker, low, high1, high2).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("high1", "high2", "low"), order);
+    }
+
+    @Test
+    void testPixelBudget() throws Exception {
+        ImageExecutor executor = new ImageExecutor(4, 100);
+        AtomicLong inFlight = new AtomicLong();
+        AtomicLong maxInFlight = new AtomicLong();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[16];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(() -> {
+                long reserved = executor.acquirePixels(40);
+                try {
+                    maxInFlight.accumulateAndGet(inFlight.addAndGet(reserved), Math::max);
+                    Thread.sleep(5);
+                    inFlight.addAndGet(-reserved);
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                } finally {
+                    executor.releasePixels(reserved);
+                }
+                return null;
+            }, 0);
+        }
+        CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+        assertTrue(maxInFlight.get() <= 100, "Pixel budget exceeded: " + maxInFlight.get());
+
+        // an image larger than the budget is processed alone
+        assertEquals(100, executor.acquirePixels(1_000));
+        executor.releasePixels(100);
+    }
+
+    private static String record(List<String> order, String name) {
+        order.add(name);
+        return name;
+    }
+}
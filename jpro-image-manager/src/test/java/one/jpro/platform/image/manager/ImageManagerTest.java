@@ -7,17 +7,40 @@ import one.jpro.platform.image.manager.encoder.ImageEncoderJPG;
 import one.jpro.platform.image.manager.encoder.ImageEncoderPNG;
 import one.jpro.platform.image.manager.source.ImageSource;
 import one.jpro.platform.image.manager.source.ImageSourceFile;
+import one.jpro.platform.image.manager.source.ImageSourceException;
 import one.jpro.platform.image.manager.source.ImageSourceResource;
+import one.jpro.platform.image.manager.source.ImageSourceURL;
 import one.jpro.platform.image.manager.transformer.ImageTransformer;
 import one.jpro.platform.image.manager.transformer.ImageTransformerFitWidth;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -135,6 +158,225 @@ class ImageManagerTest {
         verify(encoderSpy, times(2)).saveImage(any(BufferedImage.class), any(File.class));
     }
 
+    @Test
+    void testConcurrentLoadsShareOneImage() throws Exception {
+        manager.clearCache();
+
+        AtomicInteger saves = new AtomicInteger();
+        ImageEncoder countingEncoder = new ImageEncoderPNG() {
+            @Override
+            public void saveImage(BufferedImage image, File target) {
+                saves.incrementAndGet();
+                super.saveImage(image, target);
+            }
+        };
+        ImageDefinition definition = new ImageDefinition(new ImageSourceFile("src/test/resources/testImage.png"),
+                new ImageTransformerFitWidth(150), countingEncoder);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ImageResult>> results = new ArrayList<>();
+            for (int i = 0; i < threads * 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return manager.loadImage(definition);
+                }));
+            }
+            start.countDown();
+
+            ImageResult first = results.get(0).get();
+            for (Future<ImageResult> result : results) {
+                assertEquals(first.getFile(), result.get().getFile());
+                assertEquals(150, result.get().getWidth());
+            }
+            assertEquals(1, saves.get(), "The image was processed more than once.");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // served from memory, while the disk cache is still used after clearing it
+        assertSame(manager.loadImage(definition), manager.loadImage(definition));
+        manager.clearCache();
+        manager.loadImage(definition);
+        assertEquals(2, saves.get());
+    }
+
+    @Test
+    void testChangedSourceIsProcessedAgain() throws Exception {
+        File imageFile = File.createTempFile("changing", ".png");
+        imageFile.deleteOnExit();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+        ImageDefinition definition = new ImageDefinition(new ImageSourceFile(imageFile),
+                new ImageTransformerFitWidth(100), new ImageEncoderPNG());
+
+        ImageResult before = manager.loadImage(definition);
+        assertEquals(50, before.getHeight());
+
+        ImageIO.write(new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+        try {
+            // within the revalidation interval, the image in memory is used without checking its source
+            manager.setRevalidationInterval(-1);
+            assertSame(before, manager.loadImage(definition));
+
+            manager.setRevalidationInterval(0);
+            ImageResult after = manager.loadImage(definition);
+            assertEquals(100, after.getHeight());
+            assertNotEquals(before.getFile(), after.getFile());
+            assertFalse(before.getFile().exists());
+            assertSame(after, manager.loadImage(definition));
+        } finally {
+            manager.setRevalidationInterval(2000);
+        }
+    }
+
+    @Test
+    void testErrorReleasesConcurrentLoads() throws Exception {
+        manager.clearCache();
+
+        ImageEncoder failingEncoder = new ImageEncoderPNG() {
+            @Override
+            public void saveImage(BufferedImage image, File target) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new Error("Failed to encode the image");
+            }
+        };
+        ImageDefinition definition = new ImageDefinition(new ImageSourceFile("src/test/resources/testImage.png"),
+                new ImageTransformerFitWidth(120), failingEncoder);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ImageResult>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return manager.loadImage(definition);
+                }));
+            }
+            start.countDown();
+
+            for (Future<ImageResult> result : results) {
+                ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertEquals("Failed to encode the image", ex.getCause().getMessage());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLoadImages() {
+        List<ImageDefinition> definitions = new ArrayList<>();
+        for (int width = 50; width <= 100; width += 10) {
+            definitions.add(new ImageDefinition(new ImageSourceFile("src/test/resources/testImage.png"),
+                    new ImageTransformerFitWidth(width), new ImageEncoderPNG()));
+        }
+        List<CompletableFuture<ImageResult>> futures = manager.loadImages(definitions, 1);
+        assertEquals(definitions.size(), futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(50 + i * 10, futures.get(i).join().getWidth());
+        }
+    }
+
+    @Test
+    void testRecentlyModifiedSourceIsVerified() {
+        manager.clearCache();
+        ChangingSource source = new ChangingSource();
+        ImageDefinition definition = new ImageDefinition(source,
+                new ImageTransformerFitWidth(100), new ImageEncoderPNG());
+
+        manager.setRevalidationInterval(0);
+        try {
+            assertEquals(50, manager.loadImage(definition).getHeight());
+
+            // changed without changing its fingerprint, while the fingerprint is ambiguous
+            source.height = 400;
+            source.contentHash = 2;
+            ImageResult changed = manager.loadImage(definition);
+            assertEquals(100, changed.getHeight());
+            assertEquals(2, source.loads.get());
+
+            // once the fingerprint is no longer ambiguous, the image is verified for the last time
+            source.ambiguous = false;
+            ImageResult verified = manager.loadImage(definition);
+            assertEquals(changed.getFile(), verified.getFile());
+            int contentReads = source.contentReads.get();
+            assertSame(verified, manager.loadImage(definition));
+            assertEquals(contentReads, source.contentReads.get());
+
+            manager.clearMemoryCache();
+            assertEquals(changed.getFile(), manager.loadImage(definition).getFile());
+            assertEquals(contentReads, source.contentReads.get());
+            assertEquals(2, source.loads.get());
+        } finally {
+            manager.setRevalidationInterval(2000);
+        }
+    }
+
+    @Test
+    void testUnreachableSourceUsesNewestCachedImage() throws Exception {
+        manager.clearCache();
+        ImageDefinition definition;
+        ImageResult before;
+        try (ImageServer server = new ImageServer()) {
+            definition = new ImageDefinition(new ImageSourceURL(server.url()),
+                    new ImageTransformerFitWidth(100), new ImageEncoderPNG());
+            before = manager.loadImage(definition);
+            assertTrue(server.headRequests.get() > 0);
+        }
+
+        manager.clearMemoryCache();
+        ImageResult offline = manager.loadImage(definition);
+        assertEquals(before.getFile(), offline.getFile());
+        assertEquals(before.getHeight(), offline.getHeight());
+
+        manager.clearCache();
+        assertThrows(ImageSourceException.class, () -> manager.loadImage(definition));
+    }
+
+    @Test
+    void testRemoteSourceIsRevalidatedInTheBackground() throws Exception {
+        manager.clearCache();
+        try (ImageServer server = new ImageServer()) {
+            ImageDefinition definition = new ImageDefinition(new ImageSourceURL(server.url()),
+                    new ImageTransformerFitWidth(100), new ImageEncoderPNG());
+            ImageResult before = manager.loadImage(definition);
+            // a rejected HEAD request, a GET request for the fingerprint and its ambiguity, and one for the image
+            assertEquals(3, server.requests.get());
+            assertSame(before, manager.loadImage(definition));
+            assertEquals(3, server.requests.get());
+
+            server.etag = "\"v2\"";
+            server.delayMillis = 500;
+            try {
+                manager.setRemoteRevalidationInterval(0);
+                long start = System.nanoTime();
+                assertSame(before, manager.loadImage(definition));
+                assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(server.delayMillis));
+
+                manager.setRemoteRevalidationInterval(-1);
+                ImageResult after = before;
+                for (int i = 0; i < 100 && after == before; i++) {
+                    Thread.sleep(100);
+                    after = manager.loadImage(definition);
+                }
+                assertNotEquals(before.getFile(), after.getFile());
+                assertTrue(after.getFile().exists());
+                // the image of the superseded fingerprint is deleted
+                assertFalse(before.getFile().exists());
+            } finally {
+                manager.setRemoteRevalidationInterval(5 * 60 * 1000);
+            }
+        }
+    }
+
     // Test changing image format
     @Test
     void testChangingFormat() {
@@ -151,5 +393,106 @@ class ImageManagerTest {
         assertTrue(result.getFile().getName().startsWith("testImage"));
     }
 
+    /**
+     * A source, that changes without changing its fingerprint.
+     */
+    private static final class ChangingSource implements ImageSource {
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicInteger contentReads = new AtomicInteger();
+        volatile int height = 200;
+        volatile long contentHash = 1;
+        volatile boolean ambiguous = true;
+
+        @Override
+        public BufferedImage loadImage() {
+            loads.incrementAndGet();
+            return new BufferedImage(400, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        @Override
+        public long identityHashValue() {
+            return 42;
+        }
+
+        @Override
+        public boolean isIdentityHashAmbiguous() {
+            return ambiguous;
+        }
+
+        @Override
+        public long contentHashValue() {
+            contentReads.incrementAndGet();
+            return contentHash;
+        }
+
+        @Override
+        public String getFileName() {
+            return "changing.png";
+        }
+
+        @Override
+        public JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("type", getClass().getSimpleName());
+            return json;
+        }
+    }
+
+    /**
+     * A minimal HTTP server of the test image, that rejects HEAD requests like a presigned S3 URL.
+     */
+    private static final class ImageServer implements AutoCloseable {
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger headRequests = new AtomicInteger();
+        final byte[] image = Files.readAllBytes(Path.of("src/test/resources/testImage.png"));
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final Thread thread = new Thread(this::serve);
+        volatile String etag = "\"v1\"";
+        volatile long delayMillis;
+
+        ImageServer() throws IOException {
+            thread.start();
+        }
+
+        URL url() throws IOException {
+            return new URL("http://localhost:" + server.getLocalPort() + "/remote.png");
+        }
+
+        private void serve() {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                    String requestLine = in.readLine();
+                    String header;
+                    do {
+                        header = in.readLine();
+                    } while (header != null && !header.isEmpty());
+                    requests.incrementAndGet();
+                    Thread.sleep(delayMillis);
+                    OutputStream out = socket.getOutputStream();
+                    if (requestLine.startsWith("HEAD")) {
+                        headRequests.incrementAndGet();
+                        out.write(("HTTP/1.1 403 Forbidden\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                                .getBytes(StandardCharsets.ISO_8859_1));
+                    } else {
+                        out.write(("HTTP/1.1 200 OK\r\nETag: " + etag + "\r\nContent-Length: " + image.length
+                                + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(image);
+                    }
+                    out.flush();
+                } catch (IOException ex) {
+                    // closed by the test, or by the client before reading the content
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
 
+        @Override
+        public void close() throws Exception {
+            server.close();
+            thread.join();
+        }
+    }
 }
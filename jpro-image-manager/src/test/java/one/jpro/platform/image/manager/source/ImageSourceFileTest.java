@@ -5,6 +5,8 @@ import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 
@@ -19,6 +21,33 @@ public class ImageSourceFileTest {
         assertNotNull(image);
     }
 
+    @Test
+    public void testGetPixelCount() {
+        File testImageFile = new File("src/test/resources/testImage.png");
+        ImageSourceFile imageSource = new ImageSourceFile(testImageFile);
+
+        BufferedImage image = imageSource.loadImage();
+        assertEquals((long) image.getWidth() * image.getHeight(), imageSource.getPixelCount());
+        assertEquals(-1, new ImageSourceFile("src/test/resources/missing.png").getPixelCount());
+    }
+
+    @Test
+    public void testLoadImageForTargetSize() throws Exception {
+        File largeImageFile = File.createTempFile("large", ".png");
+        largeImageFile.deleteOnExit();
+        ImageIO.write(new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB), "png", largeImageFile);
+        ImageSourceFile imageSource = new ImageSourceFile(largeImageFile);
+
+        assertEquals(new Dimension(2400, 1600), imageSource.getImageSize());
+        BufferedImage image = imageSource.loadImage(300, 200);
+        assertEquals(600, image.getWidth());
+        assertEquals(400, image.getHeight());
+
+        // images are not subsampled below twice the target size
+        assertEquals(2400, imageSource.loadImage(1000, 1000).getWidth());
+        assertThrows(ImageSourceException.class, () -> new ImageSourceFile("missing.png").loadImage(300, 200));
+    }
+
     @Test
     public void testIdentityHashValue() {
         File testImageFile = new File("src/test/resources/testImage.png");
@@ -26,6 +55,51 @@ public class ImageSourceFileTest {
 
         long hashValue = imageSource.identityHashValue();
         assertTrue(hashValue != 0);
+        assertEquals(hashValue, imageSource.identityHashValue());
+    }
+
+    @Test
+    public void testIdentityHashValueDetectsChanges() throws Exception {
+        File imageFile = File.createTempFile("changing", ".png");
+        imageFile.deleteOnExit();
+        ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+        ImageSourceFile imageSource = new ImageSourceFile(imageFile);
+        long before = imageSource.identityHashValue();
+
+        ImageIO.write(new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+        imageFile.setLastModified(imageFile.lastModified() - 10_000);
+        assertNotEquals(before, imageSource.identityHashValue());
+
+        assertThrows(ImageSourceException.class, () -> new ImageSourceFile("missing.png").identityHashValue());
+    }
+
+    @Test
+    public void testIdentityHashValueIsStableForRecentlyModifiedFiles() throws Exception {
+        File imageFile = File.createTempFile("recent", ".png");
+        imageFile.deleteOnExit();
+        ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+        ImageSourceFile imageSource = new ImageSourceFile(imageFile);
+        long lastModified = System.currentTimeMillis();
+        imageFile.setLastModified(lastModified);
+        assertTrue(imageSource.isIdentityHashAmbiguous());
+        long fingerprint = imageSource.identityHashValue();
+        long contentHash = imageSource.contentHashValue();
+
+        // rewritten with the same size, within the same modification time, is only told apart by its content
+        BufferedImage changed = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        changed.setRGB(0, 0, 0xffffff);
+        ImageIO.write(changed, "png", imageFile);
+        imageFile.setLastModified(lastModified);
+        assertNotEquals(contentHash, imageSource.contentHashValue());
+
+        // once the file is old enough, its fingerprint stays the same
+        ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+        imageFile.setLastModified(lastModified - 10_000);
+        assertFalse(imageSource.isIdentityHashAmbiguous());
+        long aged = imageSource.identityHashValue();
+        assertEquals(aged, imageSource.identityHashValue());
+        imageFile.setLastModified(lastModified);
+        assertEquals(fingerprint, imageSource.identityHashValue());
     }
 
     @Test
@@ -27,6 +27,8 @@ class ImageSourceResourceTest {
         ImageSourceResource resource = new ImageSourceResource("/testImage.png");
         long hash = resource.identityHashValue();
         assertNotEquals(0, hash);
+        assertEquals(hash, resource.identityHashValue());
+        assertThrows(ImageSourceException.class, () -> new ImageSourceResource("/invalidPath.png").identityHashValue());
     }
 
     @Test
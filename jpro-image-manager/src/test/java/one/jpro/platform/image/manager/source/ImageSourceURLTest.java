@@ -4,8 +4,16 @@ import one.jpro.platform.image.manager.ImageUtils;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +27,27 @@ public class ImageSourceURLTest {
         assertNotNull(image, "Image should be loaded from URL");
     }
 
+    @Test
+    public void testLoadImageForTargetSize() throws Exception {
+        File largeImageFile = File.createTempFile("large", ".png");
+        largeImageFile.deleteOnExit();
+        ImageIO.write(new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB), "png", largeImageFile);
+        ImageSourceURL source = new ImageSourceURL(largeImageFile.toURI().toURL());
+
+        // the size is only known from the header of the image, which is read once
+        assertNull(source.getImageSize());
+        List<Dimension> sizes = new ArrayList<>();
+        BufferedImage image = source.loadImage(size -> {
+            sizes.add(size);
+            return new Dimension(size.width / 8, size.height / 8);
+        });
+        assertEquals(List.of(new Dimension(2400, 1600)), sizes);
+        assertEquals(600, image.getWidth());
+        assertEquals(400, image.getHeight());
+
+        assertEquals(2400, source.loadImage(size -> null).getWidth());
+    }
+
     @Test
     public void testIdentityHashValue() {
         URL testURL = this.getClass().getResource("/testImage.png");
@@ -28,6 +57,29 @@ public class ImageSourceURLTest {
         assertNotEquals(0, hashValue, "Hash value should be generated from URL");
     }
 
+    @Test
+    public void testIdentityHashValueOfJarEntry() throws Exception {
+        File jar1 = createJar(new byte[]{1, 2, 3});
+        File jar2 = createJar(new byte[]{1, 2, 4});
+        ImageSourceURL source1 = new ImageSourceURL(new URL("jar:" + jar1.toURI() + "!/image.png"));
+        ImageSourceURL source2 = new ImageSourceURL(new URL("jar:" + jar2.toURI() + "!/image.png"));
+
+        assertEquals(source1.identityHashValue(), source1.identityHashValue());
+        assertNotEquals(source1.identityHashValue(), source2.identityHashValue(),
+                "Hash value should be generated from the content of the entry");
+    }
+
+    private static File createJar(byte[] content) throws Exception {
+        File jar = File.createTempFile("images", ".jar");
+        jar.deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("image.png"));
+            out.write(content);
+            out.closeEntry();
+        }
+        return jar;
+    }
+
     @Test
     public void testJsonSerialization() {
         final URL testURL = this.getClass().getResource("/testImage.png");
@@ -0,0 +1,85 @@
+package one.jpro.platform.image.manager.transformer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageResamplerTest {
+
+    @ParameterizedTest
+    @EnumSource(ImageResampler.Method.class)
+    public void testResizeCustomType(ImageResampler.Method method) {
+        ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        BufferedImage image = new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(640, 480),
+                false, null);
+        assertEquals(BufferedImage.TYPE_CUSTOM, image.getType());
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(new Color(0x336699));
+        g2d.fillRect(0, 0, 640, 480);
+        g2d.dispose();
+
+        BufferedImage resized = ImageResampler.resize(image, 100, 75, method);
+        assertEquals(100, resized.getWidth());
+        assertEquals(75, resized.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, resized.getType());
+        assertColor(0xff336699, resized.getRGB(50, 37));
+        assertColor(0xff336699, resized.getRGB(0, 0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ImageResampler.Method.class)
+    public void testResizeKeepsAlpha(ImageResampler.Method method) {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_4BYTE_ABGR);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 300; x++) {
+                image.setRGB(x, y, 0x80ff0000);
+            }
+        }
+
+        BufferedImage resized = ImageResampler.resize(image, 30, 20, method);
+        assertEquals(BufferedImage.TYPE_INT_ARGB, resized.getType());
+        assertColor(0x80ff0000, resized.getRGB(15, 10));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ImageResampler.Method.class, names = {"PROGRESSIVE", "LANCZOS"})
+    public void testLargeReductionAveragesPixels(ImageResampler.Method method) {
+        BufferedImage checkerboard = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 1024; y++) {
+            for (int x = 0; x < 1024; x++) {
+                checkerboard.setRGB(x, y, ((x + y) & 1) == 0 ? 0xffffffff : 0xff000000);
+            }
+        }
+
+        BufferedImage resized = ImageResampler.resize(checkerboard, 64, 64, method);
+        for (int y = 4; y < 60; y += 7) {
+            for (int x = 4; x < 60; x += 7) {
+                int gray = resized.getRGB(x, y) & 0xff;
+                assertTrue(Math.abs(gray - 128) <= 8, "Aliased pixel: " + gray);
+            }
+        }
+    }
+
+    @Test
+    public void testUpscale() {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        BufferedImage resized = ImageResampler.resize(image, 40, 30, ImageResampler.Method.LANCZOS);
+        assertEquals(40, resized.getWidth());
+        assertEquals(30, resized.getHeight());
+        assertThrows(IllegalArgumentException.class, () -> ImageResampler.resize(image, 0, 10));
+    }
+
+    private static void assertColor(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int difference = Math.abs(((expected >>> shift) & 0xff) - ((actual >>> shift) & 0xff));
+            assertTrue(difference <= 2, String.format("Expected %08x but was %08x", expected, actual));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package one.jpro.platform.image.manager.transformer;
 import org.junit.jupiter.api.Test;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 
@@ -20,4 +21,17 @@ public class ImageTransformerFitWidthTest {
         assertEquals(100, transformedImage.getWidth());
         assertEquals((originalImage.getHeight() * 100) / originalImage.getWidth(), transformedImage.getHeight());
     }
+
+    @Test
+    public void testTransformReducedImage() {
+        ImageTransformerFitWidth transformer = new ImageTransformerFitWidth(300);
+        Dimension targetSize = transformer.getTargetSize(6000, 4000);
+        assertEquals(new Dimension(300, 200), targetSize);
+
+        // an image decoded with a subsampling of 10 keeps the size computed from the original image
+        BufferedImage reducedImage = new BufferedImage(600, 401, BufferedImage.TYPE_INT_RGB);
+        BufferedImage transformedImage = transformer.transform(reducedImage, targetSize);
+        assertEquals(300, transformedImage.getWidth());
+        assertEquals(200, transformedImage.getHeight());
+    }
 }
\ No newline at end of file
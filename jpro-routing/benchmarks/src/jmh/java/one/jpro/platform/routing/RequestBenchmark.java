@@ -0,0 +1,49 @@
+package one.jpro.platform.routing;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing a request with {@link Request#fromString(String)} and routing it
+ * through nested {@code path(...)} routes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    private String url;
+    private Route route;
+
+    @Setup
+    public void setup() {
+        final Response leaf = Response.redirect("/done");
+        Route nested = Route.get("/leaf", r -> leaf);
+        final StringBuilder path = new StringBuilder();
+        for (int i = depth - 1; i >= 0; i--) {
+            nested = Route.empty().path("/s" + i, nested);
+        }
+        for (int i = 0; i < depth; i++) {
+            path.append("/s").append(i);
+        }
+        url = "http://localhost:8080" + path + "/leaf?tag=a&tag=b&q=x+y%20z";
+        route = nested;
+    }
+
+    @Benchmark
+    public Request parse() {
+        return Request.fromString(url);
+    }
+
+    @Benchmark
+    public Response parseAndRoute() {
+        return route.apply(Request.fromString(url));
+    }
+}
@@ -0,0 +1,90 @@
+package one.jpro.platform.routing.crawl;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import one.jpro.platform.routing.LinkUtil;
+import one.jpro.platform.routing.Response;
+import one.jpro.platform.routing.Route;
+import one.jpro.platform.routing.RouteNode;
+import one.jpro.platform.routing.View;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the throughput of {@link AppCrawler#crawlApp} in pages per second, with a growing number of pages
+ * in flight, on an app of linked pages like the crawled apps in {@code core-test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppCrawlerBenchmark {
+
+    private static final int PAGES = 200;
+
+    @Param({"1", "4", "16"})
+    public int parallelism;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            Platform.startup(latch::countDown);
+            latch.await();
+        } catch (IllegalStateException ex) {
+            // already started
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGES)
+    public AppCrawler.CrawlReportApp crawlApp() {
+        return AppCrawler.crawlApp("http://localhost", this::createApp, parallelism);
+    }
+
+    private RouteNode createApp() {
+        Route route = Route.redirect("/", "/page1");
+        for (int i = 1; i <= PAGES; i++) {
+            final int page = i;
+            route = route.and(Route.get("/page" + page, request -> Response.view(new Page(page))));
+        }
+        final RouteNode app = new RouteNode(null);
+        app.setRoute(route);
+        return app;
+    }
+
+    private static class Page extends View {
+        private final int page;
+
+        Page(int page) {
+            this.page = page;
+        }
+
+        @Override
+        public String title() {
+            return "page " + page;
+        }
+
+        @Override
+        public String description() {
+            return "description of page " + page;
+        }
+
+        @Override
+        public Node content() {
+            final VBox box = new VBox();
+            for (int target : new int[]{page + 1, page * 2, page * 3}) {
+                final Label label = new Label("page " + target);
+                LinkUtil.setLink(label, "/page" + target, "link to page " + target);
+                box.getChildren().add(label);
+            }
+            return box;
+        }
+    }
+}
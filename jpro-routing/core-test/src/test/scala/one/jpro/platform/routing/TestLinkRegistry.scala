@@ -0,0 +1,121 @@
+package one.jpro.platform.routing
+
+import org.junit.jupiter.api.Test
+import simplefx.all._
+import simplefx.core._
+
+class TestLinkRegistry {
+
+  val messages = new java.util.ArrayList[String]()
+  val scheduled = new java.util.ArrayList[Runnable]()
+  val batcher = new ScriptBatcher(script => messages.add(script), runnable => scheduled.add(runnable))
+  var wrapped = 0
+  val registry = new LinkRegistry(node => { wrapped += 1; "a" + wrapped }, batcher)
+
+  def pulse(): Unit = {
+    val runnables = new java.util.ArrayList[Runnable](scheduled)
+    scheduled.clear()
+    runnables.forEach(_.run())
+  }
+
+  def setLink(node: Node, link: String): Unit = {
+    if(LinkRegistry.setLink(node, link, None, pushState = true, external = false)) {
+      registry.attach(node)
+    }
+  }
+
+  @Test
+  def testLinksAreSynchronizedInOneMessage(): Unit = inFX {
+    val nodes = (1 to 500).map(_ => new Region)
+    nodes.zipWithIndex.foreach { case (node, i) => setLink(node, "/page" + i) }
+    pulse()
+    assert(messages.size == 1, messages.size)
+    assert(wrapped == 500)
+    assert(registry.size == 500)
+    assert(messages.get(0).contains("window.jproSetLink = function"))
+    assert(messages.get(0).contains("""jproSetLink(a500,"/page499",true,false,null,"""))
+
+    nodes.zipWithIndex.foreach { case (node, i) => setLink(node, "/other" + i) }
+    nodes.head.resize(100, 20)
+    pulse()
+    assert(messages.size == 2, messages.size)
+    assert(wrapped == 500)
+    assert(messages.get(1).contains("""jproSetLink(a1,"/other0",true,false,null,100.0,20.0)"""))
+    assert(!messages.get(1).contains("/page"))
+
+    pulse()
+    assert(messages.size == 2, "nothing changed")
+  }
+
+  @Test
+  def testDetachedLinksAreReleased(): Unit = inFX {
+    val nodes = (1 to 10).map(_ => new Region)
+    val root = new Group
+    val scene = new Scene(root)
+    nodes.foreach { node =>
+      root.getChildren.add(node)
+      setLink(node, "/page")
+    }
+    pulse()
+    root.getChildren.removeAll(nodes.take(4): _*)
+    registry.releaseDetached()
+    assert(registry.size == 6)
+
+    nodes.head.resize(50, 50)
+    pulse()
+    assert(messages.size == 1, "released links are not synchronized")
+
+    root.getChildren.add(nodes.head)
+    assert(registry.size == 7)
+    pulse()
+    assert(messages.size == 2)
+    assert(messages.get(1).contains("jproSetLink(a1,"))
+    assert(wrapped == 10)
+  }
+
+  @Test
+  def testDisposedRegistryForgetsItsLinks(): Unit = inFX {
+    val nodes = (1 to 4).map(_ => new Region)
+    val root = new Group
+    val scene = new Scene(root)
+    nodes.foreach { node =>
+      root.getChildren.add(node)
+      setLink(node, "/page")
+    }
+    pulse()
+    root.getChildren.remove(nodes.head)
+    registry.releaseDetached()
+    registry.dispose()
+    assert(registry.size == 0)
+
+    nodes.last.resize(50, 50)
+    root.getChildren.add(nodes.head)
+    pulse()
+    assert(registry.size == 0, "released links are not registered again")
+    assert(messages.size == 1, "disposed links are not synchronized")
+
+    // shown in another session, the links are wrapped again
+    val other = new LinkRegistry(node => { wrapped += 1; "b" + wrapped }, batcher)
+    nodes.foreach(node => other.attach(node))
+    pulse()
+    assert(other.size == 4)
+    assert(wrapped == 8)
+  }
+
+  @Test
+  def testPrefetchObserverReadsTheAttributeOfObservedLinks(): Unit = {
+    val read = """entry\.target\.dataset\.(\w+)""".r
+      .findAllMatchIn(LinkRegistry.PREFETCH_OBSERVER_SCRIPT).map(_.group(1)).toSet
+    val observed = """a\.dataset\.(\w+) = link;\s*if\(window\.jproPrefetchObserver\) window\.jproPrefetchObserver\.observe\(a\)""".r
+      .findAllMatchIn(LinkRegistry.INSTALL_SCRIPT).map(_.group(1)).toSet
+    assert(observed.size == 1, observed)
+    assert(read == observed, (read, observed))
+  }
+
+  @Test
+  def testJsString(): Unit = {
+    assert(LinkRegistry.jsString(null) == "null")
+    assert(LinkRegistry.jsString("/a b") == "\"/a b\"")
+    assert(LinkRegistry.jsString("\"x\"\\\n</script>") == "\"\\\"x\\\"\\\\\\n\\u003c/script>\"")
+  }
+}
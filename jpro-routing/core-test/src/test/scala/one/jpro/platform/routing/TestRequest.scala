@@ -8,6 +8,47 @@ class TestRequest {
     assert(Request.fromString("http://localhost:8081/d").getQueryParametersScala() == Map())
     assert(Request.fromString("http://localhost:8081/d?").getQueryParametersScala() == Map())
     assert(Request.fromString("http://localhost:8081/d?x=1&y=2").getQueryParametersScala() == Map("x" -> "1", "y" -> "2"))
-    assert(Request.fromString("http://localhost:8081/d?name=aa%26bb").getQueryParametersScala() == Map("name" -> "aa%26bb"))
+    assert(Request.fromString("http://localhost:8081/d?name=aa%26bb").getQueryParametersScala() == Map("name" -> "aa&bb"))
+  }
+
+  @Test
+  def urlParts(): Unit = {
+    val request = Request.fromString("https://user@example.com:8443/a%20b/c?x=1#top")
+    assert(request.getProtocol() == "https")
+    assert(request.getPort() == 8443)
+    assert(request.getPath() == "/a b/c")
+    assert(request.getOriginalPath() == "/a b/c")
+    assert(request.getQueryParametersScala() == Map("x" -> "1"))
+
+    val relative = Request.fromString("/d/e?x=1")
+    assert(relative.getProtocol() == null)
+    assert(relative.getPort() == -1)
+    assert(relative.getPath() == "/d/e")
+
+    assert(Request.fromString("http://localhost").getPath() == "")
+    assert(Request.fromString("http://[::1]:8080/x").getPort() == 8080)
+    assert(Request.fromString("http://[::1]/x").getPort() == -1)
+  }
+
+  @Test
+  def queryParameters(): Unit = {
+    val request = Request.fromString("/d?tag=a&tag=b&flag&&q=x+y%20z&e=%C3%A4&bad=%zz#tag=c")
+    assert(request.getQueryParameter("tag") == Some("a"))
+    assert(request.getQueryParameterValuesScala("tag") == List("a", "b"))
+    assert(request.getQueryParameterValues("tag") == java.util.Arrays.asList("a", "b"))
+    assert(request.getQueryParameterValues("missing").isEmpty)
+    assert(request.getQueryParameter("flag") == Some(""))
+    assert(request.getQueryParameter("q") == Some("x y z"))
+    assert(request.getQueryParameter("e") == Some("ä"))
+    assert(request.getQueryParameter("bad") == Some("%zz"))
+    assert(request.getQueryParameters().get("tag") == "a")
+  }
+
+  @Test
+  def copiesShareTheQuery(): Unit = {
+    val request = Request.fromString("/a/b?x=1")
+    val copy = request.copy(path = "/b", directory = request.resolve("/a"))
+    assert(copy.getQueryParameters() eq request.getQueryParameters())
+    assert(copy.getQueryParameter("x") == Some("1"))
   }
 }
@@ -0,0 +1,62 @@
+package one.jpro.platform.routing
+
+import org.junit.jupiter.api.Test
+import simplefx.core._
+import simplefx.experimental._
+
+class TestRoute {
+
+  def resolve(route: Route, path: String): ResponseResult = {
+    inFX(route.apply(Request.fromString("http://localhost" + path))).future.await
+  }
+
+  def redirect(to: String): java.util.function.Function[Request, Response] = r => Response.redirect(to)
+
+  @Test
+  def testIndexedRoutesKeepTheirOrder(): Unit = {
+    var evaluated = List.empty[String]
+    val pages = (1 to 300).foldLeft(Route.empty()) { (route, i) =>
+      route.and(Route.get("/page" + i, r => {
+        evaluated ::= "/page" + i
+        Response.redirect("/target" + i)
+      }))
+    }
+    val route = pages
+      .and(Route.get("/page200", redirect("/shadowed")))
+      .and(r => Response.redirect("/fallback"))
+
+    assert(resolve(route, "/page200") == Redirect("/target200"))
+    assert(evaluated == List("/page200"), evaluated)
+    assert(resolve(route, "/unknown") == Redirect("/fallback"))
+  }
+
+  @Test
+  def testEmptyResponsesFallBackToTheNextRoute(): Unit = {
+    val route = Route.empty()
+      .and(Route.get("/a", r => Response.empty()))
+      .and(Route.get("/b", redirect("/b1")))
+      .and(Route.get("/a", redirect("/a2")))
+
+    assert(resolve(route, "/a") == Redirect("/a2"))
+    assert(resolve(route, "/b") == Redirect("/b1"))
+    assert(resolve(route, "/c") == null)
+  }
+
+  @Test
+  def testPathPrefixesAndWhen(): Unit = {
+    val admin = Route.empty()
+      .and(Route.get("/users", r => Response.redirect(r.getDirectory() + "/users")))
+    val route = Route.empty()
+      .and(Route.get("/", redirect("/home")))
+      .path("/admin", admin)
+      .when(r => r.getPath() == "/admin/secret", Route.get("/admin/secret", redirect("/denied")))
+      .path("/admin/users", Route.get("/list", redirect("/nested")))
+      .and(Route.get("/admin/users", redirect("/exact")))
+
+    assert(resolve(route, "/") == Redirect("/home"))
+    assert(resolve(route, "/admin/users") == Redirect("/admin/users"))
+    assert(resolve(route, "/admin/secret") == Redirect("/denied"))
+    assert(resolve(route, "/admin/users/list") == Redirect("/nested"))
+    assert(resolve(route, "/adminx/users") == null)
+  }
+}
@@ -0,0 +1,59 @@
+package one.jpro.platform.routing
+
+import org.junit.jupiter.api.Test
+
+class TestScriptBatcher {
+
+  val messages = new java.util.ArrayList[String]()
+  val scheduled = new java.util.ArrayList[Runnable]()
+  val batcher = new ScriptBatcher(script => messages.add(script), runnable => scheduled.add(runnable))
+
+  def pulse(): Unit = {
+    val runnables = new java.util.ArrayList[Runnable](scheduled)
+    scheduled.clear()
+    runnables.forEach(_.run())
+  }
+
+  @Test
+  def testNavigationIsOneMessage(): Unit = {
+    batcher.executeScript("""history.pushState(null, null, "/page");""")
+    batcher.executeScript("scroll(0,0)")
+    batcher.executeScript("""document.title = "title";""")
+    batcher.executeScript("""document.querySelector('meta[name="description"]').setAttribute("content", "desc");""")
+    batcher.executeScript("history.replaceState({saveScroll: true}, null, null)")
+    assert(messages.isEmpty)
+    assert(scheduled.size == 1)
+
+    pulse()
+    assert(messages.size == 1, messages)
+    assert(batcher.getBatchCount() == 1)
+    val script = messages.get(0)
+    assert(script.indexOf("history.pushState") < script.indexOf("document.title"))
+    assert(script.indexOf("document.title") < script.indexOf("history.replaceState"))
+
+    pulse()
+    assert(messages.size == 1, "an empty batch is not sent")
+  }
+
+  @Test
+  def testEveryPulseIsOneMessage(): Unit = {
+    for(pulses <- 1 to 3) {
+      for(link <- 1 to 100) {
+        batcher.executeScript(s"a$link.href = '/page$link';")
+      }
+      pulse()
+      assert(messages.size == pulses, messages)
+    }
+  }
+
+  @Test
+  def testFlush(): Unit = {
+    batcher.executeScript("a()")
+    batcher.flush()
+    assert(messages.size == 1)
+    batcher.executeScript("b()")
+    pulse()
+    assert(messages.size == 2)
+    assert(messages.get(1).contains("b()") && !messages.get(1).contains("a()"))
+  }
+}
@@ -9,6 +9,8 @@ import simplefx.all
 import org.junit.jupiter.api.Test
 import simplefx.util.Predef.intercept
 
+import javafx.beans.property.SimpleObjectProperty
+
 class TestAppCrawler {
 
   @Test
@@ -46,6 +48,24 @@ class TestAppCrawler {
     assert(result.deadLinks.contains("/page3"), result.pages)
   }
 
+  @Test
+  def testParallelCrawlApp(): Unit = {
+    val numPages = 200
+    def app = new RouteNode(null) {
+      setRoute((1 to numPages).foldLeft(Route.empty()) { (route, i) =>
+        route.and(Route.get("/page" + i, r => Response.view(pageWithLink(
+          List("/page" + (i + 1), "/page" + (i * 2), "http://localhost/page" + (i * 3))))))
+      }.and(Route.redirect("/", "/page1")))
+    }
+    val sequential = AppCrawler.crawlApp("http://localhost", () => app, 1)
+    assert(sequential.pages.size == numPages, sequential.pages)
+    assert(sequential.pages.take(3) == List("/page1", "/page2", "/page3"), sequential.pages)
+    for (parallelism <- List(2, 4, 16)) {
+      val parallel = AppCrawler.crawlApp("http://localhost", () => app, parallelism)
+      assert(parallel == sequential, s"parallelism $parallelism: ${parallel.pages}")
+    }
+  }
+
   @Test
   def testEmptyImage(): Unit = {
     def app = new RouteNode(null) {
@@ -83,6 +103,96 @@ class TestAppCrawler {
     assert(r.links.contains(LinkInfo("/list9","")))
   }
 
+  @Test
+  def testListViewReusesOneCell(): Unit = inFX {
+    var cells = 0
+    val view = new View {
+      override def title: String = ""
+      override def description: String = ""
+      val content: all.Node = new ListView[String] {
+        getItems.addAll((1 to 1000).map(_.toString): _*)
+        cellFactory = (v: ListView[String]) => {
+          cells += 1
+          new ListCell[String] { listCell =>
+            listCell.setGraphic(new Label() {
+              listCell.itemProperty().addListener((p,o,n) => {
+                LinkUtil.setLink(this, "/list" + n)
+              })
+            })
+          }
+        }
+      }
+    }
+    val r = AppCrawler.crawlPage(view)
+    assert(r.links.map(_.url).toSet == (1 to 1000).map("/list" + _).toSet)
+    // the one cell of the extractor, and at most the one the skin of the ListView measures its items with
+    assert(cells <= 2, cells)
+  }
+
+  @Test
+  def testTableView(): Unit = inFX {
+    val view = new View {
+      override def title: String = ""
+      override def description: String = ""
+      val content: all.Node = new TableView[String] {
+        getItems.addAll("a", "b")
+        getColumns.add(new TableColumn[String, Node] {
+          setCellValueFactory(features => new SimpleObjectProperty[Node](new Label() {
+            LinkUtil.setLink(this, "/table/" + features.getValue)
+          }))
+        })
+      }
+    }
+    val r = AppCrawler.crawlPage(view)
+    assert(r.links.contains(LinkInfo("/table/a","")), r.links)
+    assert(r.links.contains(LinkInfo("/table/b","")), r.links)
+  }
+
+  @Test
+  def testTreeView(): Unit = inFX {
+    def item(link: String) = new TreeItem[Node](new Label() {
+      LinkUtil.setLink(this, link)
+    })
+    val view = new View {
+      override def title: String = ""
+      override def description: String = ""
+      val content: all.Node = new TreeView[Node] {
+        val root = item("/tree/root")
+        val collapsed = item("/tree/collapsed")
+        collapsed.getChildren.add(item("/tree/hidden"))
+        root.getChildren.addAll(item("/tree/child"), collapsed)
+        root.setExpanded(true)
+        setRoot(root)
+      }
+    }
+    val r = AppCrawler.crawlPage(view)
+    assert(r.links.contains(LinkInfo("/tree/root","")), r.links)
+    assert(r.links.contains(LinkInfo("/tree/child","")), r.links)
+    assert(r.links.contains(LinkInfo("/tree/collapsed","")), r.links)
+    assert(!r.links.contains(LinkInfo("/tree/hidden","")), r.links)
+  }
+
+  @Test
+  def testCustomLinkExtractor(): Unit = inFX {
+    class CustomControl(val target: String) extends Region
+    val extractor = new LinkExtractor {
+      def extract(node: Node, context: LinkExtractor.Context): Unit = node match {
+        case control: CustomControl => context.addLink(control.target, "custom")
+        case _ =>
+      }
+    }
+    def view = new View {
+      override def title: String = ""
+      override def description: String = ""
+      val content: all.Node = new StackPane {
+        this <++ new CustomControl("/custom")
+      }
+    }
+    assert(!AppCrawler.crawlPage(view).links.contains(LinkInfo("/custom", "custom")))
+    val r = AppCrawler.crawlPage(view, extractor :: LinkExtractor.defaults)
+    assert(r.links.contains(LinkInfo("/custom", "custom")), r.links)
+  }
+
   @Test
   def testScrollPane(): Unit = inFX{
     val view = new View {
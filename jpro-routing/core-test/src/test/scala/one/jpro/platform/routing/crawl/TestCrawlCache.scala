@@ -0,0 +1,122 @@
+package one.jpro.platform.routing.crawl
+
+import one.jpro.platform.routing.crawl.AppCrawler.{CrawlReportPage, LinkInfo}
+import one.jpro.platform.routing.{LinkUtil, Response, Route, RouteNode, View}
+import org.junit.jupiter.api.Test
+import simplefx.all._
+
+import java.io.File
+import java.nio.file.Files
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class TestCrawlCache {
+
+  val rendered = new AtomicInteger()
+
+  def page(pageTitle: String, links: List[String]): View = new View {
+    def title = pageTitle
+    def description = "desc"
+    override def content: Node = {
+      rendered.incrementAndGet()
+      new HBox {
+        links.foreach { link =>
+          this <++ new Label(link) {
+            LinkUtil.setLink(this, link, "desc1")
+          }
+        }
+      }
+    }
+  }
+
+  def app(page2Title: String, withPage3: Boolean): RouteNode = new RouteNode(null) {
+    setRoute(Route.empty()
+      .and(Route.get("/", r => Response.view(page("home", List("/page2")))))
+      .and(Route.get("/page2", r => Response.view(page(page2Title, if (withPage3) List("/page3") else Nil))))
+      .and(Route.get("/page3", r => Response.view(page("page3", Nil)))))
+  }
+
+  @Test
+  def testChangedLinksAreFound(): Unit = {
+    val file = new File(Files.createTempDirectory("crawl-cache").toFile, "index.bin")
+
+    val first = AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = false), 1, new CrawlCache(file))
+    assert(first.pages.toSet == Set("/", "/page2"), first.pages)
+    assert(rendered.getAndSet(0) == 2)
+    val homeModified = new CrawlCache(file).lastModified("/").get
+
+    // only the links of page2 change, behind the same title and description
+    Thread.sleep(5)
+    val changed = AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = true), 1, new CrawlCache(file))
+    assert(changed.pages.toSet == Set("/", "/page2", "/page3"), changed.pages)
+    assert(rendered.getAndSet(0) == 3)
+
+    val cache = new CrawlCache(file)
+    assert(cache.entry("/page2").get.report.links == List(LinkInfo("/page3", "desc1")))
+    assert(cache.lastModified("/").get == homeModified)
+    assert(cache.lastModified("/page2").get > homeModified)
+  }
+
+  @Test
+  def testSitemapHasTheChangeTimes(): Unit = {
+    val file = new File(Files.createTempDirectory("crawl-cache").toFile, "index.bin")
+    val cache = new CrawlCache(file)
+    val report = AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = false), 1, cache)
+    val sitemap = SitemapGenerator.createSitemap("http://localhost", report, cache)
+    val lastmod = Instant.ofEpochMilli(cache.lastModified("/page2").get).truncatedTo(ChronoUnit.SECONDS)
+    assert(sitemap.contains("<loc>http://localhost/page2</loc>\n    <lastmod>" + lastmod + "</lastmod>"), sitemap)
+    assert(sitemap.split("<lastmod>").length == 3, sitemap)
+    assert(!SitemapGenerator.createSitemap("http://localhost", report).contains("<lastmod>"))
+  }
+
+  @Test
+  def testOnlyChangedPagesAreRendered(): Unit = {
+    val file = new File(Files.createTempDirectory("crawl-cache").toFile, "index.bin")
+    def keyedCache = new CrawlCache(file, CrawlCache.titleRouteKey)
+
+    val first = AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = false), 1, keyedCache)
+    assert(first.pages.toSet == Set("/", "/page2"), first.pages)
+    assert(rendered.getAndSet(0) == 2)
+    assert(file.isFile)
+
+    val unchanged = AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = false), 1, keyedCache)
+    assert(unchanged.reports.toSet == first.reports.toSet)
+    assert(rendered.getAndSet(0) == 0)
+
+    val changed = AppCrawler.crawlApp("http://localhost", () => app("page2 changed", withPage3 = true), 1, keyedCache)
+    assert(changed.pages.toSet == Set("/", "/page2", "/page3"), changed.pages)
+    assert(changed.reports.exists(_.title == "page2 changed"))
+    // only the changed page and the newly reachable one
+    assert(rendered.getAndSet(0) == 2)
+
+    val cache = new CrawlCache(file)
+    assert(cache.size == 3)
+    assert(cache.entry("/page2").get.report.links == List(LinkInfo("/page3", "desc1")))
+  }
+
+  @Test
+  def testUnreachablePagesAreRemoved(): Unit = {
+    val file = new File(Files.createTempDirectory("crawl-cache").toFile, "index.bin")
+    AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = true), 1, new CrawlCache(file))
+    AppCrawler.crawlApp("http://localhost", () => app("page2", withPage3 = false), 1, new CrawlCache(file, view => view.title + "-v2"))
+    val cache = new CrawlCache(file)
+    assert(cache.size == 2)
+    assert(cache.entry("/page3").isEmpty)
+  }
+
+  @Test
+  def testFingerprint(): Unit = {
+    val report = CrawlReportPage("/", List(LinkInfo("/a", "desc")), Nil, "title", null)
+    assert(CrawlCache.fingerprint(report) == CrawlCache.fingerprint(report.copy(path = "/other")))
+    assert(CrawlCache.fingerprint(report) != CrawlCache.fingerprint(report.copy(description = "")))
+    assert(CrawlCache.fingerprint(report) != CrawlCache.fingerprint(report.copy(links = List(LinkInfo("/a", "")))))
+  }
+
+  @Test
+  def testCorruptCacheIsIgnored(): Unit = {
+    val file = Files.createTempFile("crawl-cache", ".bin").toFile
+    Files.write(file.toPath, Array[Byte](1, 2, 3))
+    assert(new CrawlCache(file).size == 0)
+  }
+}
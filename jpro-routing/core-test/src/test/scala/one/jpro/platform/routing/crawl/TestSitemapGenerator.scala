@@ -6,6 +6,10 @@ import one.jpro.platform.routing.{Redirect, Response, Route, RouteNode}
 import org.junit.jupiter.api.Test
 import simplefx.experimental._
 
+import java.io.StringReader
+import javax.xml.parsers.DocumentBuilderFactory
+import org.xml.sax.InputSource
+
 class TestSitemapGenerator {
   @Test
   def test(): Unit = {
@@ -37,4 +41,24 @@ class TestSitemapGenerator {
     println("SiteMap2: " + sm)
     assert(!sm.contains("mailto"), "sitemap contained mailto!")
   }
+
+  @Test
+  def testStreamedSitemapIsWellFormed(): Unit = {
+    val pages = (1 to 1000).map { i =>
+      AppCrawler.CrawlReportPage("/page" + i + "?a=1&b=2", Nil,
+        List(AppCrawler.ImageInfo("/img" + i + ".png", "image"), AppCrawler.ImageInfo("http://cdn/img" + i + ".png", null)),
+        "title", "desc")
+    }.toList
+    val report = AppCrawler.CrawlReportApp(pages.map(_.path), pages, Nil)
+    val sm = SitemapGenerator.createSitemap("http://localhost", report)
+
+    val factory = DocumentBuilderFactory.newInstance
+    factory.setNamespaceAware(true)
+    val doc = factory.newDocumentBuilder.parse(new InputSource(new StringReader(sm)))
+    assert(doc.getElementsByTagNameNS("http://www.sitemaps.org/schemas/sitemap/0.9", "url").getLength == 1000)
+    assert(doc.getElementsByTagNameNS("http://www.google.com/schemas/sitemap-image/1.1", "loc").getLength == 2000)
+    assert(sm.contains("<loc>http://localhost/page1?a=1&amp;b=2</loc>"))
+    assert(sm.contains("<image:loc>http://localhost/img1.png</image:loc>"))
+    assert(sm.contains("<image:loc>http://cdn/img1.png</image:loc>"))
+  }
 }
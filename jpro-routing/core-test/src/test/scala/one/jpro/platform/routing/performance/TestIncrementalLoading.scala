@@ -0,0 +1,98 @@
+package one.jpro.platform.routing.performance
+
+import one.jpro.platform.routing.performance.IncrementalLoading.RevealQueue
+import one.jpro.platform.routing.sessionmanager.DummySessionManager
+import org.junit.jupiter.api.Test
+import simplefx.all._
+import simplefx.core._
+
+import java.time.Duration
+
+class TestIncrementalLoading {
+
+  def hidden(y: Double): Rectangle = {
+    val rect = new Rectangle(0, y, 10, 10)
+    rect.setVisible(false)
+    rect
+  }
+
+  @Test
+  def testNodeBudget(): Unit = inFX {
+    val queue = new RevealQueue(() => Duration.ofSeconds(10), () => 3, () => 100, () => System.nanoTime())
+    val nodes = (0 until 10).map(i => hidden(i))
+    nodes.foreach(queue.add)
+    assert(queue.revealNext(0, 100) == 3)
+    assert(nodes.take(3).forall(_.isVisible))
+    assert(!nodes(3).isVisible)
+    assert(queue.size == 7)
+
+    val group = new Group(hidden(0), hidden(0), hidden(0), hidden(0))
+    group.setVisible(false)
+    queue.add(group)
+    // at least one node is revealed, even if it exceeds the budget
+    while(!group.isVisible) assert(queue.revealNext(0, 100) >= 1)
+    assert(queue.isEmpty)
+  }
+
+  @Test
+  def testTimeBudget(): Unit = inFX {
+    var time = 0L
+    val queue = new RevealQueue(() => Duration.ofNanos(5), () => 1000, () => 100, () => { time += 1; time })
+    (0 until 20).foreach(i => queue.add(hidden(i)))
+    val revealed = queue.revealNext(0, 100)
+    assert(revealed >= 1 && revealed < 20, revealed)
+  }
+
+  @Test
+  def testNodesNearTheViewportFirst(): Unit = inFX {
+    val far = hidden(1000)
+    val near = hidden(50)
+    new Scene(new Pane(far, near), 100, 100)
+    val queue = new RevealQueue(() => Duration.ofSeconds(10), () => 1, () => 100, () => System.nanoTime())
+    queue.add(far)
+    queue.add(near)
+    queue.revealNext(0, 100)
+    assert(near.isVisible)
+    assert(!far.isVisible)
+    queue.revealNext(0, 100)
+    assert(far.isVisible)
+  }
+
+  @Test
+  def testNodesNearTheScrolledViewportFirst(): Unit = inFX {
+    // a view that isn't fullscreen makes the scene as tall as its content, and the browser window scrolls over it
+    val top = hidden(50)
+    val scrolledTo = hidden(3050)
+    val scene = new Scene(new Pane(top, scrolledTo), 100, 5000)
+    assert(new DummySessionManager().visibleArea(scene) == (0.0, 5000.0))
+    val queue = new RevealQueue(() => Duration.ofSeconds(10), () => 1, () => 100, () => System.nanoTime())
+    queue.add(top)
+    queue.add(scrolledTo)
+    queue.revealNext(3000, 3100)
+    assert(scrolledTo.isVisible)
+    assert(!top.isVisible)
+  }
+
+  @Test
+  def testScanBudget(): Unit = inFX {
+    val nodes = (0 until 100).map(i => hidden(1000 + i))
+    val near = hidden(50)
+    val all = nodes.take(50) ++ Seq(near) ++ nodes.drop(50)
+    new Scene(new Pane(all: _*), 100, 100)
+    val queue = new RevealQueue(() => Duration.ofSeconds(10), () => 1, () => 10, () => System.nanoTime())
+    all.foreach(queue.add)
+
+    // only 10 nodes are checked per frame, so the near node is found after a few frames
+    queue.revealNext(0, 100)
+    assert(!near.isVisible)
+    assert(nodes(0).isVisible)
+    var frames = 1
+    while(!near.isVisible) {
+      queue.revealNext(0, 100)
+      frames += 1
+    }
+    assert(frames <= 6, frames)
+    assert(nodes.count(_.isVisible) == frames - 1)
+    assert(queue.size == all.size - frames)
+  }
+}
@@ -0,0 +1,108 @@
+package one.jpro.platform.routing.performance
+
+import one.jpro.platform.routing.{Response, Route, RouteNode, View}
+import one.jpro.platform.routing.sessionmanager.{SessionManager, SessionManagerDesktop}
+import org.junit.jupiter.api.Test
+import simplefx.all._
+import simplefx.core._
+import simplefx.experimental._
+
+class TestRouteTimingFilter {
+
+  def page(nodes: Int): View = new View {
+    def title = "title"
+    def description = "desc"
+    override def content: Node = new VBox {
+      (1 until nodes).foreach(i => this <++ new Label("label" + i))
+    }
+  }
+
+  @Test
+  def testTimings(): Unit = {
+    val filter = new RouteTimingFilter()
+    val app = inFX(new RouteNode(null) {
+      setRoute(Route.empty()
+        .and(Route.get("/", r => Response.redirect("/old")))
+        .and(Route.get("/old", r => Response.redirect("/blog/new")))
+        .and(Route.get("/blog/new", r => Response.view(page(10))))
+        .and(Route.get("/blog/other", r => Response.view(page(5))))
+        .filter(filter))
+    })
+    def route(path: String) = inFX(app.route(path)).future.await
+
+    route("/")
+    route("/old")
+    val blogNew = route("/blog/new").asInstanceOf[View]
+    val blogOther = route("/blog/other").asInstanceOf[View]
+    // the content is measured when it is created
+    assert(filter.snapshot()("/blog").contentTime.count == 0)
+    inFX(blogNew.realContent)
+    inFX(blogOther.realContent)
+    inFX(blogOther.realContent)
+
+    val snapshot = filter.snapshot()
+    assert(snapshot.keySet == Set("/", "/old", "/blog"), snapshot)
+    val blog = snapshot("/blog")
+    assert(blog.resolveTime.count == 2)
+    assert(blog.contentTime.count == 2)
+    assert(blog.nodeCount.max == 10)
+    assert(blog.nodeCount.valueAtPercentile(0) == 5)
+    assert(blog.redirects.max == 2)
+    assert(snapshot("/").contentTime.count == 0)
+    assert(snapshot("/").resolveTime.count == 1)
+
+    filter.reset()
+    assert(filter.snapshot().isEmpty)
+  }
+
+  @Test
+  def testContentSeesSessionManager(): Unit = inFX {
+    var created = 0
+    var seenUrl: String = null
+    var seenSessionManager: SessionManager = null
+    val filter = new RouteTimingFilter()
+    val app = new RouteNode(null)
+    app.setRoute(Route.get("/page", r => Response.view(new View { view =>
+      def title = "title"
+      def description = "desc"
+      override def content: Node = {
+        created += 1
+        seenUrl = view.url
+        seenSessionManager = view.getSessionManager()
+        new Label("page")
+      }
+    })).filter(filter))
+    val sessionManager = new SessionManagerDesktop(app)
+
+    sessionManager.prefetch("/page")
+    assert(created == 0)
+
+    sessionManager.gotoURL("/page")
+    assert(created == 1)
+    assert(seenUrl == "/page", seenUrl)
+    assert(seenSessionManager eq sessionManager)
+    assert(filter.snapshot()("/page").contentTime.count == 1)
+  }
+
+  @Test
+  def testPrefixes(): Unit = {
+    val filter = new RouteTimingFilter(2, 256)
+    assert(filter.prefixOf("/") == "/")
+    assert(filter.prefixOf("/a") == "/a")
+    assert(filter.prefixOf("/a/b") == "/a/b")
+    assert(filter.prefixOf("/a/b/c") == "/a/b")
+    assert(new RouteTimingFilter().prefixOf("/a/b/c") == "/a")
+  }
+
+  @Test
+  def testHistogram(): Unit = {
+    val histogram = new RouteTimingFilter.Histogram
+    (1 to 1000).foreach(i => histogram.record(i * 1000L))
+    val snapshot = histogram.snapshot()
+    assert(snapshot.count == 1000)
+    assert(snapshot.max == 1000000)
+    assert(snapshot.mean == 500500)
+    val p50 = snapshot.valueAtPercentile(50)
+    assert(p50 >= 500000 && p50 <= 500000 * 1.125, p50)
+  }
+}
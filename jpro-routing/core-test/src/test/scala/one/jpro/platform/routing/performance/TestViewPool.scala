@@ -0,0 +1,70 @@
+package one.jpro.platform.routing.performance
+
+import one.jpro.platform.routing.{Response, Route, RouteNode, RouteUtils, View}
+import org.junit.jupiter.api.Test
+import simplefx.all._
+import simplefx.core._
+import simplefx.experimental._
+
+class TestViewPool {
+
+  class Page extends PooledView {
+    var resets = 0
+    def title = "page"
+    def description = "desc"
+    override def content: Node = new Label("page")
+    override def reset(): Unit = resets += 1
+  }
+
+  @Test
+  def testReuse(): Unit = inFX {
+    val pool = new ViewPool(1)
+    val first = pool.get("page", () => new Page)
+    assert(pool.size("page") == 0)
+    assert(!ViewPool.isPooled(first))
+
+    first.mapContent(x => x).onClose()
+    assert(pool.size("page") == 1)
+    assert(ViewPool.isPooled(first))
+    assert(ViewPool.isPooled(first.mapContent(x => x)))
+
+    val second = pool.get("page", () => new Page)
+    assert(second eq first)
+    assert(second.resets == 1)
+    assert(!ViewPool.isPooled(second))
+
+    val third = pool.get("page", () => new Page)
+    assert(third ne first)
+    first.onClose()
+    third.onClose()
+    assert(pool.size("page") == 1)
+    assert(!ViewPool.isPooled(third))
+
+    pool.clear()
+    assert(pool.size("page") == 0)
+  }
+
+  @Test
+  def testTransitionContainerIsReused(): Unit = {
+    val app = inFX(new RouteNode(null) {
+      setRoute(Route.empty()
+        .and(Route.get("/a", r => Response.view(View.fromNode(new Label("a")))))
+        .and(Route.get("/b", r => Response.view(View.fromNode(new Label("b")))))
+        .filter(RouteUtils.transitionFilter(0.01)))
+    })
+    def route(path: String, old: Node): View = inFX(app.route(path, old)).future.await.asInstanceOf[View]
+
+    val first = route("/a", null)
+    val firstContent = inFX(first.realContent)
+    val second = route("/b", firstContent)
+    val container = inFX(second.realContent)
+    assert(container.isInstanceOf[StackPane])
+    val third = route("/a", container)
+    assert(inFX(third.realContent) eq container)
+    val shown = inFX {
+      val children = container.asInstanceOf[StackPane].getChildren
+      children.get(children.size - 1)
+    }
+    assert(shown eq inFX(third.subView().realContent))
+  }
+}
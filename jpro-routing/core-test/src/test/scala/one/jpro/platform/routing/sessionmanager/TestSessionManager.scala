@@ -1,6 +1,11 @@
 package one.jpro.platform.routing.sessionmanager
 
+import one.jpro.platform.routing.{Filter, Response, Route, RouteNode, RouteUtils, View}
 import org.junit.jupiter.api.Test
+import simplefx.all._
+import simplefx.core._
+
+import java.time.Duration
 
 class TestSessionManager {
   @Test
@@ -11,4 +16,95 @@ class TestSessionManager {
       assert(SessionManager.mergeURLs("http://a.com/b/c", "../d") == "http://a.com/d")
       assert(SessionManager.mergeURLs("http://a/b", "/") == "http://a/")
   }
+
+  def countingApp(routed: java.util.List[String], filter: Filter = Filter.empty()): RouteNode = {
+    val app = new RouteNode(null)
+    val route: Route = r => {
+      routed.add(r.getPath())
+      Response.view(new View {
+        def title = r.getPath()
+        def description = ""
+        override def content: Node = new Label(r.getPath())
+      })
+    }
+    app.setRoute(route.filter(filter))
+    app
+  }
+
+  @Test
+  def testPrefetch(): Unit = inFX {
+    val routed = new java.util.ArrayList[String]()
+    val sessionManager = new SessionManagerDesktop(countingApp(routed))
+    sessionManager.prefetchLimit = 1
+    sessionManager.gotoURL("/")
+    sessionManager.prefetch("/a")
+    sessionManager.prefetch("/a")
+    sessionManager.prefetch("/b") // drops /a
+    assert(routed.toString == "[/, /a, /b]", routed)
+
+    sessionManager.gotoURL("/b")
+    assert(routed.size == 3, routed)
+    sessionManager.gotoURL("/a")
+    assert(routed.size == 4, routed)
+    // a prefetched response is only used once
+    sessionManager.gotoURL("/b")
+    assert(routed.size == 5, routed)
+  }
+
+  @Test
+  def testPrefetchExpires(): Unit = inFX {
+    val routed = new java.util.ArrayList[String]()
+    val sessionManager = new SessionManagerDesktop(countingApp(routed))
+    sessionManager.prefetchMaxAge = Duration.ZERO
+    sessionManager.prefetch("/a")
+    sessionManager.gotoURL("/a")
+    assert(routed.toString == "[/a, /a]", routed)
+  }
+
+  @Test
+  def testPrefetchWithTransition(): Unit = inFX {
+    val routed = new java.util.ArrayList[String]()
+    val sessionManager = new SessionManagerDesktop(countingApp(routed, RouteUtils.transitionFilter(0.2)))
+    sessionManager.gotoURL("/")
+    val shown = sessionManager.container.getChildren.get(0)
+
+    // the prefetch doesn't start a transition away from the shown page
+    sessionManager.prefetch("/a")
+    assert(routed.toString == "[/, /a]", routed)
+    assert(sessionManager.container.getChildren.size == 1)
+    assert(shown.getParent eq sessionManager.container)
+    assert(sessionManager.view.title == "/")
+
+    // the transition reads the old content only when the view is shown, so the prefetched response is used,
+    // and transitions from the shown page
+    sessionManager.gotoURL("/a")
+    assert(routed.toString == "[/, /a]", routed)
+    assert(sessionManager.view.title == "/a")
+    assert(shown.getParent eq sessionManager.container.getChildren.get(0))
+    sessionManager.prefetch("/b")
+    assert(routed.size == 3, routed)
+  }
+
+  @Test
+  def testPrefetchStopsOnlyForRoutesReadingTheOldContent(): Unit = inFX {
+    val routed = new java.util.ArrayList[String]()
+    val readsOldContent: Filter = route => { request =>
+      if(request.getPath() == "/eager") request.getOldContent().get()
+      route.apply(request)
+    }
+    val sessionManager = new SessionManagerDesktop(countingApp(routed, readsOldContent))
+    sessionManager.gotoURL("/")
+    sessionManager.prefetch("/eager")
+    sessionManager.gotoURL("/eager")
+    // routed again with the shown page
+    assert(routed.toString == "[/, /eager, /eager]", routed)
+
+    sessionManager.gotoURL("/")
+    routed.clear()
+    sessionManager.prefetch("/eager")
+    sessionManager.prefetch("/other")
+    assert(routed.toString == "[/other]", routed)
+    sessionManager.gotoURL("/other")
+    assert(routed.size == 1, routed)
+  }
 }
@@ -0,0 +1,284 @@
+package one.jpro.platform.routing
+
+import com.jpro.webapi.WebAPI
+import javafx.beans.property.ReadOnlyProperty
+import javafx.beans.{InvalidationListener, Observable}
+import javafx.scene.Node
+
+import java.lang.ref.WeakReference
+
+/**
+ * The links of a browser session. Instead of installing listeners and executing scripts for every link,
+ * the links only record their state here. Changed links are synchronized together, in one script per turn
+ * of the FX thread, and clicks are handled by a single delegated handler on the client.
+ * All the methods have to be called on the FX thread.
+ */
+class LinkRegistry private[routing] (wrapNode: Node => String, scripts: ScriptBatcher) {
+  import LinkRegistry._
+
+  private val attached = new java.util.LinkedHashSet[Entry]
+  private val dirty = new java.util.LinkedHashSet[Entry]
+  // the nodes of released links, which still carry the sceneListener
+  private val released = new java.util.WeakHashMap[Node, java.lang.Boolean]
+  private var scheduled = false
+
+  // shared by all links, the node is the bean of the observed property
+  private val boundsListener: InvalidationListener = (observable: Observable) => {
+    val entry = entryOf(observable)
+    if(entry != null && entry.registry == this) markDirty(entry)
+  }
+
+  private val sceneListener: InvalidationListener = new InvalidationListener {
+    def invalidated(observable: Observable): Unit = {
+      val entry = entryOf(observable)
+      if(entry != null && entry.node.getScene != null) {
+        entry.node.sceneProperty.removeListener(this)
+        released.remove(entry.node)
+        attach(entry)
+      }
+    }
+  }
+
+  scripts.executeScript(INSTALL_SCRIPT)
+
+  /**
+   * Returns the number of links that are currently synchronized with the client.
+   */
+  def size: Int = attached.size
+
+  private[routing] def attach(node: Node): Unit = {
+    val entry = node.getProperties.get(ENTRY_KEY).asInstanceOf[Entry]
+    if(entry != null) attach(entry)
+  }
+
+  private def attach(entry: Entry): Unit = {
+    if(entry.registry == this) return
+    if(entry.element == null) {
+      entry.element = wrapNode(entry.node)
+      if(entry.element == null) return
+    }
+    entry.registry = this
+    entry.node.layoutBoundsProperty.addListener(boundsListener)
+    attached.add(entry)
+    markDirty(entry)
+  }
+
+  private def markDirty(entry: Entry): Unit = {
+    dirty.add(entry)
+    if(!scheduled) {
+      scheduled = true
+      scripts.executeDeferred(() => synchronizeLinks())
+    }
+  }
+
+  private def synchronizeLinks(): Unit = {
+    scheduled = false
+    if(dirty.isEmpty) return
+    val script = new java.lang.StringBuilder
+    dirty.forEach { entry =>
+      val bounds = entry.node.getLayoutBounds
+      script.append("jproSetLink(").append(entry.element)
+        .append(',').append(jsString(entry.link))
+        .append(',').append(entry.pushState)
+        .append(',').append(entry.external)
+        .append(',').append(jsString(entry.text.orNull))
+        .append(',').append(bounds.getWidth)
+        .append(',').append(bounds.getHeight)
+        .append(");\n")
+    }
+    dirty.clear()
+    scripts.executeScript(script.toString)
+  }
+
+  /**
+   * Releases the links whose nodes are no longer shown, like the ones of a closed view.
+   * If such a node is shown again, its link is registered again.
+   */
+  def releaseDetached(): Unit = {
+    val it = attached.iterator
+    while(it.hasNext) {
+      val entry = it.next
+      if(entry.node.getScene == null) {
+        it.remove()
+        dirty.remove(entry)
+        entry.registry = null
+        entry.node.layoutBoundsProperty.removeListener(boundsListener)
+        entry.node.sceneProperty.addListener(sceneListener)
+        released.put(entry.node, java.lang.Boolean.TRUE)
+      }
+    }
+  }
+
+  /**
+   * Forgets all the links, when the browser session is closed.
+   * Afterwards, neither the links nor the nodes of released links reference this registry.
+   */
+  private[routing] def dispose(): Unit = {
+    attached.forEach { entry =>
+      entry.registry = null
+      entry.element = null
+      entry.node.layoutBoundsProperty.removeListener(boundsListener)
+    }
+    attached.clear()
+    dirty.clear()
+    released.keySet.forEach { node =>
+      node.sceneProperty.removeListener(sceneListener)
+      val entry = node.getProperties.get(ENTRY_KEY).asInstanceOf[Entry]
+      if(entry != null) entry.element = null
+    }
+    released.clear()
+  }
+}
+
+object LinkRegistry {
+
+  private val ENTRY_KEY = "jpro-link-registry-entry"
+
+  private[routing] val INSTALL_SCRIPT =
+    """if(!window.jproSetLink) {
+      |  window.jproSetLink = function(a, link, pushState, external, title, width, height) {
+      |    var box = a.jproLinkBox;
+      |    if(!box) {
+      |      box = document.createElement('div');
+      |      box.style.display = 'block';
+      |      box.style.position = 'absolute';
+      |      a.appendChild(box);
+      |      a.jproLinkBox = box;
+      |    }
+      |    box.style.width = width + 'px';
+      |    box.style.height = height + 'px';
+      |    a.href = link.split(' ').join('%20');
+      |    if(pushState) {
+      |      a.dataset.jproPush = link;
+      |      if(window.jproPrefetchObserver) window.jproPrefetchObserver.observe(a);
+      |    } else {
+      |      delete a.dataset.jproPush;
+      |      if(window.jproPrefetchObserver) window.jproPrefetchObserver.unobserve(a);
+      |    }
+      |    if(external) a.target = '_blank'; else a.removeAttribute('target');
+      |    if(title != null) a.title = title; else a.removeAttribute('title');
+      |  };
+      |  document.addEventListener('click', function(event) {
+      |    var a = event.target.closest ? event.target.closest('a[data-jpro-push]') : null;
+      |    if(a && !event.shiftKey && !event.metaKey) {
+      |      jpro.jproGotoURL(a.dataset.jproPush);
+      |      event.preventDefault();
+      |    }
+      |  });
+      |  document.addEventListener('mouseover', function(event) {
+      |    var a = event.target.closest ? event.target.closest('a[data-jpro-push]') : null;
+      |    if(a && window.jproPrefetchOnHover && a !== window.jproPrefetchHovered) {
+      |      window.jproPrefetchHovered = a;
+      |      jpro.jproPrefetchURL(a.dataset.jproPush);
+      |    }
+      |  });
+      |}""".stripMargin
+
+  /**
+   * Prefetches the target of a link, once it scrolls into the viewport.
+   * It reads the same attribute as the delegated handlers, which `jproSetLink` sets before observing the link.
+   */
+  private[routing] val PREFETCH_OBSERVER_SCRIPT =
+    """window.jproPrefetchObserver = new IntersectionObserver(function(entries, observer) {
+      |  entries.forEach(function(entry) {
+      |    if(entry.isIntersecting && entry.target.dataset.jproPush) {
+      |      observer.unobserve(entry.target);
+      |      jpro.jproPrefetchURL(entry.target.dataset.jproPush);
+      |    }
+      |  });
+      |});""".stripMargin
+
+  // the session manager removes the registry of a closed session, the weak keys only cover sessions without one
+  private val registries = new java.util.WeakHashMap[WebAPI, LinkRegistry]()
+
+  /**
+   * Returns the link registry of the given browser session.
+   */
+  def apply(webAPI: WebAPI): LinkRegistry = registries.synchronized {
+    var registry = registries.get(webAPI)
+    if(registry == null) {
+      // only weakly referenced, so the map doesn't keep the WebAPI of a closed session
+      val webAPIRef = new WeakReference(webAPI)
+      registry = new LinkRegistry(node => {
+        val webAPI = webAPIRef.get
+        if(webAPI == null) null else webAPI.wrapNode("a", node).getName
+      }, ScriptBatcher(webAPI))
+      registries.put(webAPI, registry)
+    }
+    registry
+  }
+
+  /**
+   * Removes and disposes the link registry of the given browser session, once it is closed.
+   */
+  private[routing] def remove(webAPI: WebAPI): Unit = {
+    val registry = registries.synchronized(registries.remove(webAPI))
+    if(registry != null) registry.dispose()
+  }
+
+  /**
+   * Sets the link of the node. It is synchronized with the client, once the node is shown in a browser session.
+   */
+  def register(node: Node, link: String, text: Option[String], pushState: Boolean, external: Boolean): Unit = {
+    if(setLink(node, link, text, pushState, external)) {
+      WebAPI.getWebAPI(node, webAPI => LinkRegistry(webAPI).attach(node))
+    }
+  }
+
+  /**
+   * Records the link of the node, and returns whether the node had no link before.
+   */
+  private[routing] def setLink(node: Node, link: String, text: Option[String], pushState: Boolean,
+                               external: Boolean): Boolean = {
+    var entry = node.getProperties.get(ENTRY_KEY).asInstanceOf[Entry]
+    val isNew = entry == null
+    if(isNew) {
+      entry = new Entry(node)
+      node.getProperties.put(ENTRY_KEY, entry)
+    }
+    entry.link = link
+    entry.text = text
+    entry.pushState = pushState
+    entry.external = external
+    if(entry.registry != null) {
+      entry.registry.markDirty(entry)
+    }
+    isNew
+  }
+
+  private final class Entry(val node: Node) {
+    var link: String = _
+    var text: Option[String] = None
+    var pushState: Boolean = false
+    var external: Boolean = false
+    var registry: LinkRegistry = _
+    // the name of the JS variable of the wrapping <a> element
+    var element: String = _
+  }
+
+  private def entryOf(observable: Observable): Entry = observable match {
+    case property: ReadOnlyProperty[_] => property.getBean match {
+      case node: Node => node.getProperties.get(ENTRY_KEY).asInstanceOf[Entry]
+      case _ => null
+    }
+    case _ => null
+  }
+
+  /**
+   * Encodes the string as a JavaScript string literal.
+   */
+  private[routing] def jsString(x: String): String = {
+    if(x == null) return "null"
+    val sb = new java.lang.StringBuilder(x.length + 2).append('"')
+    x.foreach {
+      case '"' => sb.append("\\\"")
+      case '\\' => sb.append("\\\\")
+      case '\n' => sb.append("\\n")
+      case '\r' => sb.append("\\r")
+      case '<' => sb.append("\\u003c")
+      case c if c < 0x20 || c == 0x2028 || c == 0x2029 => sb.append(f"\\u${c.toInt}%04x")
+      case c => sb.append(c)
+    }
+    sb.append('"').toString
+  }
+}
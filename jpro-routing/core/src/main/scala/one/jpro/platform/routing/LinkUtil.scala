@@ -6,6 +6,7 @@ import simplefx.all._
 import simplefx.util.Predef._
 
 import java.net.URI
+import javafx.beans.{InvalidationListener, Observable}
 import one.jpro.platform.routing.sessionmanager.SessionManager
 import org.slf4j.{Logger, LoggerFactory}
 
@@ -89,6 +90,32 @@ object LinkUtil {
     man.gotoURL(man.url)
   }
 
+  /**
+   * Sets the links of many nodes at once, like the cells of a table. In the browser, the links of all
+   * the nodes are synchronized with a single script, and share one click handler on the client.
+   */
+  def setLinks(links: Seq[(Node, String)]): Unit = {
+    links.foreach { case (node, url) => setLink(node, url) }
+  }
+  def setLinks(links: java.util.Map[Node, String]): Unit = {
+    links.forEach((node, url) => setLink(node, url))
+  }
+
+  /**
+   * Resolves the target of the internal link of the node ahead of time,
+   * so navigating to it later doesn't have to wait for the route.
+   */
+  def prefetch(node: Node): Unit = {
+    val link = node.getProperties.get("link").asInstanceOf[String]
+    if(isInternalLink(link)) {
+      LinkUtil.getSessionManager(node).prefetch(link)
+    }
+  }
+
+  private def isInternalLink(url: String): Boolean = {
+    url != null && (url.startsWith("/") || url.startsWith("./") || url.startsWith("../"))
+  }
+
   private object LinkDesktop {
 
     private lazy val logger: Logger = LoggerFactory.getLogger(getClass.getName)
@@ -121,96 +148,39 @@ object LinkUtil {
             }
           }
         }
-      }
-    }
-  }
-
-  private object LinkJPro {
-
-    private lazy val logger: Logger = LoggerFactory.getLogger(getClass.getName)
-
-    @extension
-    class ExtendNodeWithLink(node: Node) {
-
-      def setNewLink(link: String, text: Option[String], pushState: Boolean, external: Boolean): Unit = {
-        if (link != null && !isValidLink(link)) {
-          logger.warn("Warning, link is not valid: " + link)
+        node.onMouseEntered --> { e =>
+          if(isInternalLink(link) && LinkUtil.getSessionManager(node).prefetchOnHover) {
+            prefetch(node)
+          }
         }
-
-        this.pushState = pushState
-        this.external = external
-        this.link = link
-        this.text = text
+        prefetchWhenVisible(node)
       }
+    }
 
-      @Bind var external: Boolean = true
-      @Bind var pushState: Boolean = false
-      @Bind var link: String = ""
-      @Bind var text: Option[String] = None
-
-      WebAPI.getWebAPI(node, webapi => {
-
-        val aElem = webapi.wrapNode("a", node)
-
-        val divBox = webapi.executeScriptWithVariable("document.createElement('div')");
-        webapi.executeScript(
-          s"""
-             |${aElem.getName}.appendChild(${divBox.getName});
-             |${divBox.getName}.style.display = 'block';
-             |${divBox.getName}.style.position = 'absolute';
-             |""".stripMargin)
-        node.labWH --> { wh =>
-          // set WH to a
-          webapi.executeScript(
-            s"""
-               |${divBox.getName}.style.width = '${wh._1}px';
-               |${divBox.getName}.style.height = '${wh._2}px';
-               |""".stripMargin)
-        }
-
-
-        @Bind var linkAndPush = <-- (link, pushState)
-        linkAndPush --> { case(link, pushState) =>
-          def script = if (pushState) {
-            s"""${aElem.getName}.onclick =  function(event) {
-               |  if(!event.shiftKey && !event.metaKey) {
-               |    jpro.jproGotoURL(\"${link.replace("\"", "\\\"")}\"); event.preventDefault();
-               |  }
-               |};""".stripMargin
-          } else s"${aElem.getName}.onclick = null;"
-          webapi.executeScript(
-            s"""${aElem.getName}.href = '${link.replace(" ", "%20").replace("'", "\\'")}';
-               |$script
-               |""".stripMargin)
-        }
-
-        external --> { external =>
-          if(external) {
-            webapi.executeScript(
-              s"""${aElem.getName}.target = '_blank';""".stripMargin)
-          } else {
-            webapi.executeScript(
-              s"""${aElem.getName}.removeAttribute("target");""".stripMargin)
-          }
-        }
-        text --> { x =>
-          // have to escape ' in text
-          if(x.isDefined) {
-            val escapedText = x.get.replace("'","\\'")
-            webapi.executeScript(
-              s"""${aElem.getName}.title = '$escapedText';""".stripMargin)
-          } else {
-            webapi.executeScript(
-              s"""${aElem.getName}.removeAttribute("title");""".stripMargin)
+    /**
+     * Prefetches the link, once the node intersects the scene. Every scroll moves the node in the scene,
+     * so the listener is kept until then, or removed right away when the session manager doesn't prefetch visible links.
+     */
+    private def prefetchWhenVisible(node: Node): Unit = {
+      val transform = node.localToSceneTransformProperty
+      transform.addListener(new InvalidationListener {
+        def invalidated(observable: Observable): Unit = {
+          transform.get() // revalidate, to be notified about the next change
+          val scene = node.getScene
+          if(scene != null) {
+            val sessionManager = LinkUtil.getSessionManager(node)
+            if(sessionManager == null || !sessionManager.prefetchOnVisible) {
+              transform.removeListener(this)
+            } else if(node.localToScene(node.getBoundsInLocal).intersects(0, 0, scene.getWidth, scene.getHeight)) {
+              transform.removeListener(this)
+              prefetch(node)
+            }
           }
         }
-
       })
     }
-
   }
 
-
   private def setLinkSimple(url: String, text: Option[String], pushState: Boolean, external: Boolean)(theNode: Node) = {
     if(url == null) {
       throw new NullPointerException("url was null")
@@ -223,9 +193,7 @@ object LinkUtil {
       theNode.setNewLink(url,text,pushState,
         external)
     } else {
-      import LinkJPro._
-      theNode.setNewLink(url, text, pushState,
-        external)
+      LinkRegistry.register(theNode, url, text, pushState, external)
     }
   }
 
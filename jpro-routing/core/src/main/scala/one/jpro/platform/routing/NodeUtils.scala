@@ -0,0 +1,25 @@
+package one.jpro.platform.routing
+
+import simplefx.all._
+
+private[routing] object NodeUtils {
+
+  /**
+   * Returns the number of nodes in the scene graph below and including the given node.
+   * The graph is traversed iteratively, so deep graphs don't overflow the stack.
+   */
+  def countNodes(root: Node): Long = {
+    var count = 0L
+    val pending = new java.util.ArrayDeque[Node]()
+    if(root != null) pending.push(root)
+    while(!pending.isEmpty) {
+      val node = pending.pop()
+      count += 1
+      node match {
+        case parent: Parent => parent.getChildrenUnmodifiable.forEach(child => pending.push(child))
+        case _ =>
+      }
+    }
+    count
+  }
+}
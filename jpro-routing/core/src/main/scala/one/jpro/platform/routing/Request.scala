@@ -5,8 +5,9 @@ import one.jpro.platform.routing.LinkUtil.isValidLink
 import org.slf4j.{Logger, LoggerFactory}
 
 import java.lang.ref.WeakReference
-import java.net.URI
-import java.util.{Map => JMap}
+import java.nio.charset.StandardCharsets
+import java.util.{Collections, List => JList, Map => JMap}
+import scala.collection.JavaConverters._
 
 case class Request (
   private val url: String,
@@ -16,12 +17,14 @@ case class Request (
   private val origPath: String,
   private val path: String,
   private val directory: String,
-  private val queryParameters: Map[String,String],
+  private val query: Request.QueryParameters,
   private val origOldContent: WeakReference[Node],
   private val oldContent: WeakReference[Node]
 ) {
 
-  assert(resolve(path) == origPath, s"resolve path: ${resolve(path)} != origPath: ${origPath}")
+  if(Request.checkPaths) {
+    assert(resolve(path) == origPath, s"resolve path: ${resolve(path)} != origPath: ${origPath}")
+  }
 
   def getUrl(): String = url
   def getProtocol(): String = protocol
@@ -32,19 +35,26 @@ case class Request (
   def getPath(): String = path
 
   def getDirectory(): String = directory
-  def getQueryParameter(key: String): Option[String] = queryParameters.get(key)
 
-  def getQueryParameterOrElse(key: String, default: String): String = queryParameters.getOrElse(key, default)
+  /**
+   * Returns the first value of the query parameter.
+   */
+  def getQueryParameter(key: String): Option[String] = query.first.get(key)
 
-  private lazy val immutableJavaMap: JMap[String, String] = {
-    import scala.collection.JavaConverters._
-    queryParameters.asJava
-  }
-  def getQueryParameters(): JMap[String,String] = immutableJavaMap
+  def getQueryParameterOrElse(key: String, default: String): String = query.first.getOrElse(key, default)
+
+  /**
+   * Returns all values of the query parameter, in the order they appear in the url.
+   */
+  def getQueryParameterValues(key: String): JList[String] = query.javaValues(key)
+
+  def getQueryParameterValuesScala(key: String): List[String] = query.all.getOrElse(key, Nil)
+
+  def getQueryParameters(): JMap[String,String] = query.javaMap
   def getOriginalOldContent(): WeakReference[Node] = origOldContent
   def getOldContent(): WeakReference[Node] = oldContent
 
-  def getQueryParametersScala(): Map[String,String] = queryParameters
+  def getQueryParametersScala(): Map[String,String] = query.first
 
 
   def resolve(path: String): String = {
@@ -75,19 +85,143 @@ object Request {
 
   private lazy val logger: Logger = LoggerFactory.getLogger(getClass.getName)
 
+  /**
+   * Whether links are validated and the paths of requests are checked against their original path,
+   * which is enabled in development with the system property `routing.dev`.
+   */
+  private[routing] val checkPaths: Boolean = java.lang.Boolean.getBoolean("routing.dev")
+
   private var wref_null = new WeakReference[Node](null)
+
+  /**
+   * The parsed query parameters of a request. They are shared by all copies of the request.
+   *
+   * @param first the first value of every parameter
+   * @param all   all values of every parameter
+   */
+  case class QueryParameters(first: Map[String, String], all: Map[String, List[String]]) {
+    lazy val javaMap: JMap[String, String] = first.asJava
+
+    private lazy val javaAll: Map[String, JList[String]] = all.map { case (key, values) => key -> values.asJava }
+
+    def javaValues(key: String): JList[String] = javaAll.getOrElse(key, Collections.emptyList[String]())
+  }
+
+  object QueryParameters {
+    val empty: QueryParameters = QueryParameters(Map(), Map())
+  }
+
+  /**
+   * Parses the url in a single pass. The path and the query parameters are percent-decoded,
+   * and a `+` in the query is decoded to a space. Parameters may appear several times, and parameters
+   * without a value have an empty value.
+   */
   def fromString(x: String): Request = {
-    if(!isValidLink(x)) {
+    if(checkPaths && !isValidLink(x)) {
       logger.warn("Warning - Invalid Link: " + x)
     }
-    val uri = new URI(x)
-    val rawQuery = uri.getRawQuery
-    val query: Map[String,String] = if(rawQuery == null || rawQuery == "") Map() else rawQuery.split("&").map(x => {
-      val Array(a,b) = x.split("=")
-      a -> b
-    }).toMap
-    val path = uri.getPath
-    val res = Request(x, uri.getScheme, uri.getHost, uri.getPort, path,path,"/", query,wref_null,wref_null)
-    res
+    var end = x.indexOf('#')
+    if(end < 0) end = x.length
+    var queryStart = x.indexOf('?')
+    if(queryStart < 0 || queryStart > end) queryStart = end
+
+    var pos = 0
+    var scheme: String = null
+    val colon = x.indexOf(':')
+    if(colon > 0 && colon < queryStart && isScheme(x, colon)) {
+      scheme = x.substring(0, colon)
+      pos = colon + 1
+    }
+
+    var host: String = null
+    var port = -1
+    if(x.startsWith("//", pos)) {
+      var authorityEnd = x.indexOf('/', pos + 2)
+      if(authorityEnd < 0 || authorityEnd > queryStart) authorityEnd = queryStart
+      val hostStart = x.lastIndexOf('@', authorityEnd - 1) match {
+        case at if at >= pos + 2 => at + 1
+        case _ => pos + 2
+      }
+      val portColon = x.lastIndexOf(':', authorityEnd - 1)
+      val hostEnd = if(portColon >= hostStart && x.lastIndexOf(']', authorityEnd - 1) < portColon) {
+        if(portColon + 1 < authorityEnd) port = Integer.parseInt(x.substring(portColon + 1, authorityEnd))
+        portColon
+      } else {
+        authorityEnd
+      }
+      if(hostEnd > hostStart) host = x.substring(hostStart, hostEnd)
+      pos = authorityEnd
+    }
+
+    // like java.net.URI, an opaque url like mailto:x has no path
+    val path = if(scheme != null && pos == colon + 1 && !x.startsWith("/", pos)) null else decode(x, pos, queryStart, false)
+    val query = if(queryStart + 1 < end) parseQuery(x, queryStart + 1, end) else QueryParameters.empty
+    Request(x, scheme, host, port, path, path, "/", query, wref_null, wref_null)
+  }
+
+  private def isScheme(x: String, colon: Int): Boolean = {
+    if(!Character.isLetter(x.charAt(0))) return false
+    var i = 1
+    while(i < colon) {
+      val c = x.charAt(i)
+      if(!(Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.')) return false
+      i += 1
+    }
+    true
+  }
+
+  private def parseQuery(x: String, start: Int, end: Int): QueryParameters = {
+    val first = Map.newBuilder[String, String]
+    val all = new java.util.LinkedHashMap[String, List[String]]()
+    var pos = start
+    while(pos < end) {
+      var next = x.indexOf('&', pos)
+      if(next < 0 || next > end) next = end
+      if(next > pos) {
+        var equals = x.indexOf('=', pos)
+        if(equals < 0 || equals > next) equals = next
+        val key = decode(x, pos, equals, true)
+        val value = if(equals < next) decode(x, equals + 1, next, true) else ""
+        val values = all.get(key)
+        if(values == null) {
+          first += key -> value
+          all.put(key, value :: Nil)
+        } else {
+          all.put(key, value :: values)
+        }
+      }
+      pos = next + 1
+    }
+    QueryParameters(first.result(), all.asScala.map { case (key, values) => key -> values.reverse }.toMap)
+  }
+
+  /**
+   * Percent-decodes the UTF-8 encoded range of the string. Malformed escapes are kept as they are.
+   */
+  private def decode(x: String, start: Int, end: Int, plusAsSpace: Boolean): String = {
+    var i = start
+    while(i < end && x.charAt(i) != '%' && !(plusAsSpace && x.charAt(i) == '+')) i += 1
+    if(i == end) return x.substring(start, end)
+
+    val sb = new java.lang.StringBuilder(end - start)
+    sb.append(x, start, i)
+    val bytes = new java.io.ByteArrayOutputStream()
+    while(i < end) {
+      val c = x.charAt(i)
+      if(c == '%' && i + 2 < end && hexValue(x, i + 1) >= 0 && hexValue(x, i + 2) >= 0) {
+        bytes.reset()
+        while(i + 2 < end && x.charAt(i) == '%' && hexValue(x, i + 1) >= 0 && hexValue(x, i + 2) >= 0) {
+          bytes.write(hexValue(x, i + 1) * 16 + hexValue(x, i + 2))
+          i += 3
+        }
+        sb.append(new String(bytes.toByteArray, StandardCharsets.UTF_8))
+      } else {
+        sb.append(if(plusAsSpace && c == '+') ' ' else c)
+        i += 1
+      }
+    }
+    sb.toString
   }
+
+  private def hexValue(x: String, i: Int): Int = if(i < x.length) Character.digit(x.charAt(i), 16) else -1
 }
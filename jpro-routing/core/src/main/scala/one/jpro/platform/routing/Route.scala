@@ -7,28 +7,22 @@ import java.util.function.Predicate
 
 
 object Route {
-  def empty(): Route = (r) => Response.empty()
+  def empty(): Route = RouteIndex.Empty
 
   def redirect(path: String, to: String): Route = get(path, (r) => Response.redirect(to))
 
-  def get(path: String, f: Function[Request, Response]): Route = (request: Request) => if (request.getPath() == path) f.apply(request) else Response.empty()
+  def get(path: String, f: Function[Request, Response]): Route = new RouteIndex.Get(path, f)
 
 }
 @FunctionalInterface
 trait Route {
   def apply(r: Request): Response
 
-  def and(x: Route): Route = { request =>
-    val r = apply(request)
-    assert(r != null, "Route returned null: " + this + " for " + request)
-    Response(r.future.flatMap{ r =>
-      if(r == null) {
-        val r2 = x.apply(request)
-        assert(r2 != null, "Route returned null: " + x + " for " + request)
-        r2.future
-      } else FXFuture.unit(r)
-    })
-  }
+  /**
+   * Chains the given route after this one. Chained `get` and `path` routes are indexed by path,
+   * so only the routes that can match a request are evaluated.
+   */
+  def and(x: Route): Route = RouteIndex.chain(this, x)
   def domain(domain: String, route: Route): Route = and((r: Request) => {
     if(r.getDomain() == domain) {
       route.apply(r)
@@ -36,14 +30,7 @@ trait Route {
       Response.empty()
     }
   })
-  def path(path: String, route: Route): Route = and((r: Request) => {
-    if(r.getPath().startsWith(path + "/")) {
-      val r2 = r.copy(path = r.getPath().drop(path.length), directory = r.resolve(path))
-      route.apply(r2)
-    } else {
-      Response.empty()
-    }
-  })
+  def path(path: String, route: Route): Route = and(new RouteIndex.Prefix(path, route))
   def filter(filter: Filter): Route = filter(this)
   def filterWhen(cond: Predicate[Request], filter: (Request) => Filter): Route = { r =>
     if(cond.test(r)) {
@@ -0,0 +1,149 @@
+package one.jpro.platform.routing
+
+import simplefx.experimental._
+
+import java.util.function.Function
+import scala.collection.mutable
+
+/**
+ * Structured routes, that [[Route.and]] keeps in a flat chain instead of nesting them.
+ * Consecutive `get` and `path` routes of a chain are compiled, on first use, into an index
+ * that only evaluates the routes that can match the requested path: exact paths are looked up
+ * in a hash table, and path prefixes with one lookup per path segment. All the other routes,
+ * like `when` or filtered routes, are evaluated in order, so the fallback semantics are unchanged.
+ */
+private[routing] object RouteIndex {
+
+  /**
+   * The route that never responds, skipped when chaining routes.
+   */
+  object Empty extends Route {
+    override def apply(r: Request): Response = Response.empty()
+    override def toString: String = "Route.empty()"
+  }
+
+  /**
+   * A route that responds only to requests for the given path.
+   */
+  final class Get(val path: String, f: Function[Request, Response]) extends Route {
+    override def apply(r: Request): Response = if (r.getPath() == path) f.apply(r) else Response.empty()
+    override def toString: String = s"Route.get($path)"
+  }
+
+  /**
+   * A route that delegates the requests for the paths below the given prefix to a sub route.
+   */
+  final class Prefix(val prefix: String, route: Route) extends Route {
+    override def apply(r: Request): Response = {
+      if (r.getPath().startsWith(prefix + "/")) {
+        val r2 = r.copy(path = r.getPath().drop(prefix.length), directory = r.resolve(prefix))
+        route.apply(r2)
+      } else {
+        Response.empty()
+      }
+    }
+    override def toString: String = s"Route.path($prefix)"
+  }
+
+  /**
+   * Routes that are tried in order until one of them responds.
+   */
+  final class Chain(val routes: Vector[Route]) extends Route {
+    private lazy val compiled: Vector[Route] = compile(routes)
+
+    override def apply(request: Request): Response = applyFrom(compiled, 0, request)
+
+    override def toString: String = routes.mkString("Route.and(", ", ", ")")
+  }
+
+  /**
+   * Consecutive `get` and `path` routes of a chain, indexed by path.
+   */
+  final class Indexed(routes: Vector[Route]) extends Route {
+    private val exact = mutable.HashMap.empty[String, List[Int]]
+    private val prefixes = mutable.HashMap.empty[String, List[Int]]
+
+    // iterate backwards, so the positions of each path are sorted in chain order
+    routes.indices.reverse.foreach { i =>
+      routes(i) match {
+        case get: Get => exact(get.path) = i :: exact.getOrElse(get.path, Nil)
+        case prefix: Prefix => prefixes(prefix.prefix) = i :: prefixes.getOrElse(prefix.prefix, Nil)
+        case _ => throw new IllegalArgumentException("Not an indexed route: " + routes(i))
+      }
+    }
+
+    override def apply(request: Request): Response = {
+      val path = request.getPath()
+      var candidates = exact.getOrElse(path, Nil)
+      if (prefixes.nonEmpty) {
+        // a prefix matches when the path continues with a slash right after it
+        var i = path.indexOf('/')
+        while (i >= 0) {
+          prefixes.get(path.substring(0, i)).foreach(positions => candidates = positions ::: candidates)
+          i = path.indexOf('/', i + 1)
+        }
+        candidates = candidates.sorted
+      }
+      applyFrom(candidates.map(routes).toVector, 0, request)
+    }
+
+    override def toString: String = routes.mkString("Route.index(", ", ", ")")
+  }
+
+  /**
+   * Chains the given routes, flattening nested chains and dropping empty routes.
+   */
+  def chain(first: Route, second: Route): Route = {
+    val routes = flatten(first) ++ flatten(second)
+    if (routes.isEmpty) Empty
+    else if (routes.size == 1) routes.head
+    else new Chain(routes)
+  }
+
+  private def flatten(route: Route): Vector[Route] = route match {
+    case chain: Chain => chain.routes
+    case Empty => Vector.empty
+    case _ => Vector(route)
+  }
+
+  /**
+   * Replaces every run of consecutive `get` and `path` routes with an index over them.
+   */
+  private def compile(routes: Vector[Route]): Vector[Route] = {
+    val result = Vector.newBuilder[Route]
+    var run = Vector.empty[Route]
+    def flushRun(): Unit = {
+      if (run.size > 1) result += new Indexed(run) else result ++= run
+      run = Vector.empty
+    }
+    routes.foreach {
+      case route @ (_: Get | _: Prefix) => run :+= route
+      case route =>
+        flushRun()
+        result += route
+    }
+    flushRun()
+    result.result()
+  }
+
+  /**
+   * Applies the routes from the given position until one of them responds.
+   */
+  private def applyFrom(routes: Vector[Route], i: Int, request: Request): Response = {
+    if (i >= routes.size) {
+      Response.empty()
+    } else {
+      val route = routes(i)
+      val r = route.apply(request)
+      assert(r != null, "Route returned null: " + route + " for " + request)
+      if (i == routes.size - 1) {
+        r
+      } else {
+        Response(r.future.flatMap { result =>
+          if (result == null) applyFrom(routes, i + 1, request).future
+          else FXFuture.unit(result)
+        })
+      }
+    }
+  }
+}
@@ -9,56 +9,110 @@ import java.util.function.Function
 
 object RouteUtils {
 
+  /**
+   * Fades from the old content to the new one. The old content is only read once the content of the view is created,
+   * so a prefetched view transitions from the page that is shown when it's navigated to.
+   */
   def transitionFilter(seconds: Double): Filter = route => { request => {
     Response(route.apply(request).future.map{
       case x: View =>
-        val oldNode = request.getOldContent().get()
-        val newNode = x.realContent
-        val t = (seconds s)
-        if(oldNode == null) {
-          x
-        } else {
-          oldNode.opacity = 1.0
-          newNode.opacity = 0.0
-          oldNode.opacity := 0.0 in t
-          newNode.opacity := 1.0 in t
-          val res = new StackPane(oldNode,newNode)
-          in(t) --> {res.children = List(newNode)}
-          x.mapContent(x => res)
+        x.mapContent { newNode =>
+          val oldContent = request.getOldContent().get()
+          val t = (seconds s)
+          if(oldContent == null) {
+            newNode
+          } else {
+            val res = transitionContainer(oldContent)
+            val oldNode = shownNode(res, oldContent)
+            oldNode.opacity = 1.0
+            newNode.opacity = 0.0
+            oldNode.opacity := 0.0 in t
+            newNode.opacity := 1.0 in t
+            val transition = startTransition(res, oldNode, newNode)
+            in(t) --> finishTransition(res, transition, newNode)
+            res
+          }
         }
       case x => x
     })
   }}
+  /**
+   * Slides from the old content to the new one, reading the old content as late as [[transitionFilter]].
+   */
   def sideTransitionFilter(seconds: Double): Filter = route => { request => {
     Response(route.apply(request).future.map{
       case x: View =>
-        val oldNode = request.getOldContent().get()
-        val newNode = x.realContent
-        val t = (seconds s)
-        if(oldNode == null) {
-          x.mapContent(x => x)
-        } else {
-          val startTime: Time = systemTime
-          def timeLeft: Time = (startTime + (seconds * second)) - time
-          def progress: Double = 1.0 - (timeLeft / (seconds * second))
-          val res = new StackPane(oldNode,newNode)
-          val finishedB: B[Boolean] = Bindable(false)
-          when(!finishedB && timeLeft > (0 s)) ==> {
-            oldNode.translateX <-- (-progress * res.width)
-            newNode.translateX <-- ((1 - progress) * res.width)
-          }
-          onceWhen(timeLeft <= (0. s)) --> {
-            oldNode.translateX = 0
-            newNode.translateX = 0
-            finishedB := true
+        x.mapContent { newNode =>
+          val oldContent = request.getOldContent().get()
+          val t = (seconds s)
+          if(oldContent == null) {
+            newNode
+          } else {
+            val startTime: Time = systemTime
+            def timeLeft: Time = (startTime + (seconds * second)) - time
+            def progress: Double = 1.0 - (timeLeft / (seconds * second))
+            val res = transitionContainer(oldContent)
+            val oldNode = shownNode(res, oldContent)
+            val transition = startTransition(res, oldNode, newNode)
+            val finishedB: B[Boolean] = Bindable(false)
+            when(!finishedB && timeLeft > (0 s)) ==> {
+              oldNode.translateX <-- (-progress * res.width)
+              newNode.translateX <-- ((1 - progress) * res.width)
+            }
+            onceWhen(timeLeft <= (0. s)) --> {
+              oldNode.translateX = 0
+              newNode.translateX = 0
+              finishedB := true
+            }
+            in(t) --> finishTransition(res, transition, newNode)
+            res
           }
-          in(t) --> {res.children = List(newNode)}
-          x.mapContent(x => res)
         }
       case x => x
     })
   }}
 
+  private val transitionKey = new Object()
+
+  /**
+   * Returns the old content, if it is the container of a previous transition, so it is reused
+   * for the next one, or a new container otherwise.
+   */
+  private def transitionContainer(oldContent: Node): StackPane = oldContent match {
+    case pane: StackPane if pane.getProperties.containsKey(transitionKey) => pane
+    case _ =>
+      val pane = new StackPane()
+      pane.getProperties.put(transitionKey, Integer.valueOf(0))
+      pane
+  }
+
+  /**
+   * Returns the node that is currently shown by the old content.
+   */
+  private def shownNode(container: StackPane, oldContent: Node): Node = {
+    if(container eq oldContent) container.getChildren.get(container.getChildren.size - 1) else oldContent
+  }
+
+  /**
+   * Shows both nodes in the container and returns the number of the transition.
+   */
+  private def startTransition(container: StackPane, oldNode: Node, newNode: Node): Int = {
+    val transition = container.getProperties.get(transitionKey).asInstanceOf[Integer] + 1
+    container.getProperties.put(transitionKey, Integer.valueOf(transition))
+    if(oldNode eq newNode) container.getChildren.setAll(newNode)
+    else container.getChildren.setAll(oldNode, newNode)
+    transition
+  }
+
+  /**
+   * Removes the old node, unless another transition has started in the container in the meantime.
+   */
+  private def finishTransition(container: StackPane, transition: Int, newNode: Node): Unit = {
+    if(container.getProperties.get(transitionKey) == Integer.valueOf(transition)) {
+      container.getChildren.setAll(newNode)
+    }
+  }
+
   def viewFromNode(x: Node): View = new View {
     override def title: String = "view-from-node"
     override def description: String = ""
@@ -0,0 +1,111 @@
+package one.jpro.platform.routing
+
+import com.jpro.webapi.WebAPI
+import javafx.application.Platform
+
+import java.lang.ref.WeakReference
+import java.util.function.Consumer
+
+/**
+ * Coalesces the scripts executed within one turn of the FX thread into a single `executeScript` call,
+ * so a navigation, or a page with many links, costs one message to the browser instead of one per script.
+ * The scripts keep their order, and each one is wrapped in its own try block,
+ * so a failing script doesn't prevent the following ones from running.
+ *
+ * @param sink      executes the combined script
+ * @param scheduler runs the flush after the current turn of the FX thread
+ */
+class ScriptBatcher(sink: Consumer[String], scheduler: Consumer[Runnable]) {
+
+  private val pending = new java.lang.StringBuilder
+  private val deferred = new java.util.ArrayList[Runnable]
+  private var scheduled = false
+  private var batches = 0L
+
+  def executeScript(script: String): Unit = {
+    val schedule = synchronized {
+      pending.append("try {\n").append(script).append("\n} catch(e) { console.error(e); }\n")
+      val schedule = !scheduled
+      scheduled = true
+      schedule
+    }
+    if(schedule) {
+      scheduler.accept(() => flush())
+    }
+  }
+
+  /**
+   * Runs the task right before the next flush, so the scripts it executes are part of that batch.
+   * This lets state that changes many times within one turn be synchronized only once.
+   */
+  def executeDeferred(task: Runnable): Unit = {
+    val schedule = synchronized {
+      deferred.add(task)
+      val schedule = !scheduled
+      scheduled = true
+      schedule
+    }
+    if(schedule) {
+      scheduler.accept(() => flush())
+    }
+  }
+
+  /**
+   * Executes the pending scripts right away.
+   */
+  def flush(): Unit = {
+    val tasks = synchronized {
+      val tasks = new java.util.ArrayList[Runnable](deferred)
+      deferred.clear()
+      tasks
+    }
+    tasks.forEach(_.run())
+    val script = synchronized {
+      scheduled = false
+      if(pending.length == 0) null else {
+        val script = pending.toString
+        pending.setLength(0)
+        batches += 1
+        script
+      }
+    }
+    if(script != null) {
+      sink.accept(script)
+    }
+  }
+
+  /**
+   * Returns the number of combined scripts executed so far.
+   */
+  def getBatchCount(): Long = synchronized(batches)
+}
+
+object ScriptBatcher {
+
+  // the session manager removes the batcher of a closed session, the weak keys only cover sessions without one
+  private val batchers = new java.util.WeakHashMap[WebAPI, ScriptBatcher]()
+
+  /**
+   * Returns the batcher of the given WebAPI, which flushes on the FX thread.
+   */
+  def apply(webAPI: WebAPI): ScriptBatcher = batchers.synchronized {
+    var batcher = batchers.get(webAPI)
+    if(batcher == null) {
+      // only weakly referenced, so the map doesn't keep the WebAPI of a closed session
+      val webAPIRef = new WeakReference(webAPI)
+      batcher = new ScriptBatcher(script => {
+        val webAPI = webAPIRef.get
+        if(webAPI != null) webAPI.executeScript(script)
+      }, runnable => Platform.runLater(runnable))
+      batchers.put(webAPI, batcher)
+    }
+    batcher
+  }
+
+  /**
+   * Removes the batcher of the given WebAPI, once its session is closed.
+   */
+  private[routing] def remove(webAPI: WebAPI): Unit = batchers.synchronized {
+    batchers.remove(webAPI)
+  }
+}
@@ -43,11 +43,15 @@ abstract class View extends ResponseResult { THIS =>
 
     override def fullscreen: Boolean = THIS.fullscreen
 
+    override def saveScrollPosition: Boolean = THIS.saveScrollPosition
+
     override def setSessionManager(x: SessionManager): Unit = {
       super.setSessionManager(x)
       THIS.setSessionManager(x)
     }
 
+    override def onClose(): Unit = THIS.onClose()
+
     override def subView(): View = THIS
   }
 }
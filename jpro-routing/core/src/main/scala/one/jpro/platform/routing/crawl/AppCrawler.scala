@@ -8,8 +8,12 @@ import simplefx.core._
 import simplefx.experimental._
 
 import java.io.File
+import java.util.{ArrayDeque, ArrayList, Collections, IdentityHashMap}
+import java.util.concurrent.{Callable, ExecutionException, Executors, Future}
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.Supplier
 import scala.collection.JavaConverters._
+import scala.collection.mutable
 
 object AppCrawler {
 
@@ -22,132 +26,192 @@ object AppCrawler {
 
   case class CrawlReportApp(pages: List[String], reports: List[CrawlReportPage], deadLinks: List[String])
 
-  def crawlPage(page: View): CrawlReportPage = {
-    var foundLinks: List[LinkInfo] = Nil
-    var images: List[ImageInfo] = Nil
-
-    var visitedNodes: Set[Node] = Set()
-
-    def crawlNode(x: Node): Unit = {
-      if(x == null) return
-      if (visitedNodes.contains(x)) return
-      visitedNodes += x
-      if (x.getProperties.containsKey("link")) {
-        val link = x.getProperties.get("link").asInstanceOf[String]
-        if(link != null) {
-          var desc = x.getProperties.get("description").asInstanceOf[String]
-          if(desc == null) desc = ""
-          foundLinks ::= LinkInfo(link, desc)
-        }
-      }
+  def crawlPage(page: View): CrawlReportPage = crawlPage(page, LinkExtractor.defaults)
 
-      if (x.isInstanceOf[Parent]) {
-        x.asInstanceOf[Parent].childrenUnmodifiable.map(x => crawlNode(x))
-      }
-      if (x.isInstanceOf[Labeled]) {
-        crawlNode(x.asInstanceOf[Labeled].graphic)
-      }
-      if (x.isInstanceOf[ScrollPane]) {
-        crawlNode(x.asInstanceOf[ScrollPane].content)
-      }
-      if (x.isInstanceOf[ListView[_]]) {
-        val lview = x.asInstanceOf[ListView[Any]]
-        if(lview.getItems != null) {
-          lview.getItems.asScala.zipWithIndex.foreach { case (item,index) =>
-            val factory = lview.cellFactoryProperty().get()
-            if(factory != null) {
-              val cell: ListCell[Any] = factory.call(lview)
-              cell.setItem(item)
-              cell.updateIndex(index)
-              cell.updateListView(lview)
-              cell.layout()
-              crawlNode(cell)
+  /**
+   * Crawls the content of the page with the given extractors. The scene graph is traversed iteratively,
+   * in depth-first order, and every node is visited once.
+   */
+  def crawlPage(page: View, extractors: Seq[LinkExtractor]): CrawlReportPage = {
+    val scene = new Scene(new Group())
+    val content = page.realContent.asInstanceOf[Parent]
+    SessionManagerContext.setContext(content, new DummySessionManager)
+    scene.setRoot(content)
+    page.realContent.applyCss()
+
+    val traversal = new Traversal(extractors)
+    traversal.visitNow(page.realContent)
+    CrawlReportPage(page.url, traversal.links.toList, traversal.images.toList, page.title, page.description)
+  }
+
+  private class Traversal(extractors: Seq[LinkExtractor]) extends LinkExtractor.Context {
+    val links = mutable.ArrayBuffer[LinkInfo]()
+    val images = mutable.ArrayBuffer[ImageInfo]()
+    private var visited: java.util.Set[Node] = _
+    private var next: ArrayList[Node] = _
+
+    def addLink(url: String, description: String): Unit = links += LinkInfo(url, description)
+
+    def addImage(url: String, description: String): Unit = images += ImageInfo(url, description)
+
+    def visit(node: Node): Unit = if (node != null) next.add(node)
+
+    def visitNow(node: Node): Unit = {
+      if (node == null) return
+      val outerVisited = visited
+      val outerNext = next
+      visited = Collections.newSetFromMap(new IdentityHashMap[Node, java.lang.Boolean]())
+      next = new ArrayList[Node]()
+      try {
+        val stack = new ArrayDeque[Node]()
+        stack.push(node)
+        while (!stack.isEmpty) {
+          val current = stack.pop()
+          if (visited.add(current)) {
+            extractors.foreach(_.extract(current, this))
+            // pushed in reverse, so the nodes are visited in the order the extractors asked for them
+            var i = next.size - 1
+            while (i >= 0) {
+              stack.push(next.get(i))
+              i -= 1
             }
+            next.clear()
           }
         }
+      } finally {
+        visited = outerVisited
+        next = outerNext
       }
-      if (x.isInstanceOf[Region]) {
-        val region = x.asInstanceOf[Region]
-        var rimages = List.empty[Image]
-        if(region.border != null && region.border.getImages != null) rimages :::= region.border.getImages.asScala.map(_.getImage).toList
-        if(region.background != null && region.background.getImages != null) rimages :::= region.background.getImages.asScala.map(_.getImage).toList
-        rimages.foreach{ image =>
-          val imgURL = getImageURL(image)
-          if(imgURL != null) {
-            images ::= ImageInfo(imgURL,region.accessibleRoleDescription)
-          }
+    }
+  }
+
+  def crawlApp(prefix: String, createApp: Supplier[RouteNode]): CrawlReportApp = crawlApp(prefix, createApp, 1)
+
+  /**
+   * Crawls the app with up to `parallelism` pages in flight. Every page is routed on a fresh instance
+   * of the app, and the route futures of the pages in flight overlap, while all the scene graph work
+   * is still done on the FX thread. The crawled pages are taken in the order they were discovered in,
+   * and only then are their links added to the frontier, so the result is the same for any parallelism.
+   */
+  def crawlApp(prefix: String, createApp: Supplier[RouteNode], parallelism: Int): CrawlReportApp =
+    crawl(prefix, createApp, parallelism, None, LinkExtractor.defaults)
+
+  /**
+   * Crawls the app with up to `parallelism` pages in flight, and records the reports of the pages in the given cache,
+   * which reuses them for unchanged route keys, if it has any. A cache without a route key renders every page,
+   * and only records when each of them last changed, for [[SitemapGenerator.writeSitemap]].
+   * Afterwards, the pages that are no longer reachable are removed from the cache and it is saved.
+   */
+  def crawlApp(prefix: String, createApp: Supplier[RouteNode], parallelism: Int, cache: CrawlCache): CrawlReportApp =
+    crawl(prefix, createApp, parallelism, Some(cache), LinkExtractor.defaults)
+
+  /**
+   * Crawls the app like above, extracting the links and images of every page with the given extractors.
+   * The cache is optional and can be null.
+   */
+  def crawlApp(prefix: String, createApp: Supplier[RouteNode], parallelism: Int, cache: CrawlCache,
+               extractors: Seq[LinkExtractor]): CrawlReportApp =
+    crawl(prefix, createApp, parallelism, Option(cache), extractors)
+
+  private def crawl(prefix: String, createApp: Supplier[RouteNode], parallelism: Int,
+                    cache: Option[CrawlCache], extractors: Seq[LinkExtractor]): CrawlReportApp = {
+    require(parallelism > 0, s"parallelism must be positive but was: $parallelism")
+    val frontier = mutable.LinkedHashSet[String]()
+    val redirects = mutable.LinkedHashSet[String]()
+    val deadLinks = mutable.LinkedHashSet[String]()
+    val reports = mutable.ListBuffer[CrawlReportPage]()
+
+    val threadCounter = new AtomicInteger()
+    val executor = Executors.newFixedThreadPool(parallelism, (runnable: Runnable) => {
+      val thread = new Thread(runnable, "app-crawler-" + threadCounter.incrementAndGet())
+      thread.setDaemon(true)
+      thread
+    })
+    val toIndex = mutable.Queue[String]()
+    def discover(urls: List[String]): Unit = urls.foreach(url => if (frontier.add(url)) toIndex += url)
+    discover(List("/"))
+    // the pages in flight, in the order they were discovered in
+    val inFlight = mutable.Queue[Future[CrawlResult]]()
+    try {
+      while (toIndex.nonEmpty || inFlight.nonEmpty) {
+        while (toIndex.nonEmpty && inFlight.size < parallelism) {
+          val crawlNext = toIndex.dequeue()
+          val task: Callable[CrawlResult] = () => crawlUrl(prefix, createApp, crawlNext, cache, extractors)
+          inFlight += executor.submit(task)
         }
-      }
-      if(x.isInstanceOf[ImageView]) {
-        val view = x.asInstanceOf[ImageView]
-        if(view.image != null) {
-          val url = getImageURL(view.image)
-          val description = view.accessibleRoleDescription
-          if(url != null) {
-            images ::= ImageInfo(url,description)
-          }
+        val result = try {
+          inFlight.dequeue().get()
+        } catch {
+          case ex: ExecutionException => throw ex.getCause
+        }
+        result match {
+          case CrawlResult.Redirected(url, newUrls) =>
+            redirects += url
+            discover(newUrls)
+          case CrawlResult.Crawled(report, newUrls) =>
+            reports += report
+            discover(newUrls)
+          case CrawlResult.Dead(url) =>
+            deadLinks += url
         }
       }
+    } finally {
+      executor.shutdownNow()
     }
 
-    val scene = new Scene(new Group())
-    val content = page.realContent.asInstanceOf[Parent]
-    SessionManagerContext.setContext(content, new DummySessionManager)
-    scene.setRoot(content)
-    page.realContent.applyCss()
-    crawlNode(page.realContent)
-
-    CrawlReportPage(page.url, foundLinks.reverse, images.reverse, page.title, page.description)
+    val pages = frontier.toList.filterNot(url => redirects.contains(url) || deadLinks.contains(url))
+    cache.foreach { cache =>
+      cache.retain(pages.toSet)
+      cache.save()
+    }
+    CrawlReportApp(pages, reports.toList, deadLinks.toList)
   }
 
-  def crawlApp(prefix: String, createApp: Supplier[RouteNode]): CrawlReportApp = {
-    var toIndex = Set[String]("/")
-    var indexed = Set[String]()
-    var redirects = Set[String]()
-    var deadLinks = Set[String]()
-    var reports: List[CrawlReportPage] = List()
+  private sealed trait CrawlResult
+  private object CrawlResult {
+    case class Redirected(url: String, newUrls: List[String]) extends CrawlResult
+    case class Crawled(report: CrawlReportPage, newUrls: List[String]) extends CrawlResult
+    case class Dead(url: String) extends CrawlResult
+  }
 
+  /**
+   * Routes and crawls a single page, returning its own links.
+   * The page is only rendered when the cache has no report for its route output.
+   */
+  private def crawlUrl(prefix: String, createApp: Supplier[RouteNode], crawlNext: String,
+                       cache: Option[CrawlCache], extractors: Seq[LinkExtractor]): CrawlResult = {
     def isOwnLink(x: String): Boolean = x.startsWith(prefix) || x.startsWith("/")
-    while (toIndex.nonEmpty) {
-      val crawlNext = toIndex.head
-      toIndex -= crawlNext
-      indexed += crawlNext
-      val result = inFX {
-        createApp.get().route(crawlNext)
-      }.future.await
-      result match {
-        case Redirect(url) =>
-          redirects += crawlNext
-          if (!indexed.contains(url) && !toIndex.contains(url)) {
-            if (isOwnLink(url)) {
-              toIndex += url
-            }
-          }
-        case view: View =>
-          view.url = crawlNext
-          try {
-            val newReport = inFX(crawlPage(view))
-            reports = newReport :: reports
-            def simplifyLink(x: String) = {
-              if(x.startsWith(prefix)) x.drop(prefix.length) else x
-            }
-            newReport.links.filter(x => isOwnLink(x.url)).foreach { link =>
-              val url = simplifyLink(link.url)
-              if (!indexed.contains(url) && !toIndex.contains(url)) {
-                toIndex += url
-              }
+    def simplifyLink(x: String) = {
+      if(x.startsWith(prefix)) x.drop(prefix.length) else x
+    }
+
+    val result = inFX {
+      createApp.get().route(crawlNext)
+    }.future.await
+    result match {
+      case Redirect(url) =>
+        val newUrls = if (isOwnLink(url)) List(url) else Nil
+        CrawlResult.Redirected(crawlNext, newUrls)
+      case view: View =>
+        try {
+          val newReport = inFX {
+            view.url = crawlNext
+            cache.flatMap(_.get(crawlNext, view)).getOrElse {
+              val report = crawlPage(view, extractors)
+              cache.foreach(_.put(crawlNext, view, report))
+              report
             }
-          } catch {
-            case ex: Throwable =>
-              logger.error(s"Error crawling page: $crawlNext", ex)
-              deadLinks += crawlNext
           }
-        case null =>
-          deadLinks += crawlNext
-      }
+          val newUrls = newReport.links.filter(x => isOwnLink(x.url)).map(link => simplifyLink(link.url)).distinct
+          CrawlResult.Crawled(newReport, newUrls)
+        } catch {
+          case ex: Throwable =>
+            logger.error(s"Error crawling page: $crawlNext", ex)
+            CrawlResult.Dead(crawlNext)
+        }
+      case null =>
+        CrawlResult.Dead(crawlNext)
     }
-
-    CrawlReportApp((indexed -- redirects -- deadLinks).toList, reports.reverse, deadLinks.toList)
   }
 
   def getImageURL(x: Image): String = {
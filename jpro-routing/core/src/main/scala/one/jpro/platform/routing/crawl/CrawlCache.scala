@@ -0,0 +1,215 @@
+package one.jpro.platform.routing.crawl
+
+import one.jpro.platform.routing.View
+import one.jpro.platform.routing.crawl.AppCrawler.{CrawlReportPage, ImageInfo, LinkInfo}
+import org.slf4j.{Logger, LoggerFactory}
+
+import java.io._
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, StandardCopyOption}
+import java.security.{DigestOutputStream, MessageDigest}
+import java.util.concurrent.ConcurrentHashMap
+import scala.collection.JavaConverters._
+
+object CrawlCache {
+
+  private lazy val logger: Logger = LoggerFactory.getLogger(getClass.getName)
+
+  private val MAGIC = 0x4a435243 // "JCRC"
+  private val VERSION = 1
+
+  /**
+   * A route key made of the class, title and description of a view, which are known right after routing,
+   * before the content of the view is created. It only fits apps whose pages change their links and images
+   * only together with their title or description.
+   */
+  val titleRouteKey: View => String = view =>
+    view.getClass.getName + "\u0000" + view.title + "\u0000" + view.description
+
+  /**
+   * Returns the content fingerprint of the report of a page, a SHA-256 hash of its title, description, links and images.
+   */
+  def fingerprint(report: CrawlReportPage): String = {
+    val digest = MessageDigest.getInstance("SHA-256")
+    val out = new DataOutputStream(new DigestOutputStream(new OutputStream {
+      override def write(b: Int): Unit = {}
+    }, digest))
+    writeString(out, report.title)
+    writeString(out, report.description)
+    out.writeInt(report.links.size)
+    report.links.foreach { link =>
+      writeString(out, link.url)
+      writeString(out, link.description)
+    }
+    out.writeInt(report.pictures.size)
+    report.pictures.foreach { picture =>
+      writeString(out, picture.url)
+      writeString(out, picture.description)
+    }
+    out.flush()
+    digest.digest().map(b => f"${b & 0xff}%02x").mkString
+  }
+
+  case class Entry(routeKey: String, fingerprint: String, lastModified: Long, report: CrawlReportPage)
+
+  private def writeString(out: DataOutput, x: String): Unit = {
+    if (x == null) {
+      out.writeInt(-1)
+    } else {
+      val bytes = x.getBytes(StandardCharsets.UTF_8)
+      out.writeInt(bytes.length)
+      out.write(bytes)
+    }
+  }
+
+  private def readString(in: DataInput): String = {
+    val length = in.readInt()
+    if (length < 0) {
+      null
+    } else {
+      val bytes = new Array[Byte](length)
+      in.readFully(bytes)
+      new String(bytes, StandardCharsets.UTF_8)
+    }
+  }
+}
+
+/**
+ * An on-disk index of the crawled pages of an app, keyed by path.
+ * Every entry keeps a content fingerprint of the title, description, links and images of the page,
+ * and the time it last changed, which is only updated when a re-rendered page has a different fingerprint.
+ *
+ * By default, every page is rendered again when it is passed to [[AppCrawler.crawlApp]], so changed links
+ * and newly reachable pages are always found. Without a route key, the cache doesn't save any rendering,
+ * it only tracks when the pages last changed, for the `lastmod` of [[SitemapGenerator.writeSitemap]].
+ * With a route key, the report of a page is reused as long as the route key of the view it routes to
+ * is unchanged, so only pages whose route key changed, or that are newly reachable, are rendered again.
+ * The route key has to change whenever the links or images of the page change, otherwise the stale report
+ * is used, and the pages only linked from it are missed.
+ *
+ * @param file     the file the index is loaded from and saved to
+ * @param routeKey computes the route key of a view, called on the FX thread,
+ *                 or null to render every page again and only track the change times
+ */
+class CrawlCache(val file: File, routeKey: View => String) {
+  import CrawlCache._
+
+  def this(file: File) = this(file, null)
+
+  private val entries = new ConcurrentHashMap[String, Entry]()
+  load()
+
+  def size: Int = entries.size
+
+  def entry(path: String): Option[Entry] = Option(entries.get(path))
+
+  def lastModified(path: String): Option[Long] = entry(path).map(_.lastModified)
+
+  /**
+   * Returns the cached report of the page, if the cache has a route key,
+   * and the view the page was routed to has the same route key.
+   */
+  def get(path: String, view: View): Option[CrawlReportPage] = {
+    if (routeKey == null) None
+    else entry(path).filter(e => e.routeKey != null && e.routeKey == routeKey(view)).map(_.report)
+  }
+
+  /**
+   * Stores the report of a freshly rendered page.
+   */
+  def put(path: String, view: View, report: CrawlReportPage): Unit = {
+    val newFingerprint = fingerprint(report)
+    val now = System.currentTimeMillis()
+    entries.compute(path, (_, old) => {
+      val lastModified = if (old != null && old.fingerprint == newFingerprint) old.lastModified else now
+      Entry(if (routeKey == null) null else routeKey(view), newFingerprint, lastModified, report)
+    })
+  }
+
+  /**
+   * Removes the pages that are no longer reachable.
+   */
+  def retain(paths: Set[String]): Unit = {
+    entries.keySet().removeIf(path => !paths.contains(path))
+  }
+
+  /**
+   * Writes the index to its file. The file is replaced atomically, so an interrupted save keeps the previous index.
+   */
+  def save(): Unit = {
+    val parent = file.getAbsoluteFile.getParentFile
+    if (parent != null) Files.createDirectories(parent.toPath)
+    val tmp = File.createTempFile(file.getName, ".tmp", parent)
+    try {
+      val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))
+      try {
+        out.writeInt(MAGIC)
+        out.writeInt(VERSION)
+        val snapshot = entries.asScala.toList
+        out.writeInt(snapshot.size)
+        snapshot.foreach { case (path, entry) =>
+          writeString(out, path)
+          writeString(out, entry.routeKey)
+          writeString(out, entry.fingerprint)
+          out.writeLong(entry.lastModified)
+          val report = entry.report
+          writeString(out, report.title)
+          writeString(out, report.description)
+          out.writeInt(report.links.size)
+          report.links.foreach { link =>
+            writeString(out, link.url)
+            writeString(out, link.description)
+          }
+          out.writeInt(report.pictures.size)
+          report.pictures.foreach { picture =>
+            writeString(out, picture.url)
+            writeString(out, picture.description)
+          }
+        }
+      } finally {
+        out.close()
+      }
+      Files.move(tmp.toPath, file.toPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } finally {
+      Files.deleteIfExists(tmp.toPath)
+    }
+  }
+
+  /**
+   * Reads the index from its file. A missing, outdated or corrupt index is treated as empty,
+   * and entries whose fingerprint doesn't match their report are dropped.
+   */
+  private def load(): Unit = {
+    if (!file.isFile) return
+    try {
+      val in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          logger.warn(s"Ignoring the crawl cache with an unknown format: $file")
+          return
+        }
+        val count = in.readInt()
+        for (_ <- 0 until count) {
+          val path = readString(in)
+          val key = readString(in)
+          val storedFingerprint = readString(in)
+          val lastModified = in.readLong()
+          val title = readString(in)
+          val description = readString(in)
+          val links = List.fill(in.readInt())(LinkInfo(readString(in), readString(in)))
+          val pictures = List.fill(in.readInt())(ImageInfo(readString(in), readString(in)))
+          val report = CrawlReportPage(path, links, pictures, title, description)
+          if (fingerprint(report) == storedFingerprint) {
+            entries.put(path, Entry(key, storedFingerprint, lastModified, report))
+          }
+        }
+      } finally {
+        in.close()
+      }
+    } catch {
+      case ex: IOException =>
+        logger.warn(s"Ignoring the unreadable crawl cache: $file", ex)
+        entries.clear()
+    }
+  }
+}
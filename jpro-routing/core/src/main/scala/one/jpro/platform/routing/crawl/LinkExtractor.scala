@@ -0,0 +1,171 @@
+package one.jpro.platform.routing.crawl
+
+import simplefx.all._
+
+import scala.collection.JavaConverters._
+
+/**
+ * Extracts the links and images of a node while a page is crawled, and tells the crawler which nodes to visit next.
+ * Every extractor is called once for every visited node, so an extractor only handles the kinds of nodes it knows about.
+ * Custom controls, that keep their content outside of the scene graph, can be supported with an own extractor.
+ */
+trait LinkExtractor {
+  def extract(node: Node, context: LinkExtractor.Context): Unit
+}
+
+object LinkExtractor {
+
+  trait Context {
+    def addLink(url: String, description: String): Unit
+    def addImage(url: String, description: String): Unit
+
+    /**
+     * Visits the node after the current one, unless it has already been visited.
+     */
+    def visit(node: Node): Unit
+
+    /**
+     * Visits the node and its descendants right away, independently of the nodes visited before.
+     * This is meant for a cell that is updated and crawled once for every item of a control.
+     */
+    def visitNow(node: Node): Unit
+  }
+
+  object Links extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = {
+      if (node.getProperties.containsKey("link")) {
+        val link = node.getProperties.get("link").asInstanceOf[String]
+        if (link != null) {
+          val description = node.getProperties.get("description").asInstanceOf[String]
+          context.addLink(link, if (description == null) "" else description)
+        }
+      }
+    }
+  }
+
+  object Children extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case parent: Parent => parent.getChildrenUnmodifiable.forEach(child => context.visit(child))
+      case _ =>
+    }
+  }
+
+  object LabeledGraphic extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case labeled: Labeled => context.visit(labeled.getGraphic)
+      case _ =>
+    }
+  }
+
+  object ScrollPaneContent extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case scrollPane: ScrollPane => context.visit(scrollPane.getContent)
+      case _ =>
+    }
+  }
+
+  /**
+   * Crawls the items of a list view. With a cell factory, a single cell is created and updated for
+   * every item, instead of creating a cell per item. Without one, items that are nodes are visited.
+   */
+  object ListViewItems extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case view: ListView[_] if view.getItems != null =>
+        val listView = view.asInstanceOf[ListView[Any]]
+        val factory = listView.getCellFactory
+        if (factory != null) {
+          val cell = factory.call(listView)
+          cell.updateListView(listView)
+          for (index <- 0 until listView.getItems.size) {
+            cell.updateIndex(index)
+            context.visitNow(cell)
+          }
+        } else {
+          listView.getItems.forEach(item => item match {
+            case item: Node => context.visit(item)
+            case _ =>
+          })
+        }
+      case _ =>
+    }
+  }
+
+  /**
+   * Crawls the data model of a table view: the cell values of the visible columns that are nodes.
+   */
+  object TableViewItems extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case view: TableView[_] if view.getItems != null =>
+        val rows = view.getItems.size
+        view.getVisibleLeafColumns.forEach { column =>
+          for (index <- 0 until rows) {
+            column.getCellData(index) match {
+              case value: Node => context.visit(value)
+              case _ =>
+            }
+          }
+        }
+      case _ =>
+    }
+  }
+
+  /**
+   * Crawls the data model of a tree view: the values and graphics of the tree items,
+   * descending only into expanded items, so lazily populated trees are not loaded.
+   */
+  object TreeViewItems extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case view: TreeView[_] if view.getRoot != null =>
+        val pending = new java.util.ArrayDeque[TreeItem[_]]()
+        pending.push(view.getRoot)
+        while (!pending.isEmpty) {
+          val item = pending.pop()
+          item.getValue match {
+            case value: Node => context.visit(value)
+            case _ =>
+          }
+          context.visit(item.getGraphic)
+          if (item.isExpanded) {
+            item.getChildren.asScala.reverseIterator.foreach(child => pending.push(child))
+          }
+        }
+      case _ =>
+    }
+  }
+
+  object RegionImages extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case region: Region =>
+        val border = region.getBorder
+        if (border != null && border.getImages != null) {
+          border.getImages.forEach(image => addImage(context, image.getImage, region.getAccessibleRoleDescription))
+        }
+        val background = region.getBackground
+        if (background != null && background.getImages != null) {
+          background.getImages.forEach(image => addImage(context, image.getImage, region.getAccessibleRoleDescription))
+        }
+      case _ =>
+    }
+  }
+
+  object ImageViewImage extends LinkExtractor {
+    def extract(node: Node, context: Context): Unit = node match {
+      case view: ImageView if view.getImage != null =>
+        addImage(context, view.getImage, view.getAccessibleRoleDescription)
+      case _ =>
+    }
+  }
+
+  private def addImage(context: Context, image: Image, description: String): Unit = {
+    val url = AppCrawler.getImageURL(image)
+    if (url != null) {
+      context.addImage(url, description)
+    }
+  }
+
+  /**
+   * The extractors used by default, which cover the controls of JavaFX.
+   */
+  val defaults: List[LinkExtractor] = List(Links, Children, LabeledGraphic, ScrollPaneContent,
+    ListViewItems, TableViewItems, TreeViewItems, RegionImages, ImageViewImage)
+}
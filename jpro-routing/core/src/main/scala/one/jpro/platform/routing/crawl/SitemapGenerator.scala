@@ -2,55 +2,82 @@ package one.jpro.platform.routing.crawl
 
 import one.jpro.platform.routing.crawl.AppCrawler.CrawlReportApp
 
-import javax.xml.transform.OutputKeys
+import java.io.{StringWriter, Writer}
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+import javax.xml.stream.{XMLOutputFactory, XMLStreamWriter}
 
 object SitemapGenerator {
-  def createSitemap(prefix: String, report: CrawlReportApp): String = {
-    import javax.xml.parsers.DocumentBuilderFactory
-    import javax.xml.transform.TransformerFactory
-    import javax.xml.transform.dom.DOMSource
-    import javax.xml.transform.stream.StreamResult
-
-    val docFactory = DocumentBuilderFactory.newInstance
-    val docBuilder = docFactory.newDocumentBuilder
-    val doc = docBuilder.newDocument
-    val urlset = doc.createElement("urlset")
-    urlset.setAttribute("xmlns","http://www.sitemaps.org/schemas/sitemap/0.9")
-    urlset.setAttribute("xmlns:image","http://www.google.com/schemas/sitemap-image/1.1")
-    doc.appendChild(urlset)
-
-    report.reports.map { page =>
-      val child1 = doc.createElement("url")
-      val loc = doc.createElement("loc")
-      loc.setTextContent(prefix + page.path)
-
-      child1.appendChild(loc)
-
-      page.pictures/*.filter(_.url.startsWith("http"))*/.map { img =>
-        val image = doc.createElement("image:image")
-        val imageloc = doc.createElement("image:loc")
-        if(img.url.startsWith("http")) {
-          imageloc.setTextContent(img.url)
-        } else {
-          imageloc.setTextContent(prefix + img.url)
-        }
-        image.appendChild(imageloc)
-        child1.appendChild(image)
-      }
-      urlset.appendChild(child1)
-    }
 
-    val transformerFactory = TransformerFactory.newInstance
-    val transformer = transformerFactory.newTransformer
-    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-    transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-    val source = new DOMSource(doc)
+  private val SITEMAP_NS = "http://www.sitemaps.org/schemas/sitemap/0.9"
+  private val IMAGE_NS = "http://www.google.com/schemas/sitemap-image/1.1"
+
+  def createSitemap(prefix: String, report: CrawlReportApp): String = createSitemap(prefix, report, null)
 
-    import java.io.StringWriter
+  /**
+   * Creates the sitemap like above, with the time every page last changed according to the given cache.
+   * The cache can be null.
+   */
+  def createSitemap(prefix: String, report: CrawlReportApp, cache: CrawlCache): String = {
     val writer = new StringWriter
-    val result = new StreamResult(writer)
-    transformer.transform(source, result)
+    writeSitemap(prefix, report, writer, cache)
     writer.toString
   }
 
+  /**
+   * Streams the sitemap to the given writer, one element at a time, so large sitemaps
+   * are never held in memory as a whole. The writer is flushed but not closed.
+   */
+  def writeSitemap(prefix: String, report: CrawlReportApp, writer: Writer): Unit =
+    writeSitemap(prefix, report, writer, null)
+
+  /**
+   * Streams the sitemap like above. Every page the given cache knows gets a `lastmod` element,
+   * with the time its links, images, title or description last changed. The cache can be null.
+   */
+  def writeSitemap(prefix: String, report: CrawlReportApp, writer: Writer, cache: CrawlCache): Unit = {
+    val xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer)
+    def indent(level: Int): Unit = xml.writeCharacters("\n" + "  " * level)
+    def element(level: Int, name: String, text: String): Unit = {
+      indent(level)
+      xml.writeStartElement(name)
+      xml.writeCharacters(text)
+      xml.writeEndElement()
+    }
+
+    xml.writeStartDocument("UTF-8", "1.0")
+    indent(0)
+    xml.writeStartElement("urlset")
+    xml.writeDefaultNamespace(SITEMAP_NS)
+    xml.writeNamespace("image", IMAGE_NS)
+
+    report.reports.foreach { page =>
+      indent(1)
+      xml.writeStartElement("url")
+      element(2, "loc", prefix + page.path)
+      if (cache != null) {
+        cache.lastModified(page.path).foreach { lastModified =>
+          element(2, "lastmod", Instant.ofEpochMilli(lastModified).truncatedTo(ChronoUnit.SECONDS).toString)
+        }
+      }
+
+      page.pictures/*.filter(_.url.startsWith("http"))*/.foreach { img =>
+        indent(2)
+        xml.writeStartElement("image:image")
+        element(3, "image:loc", if (img.url.startsWith("http")) img.url else prefix + img.url)
+        indent(2)
+        xml.writeEndElement()
+      }
+      indent(1)
+      xml.writeEndElement()
+    }
+
+    indent(0)
+    xml.writeEndElement()
+    indent(0)
+    xml.writeEndDocument()
+    xml.flush()
+    xml.close()
+  }
+
 }
@@ -2,14 +2,45 @@ package one.jpro.platform.routing.performance
 
 import com.jpro.webapi.WebAPI
 import javafx.scene.Node
-import one.jpro.platform.routing.SessionManagerContext
+import one.jpro.platform.routing.{NodeUtils, SessionManagerContext}
 import one.jpro.platform.routing.sessionmanager.SessionManager
 import simplefx.experimental._
 import simplefx.core._
 import simplefx.all._
 
+import java.time.Duration
+import java.util.ArrayDeque
+
 object IncrementalLoading {
 
+  /**
+   * The time, that may be spent per frame on revealing queued nodes.
+   */
+  var frameTimeBudget: Duration = Duration.ofMillis(8)
+
+  /**
+   * The number of nodes, counting their descendants, that may be revealed per frame.
+   * It bounds the size of the update, that is sent to the client.
+   */
+  var frameNodeBudget: Int = 1000
+
+  /**
+   * Queued nodes within this distance of the visible area, in multiples of its height, are revealed first.
+   * The visible area is the one of the browser window, also for views that aren't fullscreen,
+   * see [[SessionManager.visibleArea]].
+   */
+  var viewportMargin: Double = 1.0
+
+  /**
+   * The number of queued nodes, whose position is checked against the visible area per frame.
+   */
+  var frameScanBudget: Int = 256
+
+  def setFrameBudget(time: Duration, nodes: Int): Unit = {
+    frameTimeBudget = time
+    frameNodeBudget = nodes
+  }
+
   /**
    * This should be called, before the node is added to the scene.
    */
@@ -23,32 +54,160 @@ object IncrementalLoading {
     node
   }
 
+  /**
+   * The queued nodes of a page. Every frame, the nodes near the visible area of the scene are revealed first,
+   * then the others in the order they were queued, as long as the frame budget allows.
+   * At least one node is revealed per frame.
+   *
+   * The positions of the queued nodes are checked incrementally: a cursor cycles through the queue, checking at most
+   * `scanBudget` nodes per frame, so the work per frame doesn't depend on the number of queued nodes, while nodes that
+   * are scrolled into view are still found within a few frames.
+   */
+  private[performance] class RevealQueue(timeBudget: () => Duration, nodeBudget: () => Int, scanBudget: () => Int,
+                                         nanoTime: () => Long) {
+    import RevealQueue.Entry
+
+    // the nodes found near the visible area
+    private val near = new ArrayDeque[Node]()
+    // the other nodes, in the order they were queued, as a linked list, so checked nodes can be removed anywhere
+    private var head: Entry = null
+    private var tail: Entry = null
+    private var far = 0
+    // the next node to check, or null to continue at the head of the queue
+    private var cursor: Entry = null
+
+    def size: Int = near.size + far
+    def isEmpty: Boolean = size == 0
 
-  private class IncrementalLoader(node: Node) {
-    var toMakeVisible: List[Node] = Nil
+    def add(node: Node): Unit = {
+      val entry = new Entry(node)
+      if(tail == null) head = entry else {
+        tail.next = entry
+        entry.prev = tail
+      }
+      tail = entry
+      far += 1
+    }
+
+    /**
+     * Reveals the next nodes and returns how many were revealed.
+     *
+     * @param top    the upper bound of the area, whose nodes are revealed first, in scene coordinates
+     * @param bottom the lower bound of that area
+     */
+    def revealNext(top: Double, bottom: Double): Int = {
+      val start = nanoTime()
+      scan(top, bottom)
+
+      val budget = timeBudget().toNanos
+      val maxNodes = nodeBudget()
+      var revealed = 0
+      var nodes = 0L
+      var stop = false
+      while(!stop && !isEmpty) {
+        val node = if(!near.isEmpty) near.peek() else head.node
+        val cost = NodeUtils.countNodes(node)
+        if(revealed > 0 && (nodes + cost > maxNodes || nanoTime() - start >= budget)) {
+          stop = true
+        } else {
+          if(!near.isEmpty) near.poll() else unlink(head)
+          node.setVisible(true)
+          nodes += cost
+          revealed += 1
+        }
+      }
+      revealed
+    }
+
+    /**
+     * Reveals all queued nodes at once.
+     */
+    def revealAll(): Unit = {
+      while(!near.isEmpty) near.poll().setVisible(true)
+      while(head != null) {
+        head.node.setVisible(true)
+        unlink(head)
+      }
+    }
+
+    /**
+     * Moves the nodes near the area to the near nodes, checking up to `scanBudget` nodes from the cursor on,
+     * but every node at most once.
+     */
+    private def scan(top: Double, bottom: Double): Unit = {
+      var remaining = Math.min(scanBudget(), far)
+      while(remaining > 0) {
+        if(cursor == null) cursor = head
+        val entry = cursor
+        cursor = entry.next
+        if(isNear(entry.node, top, bottom)) {
+          unlink(entry)
+          near.add(entry.node)
+        }
+        remaining -= 1
+      }
+    }
+
+    private def unlink(entry: Entry): Unit = {
+      if(cursor eq entry) cursor = entry.next
+      if(entry.prev == null) head = entry.next else entry.prev.next = entry.next
+      if(entry.next == null) tail = entry.prev else entry.next.prev = entry.prev
+      entry.prev = null
+      entry.next = null
+      far -= 1
+    }
+
+    private def isNear(node: Node, top: Double, bottom: Double): Boolean = {
+      if(node.getScene == null) return false
+      val bounds = node.localToScene(node.getBoundsInLocal)
+      bounds.getMaxY >= top && bounds.getMinY <= bottom
+    }
+  }
+
+  private[performance] object RevealQueue {
+    private class Entry(val node: Node) {
+      var prev: Entry = null
+      var next: Entry = null
+    }
+  }
+
+  private class IncrementalLoader(node: Node, sessionManager: SessionManager) {
+    private val queue = new RevealQueue(() => frameTimeBudget, () => frameNodeBudget, () => frameScanBudget,
+      () => System.nanoTime())
+    private var running = false
 
     def enqueueNode(node: Node): Unit = {
-      toMakeVisible ::= node
-      if(toMakeVisible.size == 1) startIncrementalLoading()
+      queue.add(node)
+      if(!running) startIncrementalLoading()
     }
     def startIncrementalLoading(): Unit = {
+      running = true
       // We are sure the node is in the scene
       val webAPI = WebAPI.getWebAPI(node.scene)
 
-      def makeNextVisible(): Unit = {
+      def revealNextFrame(): Unit = {
         webAPI.runAfterUpdate(new Runnable {
           override def run(): Unit = {
-            if (!toMakeVisible.isEmpty) {
-              toMakeVisible.reverse.head.setVisible(true)
-              toMakeVisible = toMakeVisible.reverse.tail.reverse
+            val scene = node.getScene
+            if(scene == null) {
+              // the page was closed, so nothing is sent to the client anymore
+              queue.revealAll()
+            } else if(!queue.isEmpty) {
+              val (top, bottom) = sessionManager.visibleArea(scene)
+              val margin = viewportMargin * (bottom - top)
+              queue.revealNext(top - margin, bottom + margin)
+            }
+            if(queue.isEmpty) {
+              running = false
+            } else {
               nextFrame --> {
-                makeNextVisible()
+                revealNextFrame()
               }
             }
           }
         })
       }
-      runLater(makeNextVisible())
+      runLater(revealNextFrame())
     }
   }
 
@@ -63,7 +222,7 @@ object IncrementalLoading {
       val view = sm.view
       val content = view.realContent
       if(!content.getProperties.containsKey(IncrementalLoadingKey)) {
-        val loader = new IncrementalLoader(content)
+        val loader = new IncrementalLoader(content, sm)
         content.getProperties.put(IncrementalLoadingKey, loader)
       }
       content.getProperties.get(IncrementalLoadingKey).asInstanceOf[IncrementalLoader]
@@ -0,0 +1,234 @@
+package one.jpro.platform.routing.performance
+
+import one.jpro.platform.routing.{Filter, NodeUtils, Redirect, Response, Route, View}
+import one.jpro.platform.routing.sessionmanager.SessionManager
+import simplefx.all._
+
+import java.net.URI
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{AtomicLong, AtomicLongArray, LongAdder}
+import scala.collection.JavaConverters._
+
+object RouteTimingFilter {
+
+  /**
+   * The prefix under which the routes are counted, once `maxPrefixes` different prefixes have been seen.
+   */
+  val OTHER_PREFIX = "*"
+
+  /**
+   * An immutable copy of a histogram. Times are in nanoseconds.
+   */
+  class HistogramSnapshot private[RouteTimingFilter] (counts: Array[Long], val sum: Long, val max: Long) {
+    val count: Long = counts.sum
+
+    def mean: Long = if(count == 0) 0 else sum / count
+
+    def valueAtPercentile(percentile: Double): Long = {
+      if(count == 0) return 0
+      val clamped = Math.min(Math.max(percentile, 0.0), 100.0)
+      val rank = Math.max(1, Math.ceil(clamped / 100.0 * count).toLong)
+      var seen = 0L
+      var i = 0
+      while(i < counts.length) {
+        seen += counts(i)
+        if(seen >= rank) return Math.min(Histogram.highestValue(i), max)
+        i += 1
+      }
+      max
+    }
+
+    override def toString: String =
+      s"Histogram(count=$count, mean=$mean, p50=${valueAtPercentile(50)}, p99=${valueAtPercentile(99)}, max=$max)"
+  }
+
+  /**
+   * The statistics of the routes below one prefix.
+   *
+   * @param resolveTime the time until the response of the route completed
+   * @param contentTime the time it took to create the content of the view
+   * @param nodeCount   the number of nodes in the content of the view
+   * @param redirects   the number of redirects that led to the view
+   */
+  case class RouteStats(prefix: String, resolveTime: HistogramSnapshot, contentTime: HistogramSnapshot,
+                        nodeCount: HistogramSnapshot, redirects: HistogramSnapshot)
+
+  /**
+   * Records values into a fixed array of log-linear buckets: every power of two is split in 8 equally sized buckets,
+   * which bounds the relative error to 12.5%. Recording takes no locks and does not allocate.
+   */
+  private[performance] final class Histogram {
+    import Histogram._
+
+    private val counts = new AtomicLongArray(BUCKETS)
+    private val sum = new LongAdder
+    private val max = new AtomicLong
+
+    def record(value: Long): Unit = {
+      val v = Math.max(value, 0)
+      counts.incrementAndGet(bucket(v))
+      sum.add(v)
+      if(v > max.get) max.accumulateAndGet(v, (a: Long, b: Long) => Math.max(a, b))
+    }
+
+    def snapshot(): HistogramSnapshot = {
+      val copy = new Array[Long](BUCKETS)
+      for(i <- 0 until BUCKETS) copy(i) = counts.get(i)
+      new HistogramSnapshot(copy, sum.sum, max.get)
+    }
+  }
+
+  private[performance] object Histogram {
+    private val SUB_BUCKET_BITS = 3
+    val SUB_BUCKETS: Int = 1 << SUB_BUCKET_BITS
+    // with nanoseconds, a little more than 36 minutes
+    private val MAX_EXPONENT = 41
+    val BUCKETS: Int = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS
+
+    def bucket(value: Long): Int = {
+      if(value < SUB_BUCKETS) return value.toInt
+      val exponent = 63 - java.lang.Long.numberOfLeadingZeros(value)
+      if(exponent > MAX_EXPONENT) return BUCKETS - 1
+      val shift = exponent - SUB_BUCKET_BITS
+      val subBucket = (value >>> shift).toInt & (SUB_BUCKETS - 1)
+      (shift + 1) * SUB_BUCKETS + subBucket
+    }
+
+    def highestValue(bucket: Int): Long = {
+      if(bucket < SUB_BUCKETS) return bucket
+      val shift = bucket / SUB_BUCKETS - 1
+      val lowest = (SUB_BUCKETS + bucket % SUB_BUCKETS).toLong << shift
+      lowest + (1L << shift) - 1
+    }
+  }
+
+  private class Stats {
+    val resolveTime = new Histogram
+    val contentTime = new Histogram
+    val nodeCount = new Histogram
+    val redirects = new Histogram
+  }
+
+  /**
+   * Wraps a view and measures the creation of its content. The url and the session manager are passed on
+   * to the view, before its content is created.
+   */
+  private class TimedView(view: View, stats: Stats) extends View {
+    override def title: String = view.title
+
+    override def description: String = view.description
+
+    override protected def content: Node = {
+      if(view.url == null) view.url = url
+      view.isMobile = isMobile
+      val start = System.nanoTime()
+      val content = view.realContent
+      stats.contentTime.record(System.nanoTime() - start)
+      stats.nodeCount.record(NodeUtils.countNodes(content))
+      content
+    }
+
+    override def saveScrollPosition: Boolean = view.saveScrollPosition
+
+    override def fullscreen: Boolean = view.fullscreen
+
+    override def setSessionManager(x: SessionManager): Unit = {
+      super.setSessionManager(x)
+      view.setSessionManager(x)
+    }
+
+    override def onClose(): Unit = view.onClose()
+
+    override def handleURL(x: String): Boolean = view.handleURL(x)
+
+    override def subView(): View = view
+  }
+}
+
+/**
+ * A filter, that records how long the routes take to resolve, how long the content of their views takes
+ * to be created, how many nodes it has and how many redirects led to it. The statistics are kept per path prefix,
+ * made of the first `prefixDepth` segments of the path, in fixed size lock-free histograms,
+ * so the filter can stay installed in production. Use [[snapshot]] to read them.
+ *
+ * Views are wrapped, so the creation of their content is measured when it is first accessed, usually when the view
+ * is shown. The content of views that are never shown, like unused prefetched views, is neither created nor counted.
+ *
+ * @param prefixDepth the number of path segments that make up the prefix
+ * @param maxPrefixes the number of prefixes that are tracked, further ones are counted under [[RouteTimingFilter.OTHER_PREFIX]]
+ */
+class RouteTimingFilter(prefixDepth: Int, maxPrefixes: Int) extends Filter {
+  import RouteTimingFilter._
+
+  def this() = this(1, 256)
+
+  private val stats = new ConcurrentHashMap[String, Stats]()
+  // the redirect targets that haven't been requested yet, with the length of the chain that led to them
+  private val redirectChains = new ConcurrentHashMap[String, Integer]()
+
+  def apply(route: Route): Route = { request =>
+    val start = System.nanoTime()
+    val path = request.getOriginalPath()
+    val routeStats = statsFor(prefixOf(path))
+    val redirects: Int = if(path == null) 0 else Option(redirectChains.remove(path)).map(_.intValue).getOrElse(0)
+    val response = route.apply(request)
+    Response(response.future.map { result =>
+      routeStats.resolveTime.record(System.nanoTime() - start)
+      result match {
+        case Redirect(to) =>
+          if(redirectChains.size > maxPrefixes) redirectChains.clear()
+          redirectChains.put(pathOf(to), redirects + 1)
+          result
+        case view: View =>
+          routeStats.redirects.record(redirects)
+          new TimedView(view, routeStats)
+        case _ =>
+          result
+      }
+    })
+  }
+
+  /**
+   * Returns the statistics recorded so far, by path prefix.
+   */
+  def snapshot(): Map[String, RouteStats] = {
+    stats.asScala.map { case (prefix, s) =>
+      prefix -> RouteStats(prefix, s.resolveTime.snapshot(), s.contentTime.snapshot(), s.nodeCount.snapshot(),
+        s.redirects.snapshot())
+    }.toMap
+  }
+
+  def getSnapshot(): java.util.Map[String, RouteStats] = snapshot().asJava
+
+  def reset(): Unit = {
+    stats.clear()
+    redirectChains.clear()
+  }
+
+  private def statsFor(prefix: String): Stats = {
+    val existing = stats.get(prefix)
+    if(existing != null) existing
+    else if(stats.size >= maxPrefixes) stats.computeIfAbsent(OTHER_PREFIX, _ => new Stats)
+    else stats.computeIfAbsent(prefix, _ => new Stats)
+  }
+
+  private[performance] def prefixOf(path: String): String = {
+    if(path == null) return ""
+    var end = 0
+    var depth = 0
+    while(depth < prefixDepth && end >= 0) {
+      end = path.indexOf('/', end + 1)
+      depth += 1
+    }
+    if(end < 0) path else path.substring(0, end)
+  }
+
+  private def pathOf(url: String): String = {
+    try {
+      val path = URI.create(url).getPath
+      if(path == null) url else path
+    } catch {
+      case _: IllegalArgumentException => url
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package one.jpro.platform.routing.performance
+
+import one.jpro.platform.routing.View
+
+import java.util.function.Supplier
+
+object ViewPool {
+  /**
+   * Returns whether the content of the view belongs to a view, that has been returned to its pool when it was closed.
+   * The view itself or a view it wraps with the same content is checked.
+   */
+  def isPooled(view: View): Boolean = {
+    var current = view
+    while(current != null && (current.realContent eq view.realContent)) {
+      current match {
+        case pooled: PooledView if pooled.pool != null && pooled.pool.contains(pooled) => return true
+        case _ =>
+      }
+      current = current.subView()
+    }
+    false
+  }
+}
+
+/**
+ * A view, that is returned to its [[ViewPool]] when it is closed, so its content can be shown again
+ * instead of being created from scratch.
+ */
+abstract class PooledView extends View {
+  private[performance] var pool: ViewPool = null
+  private[performance] var poolKey: AnyRef = null
+
+  /**
+   * Called before the view is taken out of the pool to be shown again.
+   * Override it to reset the state the view got while it was shown, like a scroll position or an input.
+   */
+  def reset(): Unit = {}
+
+  override def onClose(): Unit = {
+    super.onClose()
+    if(pool != null) pool.release(this)
+  }
+}
+
+/**
+ * An opt-in pool of views, keyed by view class or route, so navigating back to a page with an expensive scene graph
+ * reuses its view instead of rebuilding it. Closed views are kept until they are taken again, at most
+ * `maxPerKey` of them per key. The pool is meant to be used on the FX thread.
+ *
+ * {{{
+ * val pool = new ViewPool(2)
+ * Route.get("/article", r => Response.view(pool.get(classOf[ArticleView], () => new ArticleView())))
+ * }}}
+ *
+ * @param maxPerKey the number of closed views kept for every key
+ */
+class ViewPool(maxPerKey: Int) {
+
+  def this() = this(1)
+
+  private val views = new java.util.HashMap[AnyRef, java.util.ArrayDeque[PooledView]]()
+
+  /**
+   * Returns a pooled view of the key, after resetting it, or a new one.
+   */
+  def get[V <: PooledView](key: AnyRef, create: Supplier[V]): V = {
+    val pooled = views.get(key)
+    if(pooled != null && !pooled.isEmpty) {
+      val view = pooled.pop().asInstanceOf[V]
+      view.reset()
+      view
+    } else {
+      val view = create.get()
+      view.pool = this
+      view.poolKey = key
+      view
+    }
+  }
+
+  /**
+   * The number of closed views kept for the key.
+   */
+  def size(key: AnyRef): Int = {
+    val pooled = views.get(key)
+    if(pooled == null) 0 else pooled.size
+  }
+
+  /**
+   * Drops all closed views, so they can be collected.
+   */
+  def clear(): Unit = views.clear()
+
+  private[performance] def contains(view: PooledView): Boolean = {
+    val pooled = views.get(view.poolKey)
+    pooled != null && pooled.contains(view)
+  }
+
+  private[performance] def release(view: PooledView): Unit = {
+    val pooled = views.computeIfAbsent(view.poolKey, _ => new java.util.ArrayDeque[PooledView]())
+    if(pooled.size < maxPerKey && !pooled.contains(view)) {
+      pooled.push(view)
+    }
+  }
+}
@@ -4,14 +4,17 @@ import com.jpro.webapi.WebAPI
 import de.sandec.jmemorybuddy.JMemoryBuddyLive
 import javafx.beans.property.{ObjectProperty, SimpleObjectProperty}
 import javafx.collections.{FXCollections, ObservableList}
-import one.jpro.platform.routing.{HistoryEntry, Response, ResponseResult, RouteNode, View}
+import one.jpro.platform.routing.{HistoryEntry, Request, Response, ResponseResult, RouteNode, View}
+import one.jpro.platform.routing.performance.ViewPool
 import org.slf4j.{Logger, LoggerFactory}
 import simplefx.all._
 import simplefx.core._
 import simplefx.experimental._
 import one.jpro.platform.internal.openlink.OpenLink
 
+import java.lang.ref.WeakReference
 import java.net.URI
+import java.time.Duration
 import java.util.function.Consumer
 
 
@@ -36,13 +39,67 @@ trait SessionManager { THIS =>
   @Bind var url: String = null
   @Bind var view: View = null
 
+  /**
+   * The number of prefetched responses that are kept, and how long they stay valid.
+   */
+  var prefetchLimit: Int = 4
+  var prefetchMaxAge: Duration = Duration.ofSeconds(30)
+
+  /**
+   * Whether internal links prefetch their target, when the mouse enters them or when they become visible.
+   */
+  var prefetchOnHover: Boolean = false
+  var prefetchOnVisible: Boolean = false
+
+  private case class Prefetched(response: Response, oldContent: PrefetchOldContent, time: Long)
+
+  /**
+   * The old content of a prefetched request. Until the response is taken, it is empty, but records whether the route
+   * read it. A route that reads it while routing, for example with a container filter, depends on the page that is
+   * shown when the navigation happens, so its prefetched response can't be used. Once the response is taken, it refers
+   * to the page shown then, so views that only read it when their content is created, like the ones of
+   * [[one.jpro.platform.routing.RouteUtils.transitionFilter]], still transition from that page.
+   */
+  private class PrefetchOldContent extends WeakReference[Node](null) {
+    @volatile var read = false
+    @volatile private var shown: WeakReference[Node] = null
+
+    def bind(node: Node): Unit = {
+      shown = new WeakReference(node)
+    }
+
+    override def get(): Node = {
+      val shown = this.shown
+      if(shown != null) shown.get() else {
+        read = true
+        null
+      }
+    }
+  }
+
+  // the urls whose routes read the old content while routing, which aren't prefetched again,
+  // accessed only on the FX thread and bounded like the prefetched responses
+  private val prefetchUnsupported = new java.util.LinkedHashMap[String, java.lang.Boolean](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[String, java.lang.Boolean]): Boolean =
+      size > SessionManager.PREFETCH_UNSUPPORTED_LIMIT
+  }
+
+  // accessed only on the FX thread, ordered from the least to the most recently used entry
+  private val prefetched = new java.util.LinkedHashMap[String, Prefetched](16, 0.75f, true)
+
+  /**
+   * Returns the part of the scene that is visible, as its top and bottom in scene coordinates.
+   * Fullscreen views fill the window, so it's the whole scene.
+   */
+  def visibleArea(scene: Scene): (Double, Double) = (0.0, scene.getHeight)
+
   def goBack(): Unit
   def goForward(): Unit
   def isExternal(x: String): Boolean = x.startsWith("http")
   def gotoURL(url: String): Unit = {
     if(isExternal(url)) {
       if(WebAPI.isBrowser) {
-        this.asInstanceOf[SessionManagerWeb].webAPI.executeScript(s"""window.location.href = "$url";""")
+        this.asInstanceOf[SessionManagerWeb].scripts.executeScript(s"""window.location.href = "$url";""")
       } else {
         SessionManager.externalLinkImpl.accept(url)
       }
@@ -55,7 +112,7 @@ trait SessionManager { THIS =>
     try {
       logger.debug(s"goto: $url")
       val newView = if(view != null && view.handleURL(url)) Response(FXFuture(view)) else {
-        getView(url2)
+        takePrefetched(url2).getOrElse(getView(url2))
       }
       newView.future.map { response =>
         assert(response != null, s"Response for $url2 was null")
@@ -77,12 +134,92 @@ trait SessionManager { THIS =>
 
   def start(): Unit
 
+  /**
+   * Routes the url ahead of time and keeps the response, so a later navigation to it doesn't have to wait for it.
+   * A response is used at most once, the least recently used ones are dropped above the `prefetchLimit`,
+   * and responses older than `prefetchMaxAge` are dropped, too.
+   *
+   * The url is routed without the content of the current page, so filters that build on it leave the current page
+   * alone. Views that read the old content only when their content is created, like the ones of
+   * [[one.jpro.platform.routing.RouteUtils.transitionFilter]], get the page that is shown on navigation instead.
+   * If a route reads the old content while routing, its prefetched response is routed again on navigation,
+   * and its url is no longer prefetched, while other urls still are.
+   */
+  def prefetch(url: String): Unit = {
+    if(url == null || isExternal(url) || prefetchLimit <= 0) return
+    val url2 = SessionManager.mergeURLs(THIS.url, url)
+    dropExpiredPrefetches()
+    if(url2 == THIS.url || prefetched.get(url2) != null || prefetchUnsupported.containsKey(url2)) return
+    try {
+      logger.debug(s"prefetch: $url2")
+      val oldContent = new PrefetchOldContent
+      val response = webApp.getRoute(Request.fromString(url2).copy(oldContent = oldContent, origOldContent = oldContent))
+      val entry = Prefetched(response, oldContent, System.nanoTime())
+      prefetched.put(url2, entry)
+      response.future.map { _ =>
+        if(oldContent.read) {
+          prefetchUnsupported.put(url2, java.lang.Boolean.TRUE)
+          if(prefetched.get(url2) eq entry) dropPrefetched(url2)
+        }
+      }
+      while(prefetched.size > prefetchLimit) {
+        dropPrefetched(prefetched.keySet.iterator.next)
+      }
+    } catch {
+      case ex: Exception =>
+        logger.debug(s"Error while prefetching the path $url2", ex)
+    }
+  }
+
+  private def takePrefetched(url: String): Option[Response] = {
+    dropExpiredPrefetches()
+    Option(prefetched.remove(url)).map { entry =>
+      entry.oldContent.bind(if(view == null) null else view.realContent)
+      Response(entry.response.future.flatMap { result =>
+        if(entry.oldContent.read) {
+          prefetchUnsupported.put(url, java.lang.Boolean.TRUE)
+          markPrefetchedCollectable(url, entry)
+          getView(url).future
+        } else {
+          FXFuture.unit(result)
+        }
+      })
+    }
+  }
+
+  private def dropExpiredPrefetches(): Unit = {
+    val now = System.nanoTime()
+    val it = prefetched.entrySet.iterator
+    while(it.hasNext) {
+      val entry = it.next
+      if(now - entry.getValue.time > prefetchMaxAge.toNanos) {
+        it.remove()
+        markPrefetchedCollectable(entry.getKey, entry.getValue)
+      }
+    }
+  }
+
+  private def dropPrefetched(url: String): Unit = {
+    val entry = prefetched.remove(url)
+    if(entry != null) markPrefetchedCollectable(url, entry)
+  }
+
+  private def markPrefetchedCollectable(url: String, entry: Prefetched): Unit = {
+    entry.response.future.map { response =>
+      response match {
+        case view: View => JMemoryBuddyLive.markCollectable(s"Prefetched page url: $url title: ${view.title}", view)
+        case _ =>
+      }
+    }
+  }
+
   def markViewCollectable(view: View): Unit = {
+    if(ViewPool.isPooled(view)) return
     JMemoryBuddyLive.markCollectable(s"Page url: ${view.url} title: ${view.title}", view.realContent)
   }
   def markViewCollectable(oldView: View, newView: View): Unit = {
 //    logger.debug(s"depths: ${viewDepth(oldView)} - ${viewDepth(newView)}")
-    if(oldView.realContent != newView.realContent) {
+    if(oldView.realContent != newView.realContent && !ViewPool.isPooled(oldView)) {
 //      logger.debug(s"nodes: ${oldView.realContent} - ${newView.realContent}")
       JMemoryBuddyLive.markCollectable(s"Page url: ${oldView.url} title: ${oldView.title}", oldView.realContent)
     }
@@ -96,6 +233,9 @@ trait SessionManager { THIS =>
 }
 
 object SessionManager {
+
+  private val PREFETCH_UNSUPPORTED_LIMIT = 256
+
   def getDefault(app: RouteNode, stage: Stage): SessionManager = {
     if(WebAPI.isBrowser) new SessionManagerWeb(app, WebAPI.getWebAPI(stage))
     else new SessionManagerDesktop(app)
@@ -1,7 +1,7 @@
 package one.jpro.platform.routing.sessionmanager
 
 import com.jpro.webapi.WebAPI
-import one.jpro.platform.routing.{Redirect, Response, ResponseResult, RouteNode, View}
+import one.jpro.platform.routing.{LinkRegistry, Redirect, Response, ResponseResult, RouteNode, ScriptBatcher, View}
 import org.slf4j.{Logger, LoggerFactory}
 import simplefx.all._
 
@@ -13,18 +13,30 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
   val container = new StackPane
   webApp <++ container
 
+  /**
+   * The scripts of a navigation are sent to the browser together.
+   */
+  val scripts: ScriptBatcher = ScriptBatcher(webAPI)
+
+  // the visible part of the scene, as reported by the browser once it's tracked
+  private var viewportTracked = false
+  private var viewportTop = 0.0
+  private var viewportHeight = -1.0
+
   def goBack(): Unit = {
-    webAPI.executeScript("history.go(-1);")
+    scripts.executeScript("history.go(-1);")
   }
 
   def goForward(): Unit = {
-    webAPI.executeScript("history.go(1);")
+    scripts.executeScript("history.go(1);")
   }
 
   webAPI.addInstanceCloseListener(() => {
     THIS.view.onClose()
     THIS.view.setSessionManager(null)
     markViewCollectable(THIS.view)
+    LinkRegistry.remove(webAPI)
+    ScriptBatcher.remove(webAPI)
   })
 
   def gotoURL(_url: String, x: ResponseResult, pushState: Boolean, track: Boolean): Unit = {
@@ -33,7 +45,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
     x match {
       case Redirect(url) =>
         if(isExternal(url)) {
-          this.asInstanceOf[SessionManagerWeb].webAPI.executeScript(s"""window.location.href = "$url";""")
+          scripts.executeScript(s"""window.location.href = "$url";""")
         } else {
           gotoURL(url)
         }
@@ -49,6 +61,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
           THIS.view.onClose()
           THIS.view.setSessionManager(null)
           markViewCollectable(THIS.view, view)
+          LinkRegistry(webAPI).releaseDetached()
         }
         THIS.view = view
 
@@ -60,23 +73,23 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
           //                        |scrollTop: (window.pageYOffset || doc.scrollTop)  - (doc.clientTop || 0)
           //                        |}, null, null);
           //                        |""".stripMargin)
-          webAPI.executeScript(s"""history.pushState(null, null, "${view.url.replace("\"","\\\"")}");""")
+          scripts.executeScript(s"""history.pushState(null, null, "${view.url.replace("\"","\\\"")}");""")
         }
         val initialState = if(view.saveScrollPosition) "{saveScroll: true}" else "{saveScroll: false}"
 
-        webAPI.executeScript(
+        scripts.executeScript(
           """var scrollY = 0;
             |if(history.state != null) {
             |  scrollY = history.state.scrollTop || 0;
             |}
             |scroll(0,scrollY)
           """.stripMargin)
-        webAPI.executeScript(s"""document.getElementsByTagName("jpro-app")[0].sfxelem.setFXHeight(${!view.fullscreen})""")
-        webAPI.executeScript(s"""document.title = "${view.title.replace("\"","\\\"")}";""")
-        webAPI.executeScript(s"""document.querySelector('meta[name="description"]').setAttribute("content", "${view.description.replace("\"","\\\"")}");""")
-        webAPI.executeScript(s"history.replaceState($initialState, null, null)")
+        scripts.executeScript(s"""document.getElementsByTagName("jpro-app")[0].sfxelem.setFXHeight(${!view.fullscreen})""")
+        scripts.executeScript(s"""document.title = "${view.title.replace("\"","\\\"")}";""")
+        scripts.executeScript(s"""document.querySelector('meta[name="description"]').setAttribute("content", "${view.description.replace("\"","\\\"")}");""")
+        scripts.executeScript(s"history.replaceState($initialState, null, null)")
         if(ganalytics && track) {
-          webAPI.executeScript(s"""
+          scripts.executeScript(s"""
                                   |ga('set', {
                                   |  page: "${view.url.replace("\"","\\\"")}",
                                   |  title: "${view.title.replace("\"","\\\"")}"
@@ -88,7 +101,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
         }
         if(gtags && track) {
           assert(trackingID.nonEmpty)
-          webAPI.executeScript(s"""
+          scripts.executeScript(s"""
                                   |gtag('config', '$trackingID', {
                                   |  'page_title' : "${view.title.replace("\"","\\\"")}",
                                   |  'page_location': "${view.title.replace("\"","\\\"")}"
@@ -98,6 +111,63 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
     }
   }
 
+  /**
+   * Lets the links prefetch their target, when the mouse enters them or when they scroll into the viewport.
+   * Has to be registered before the first page is shown, so its links pick it up.
+   */
+  private def registerPrefetch(): Unit = {
+    webAPI.registerJavaFunction("jproPrefetchURL", (s: String) => {
+      prefetch(s.drop(1).dropRight(1).replace("\\\"", "\""))
+    })
+    if(prefetchOnHover) {
+      scripts.executeScript("window.jproPrefetchOnHover = true;")
+    }
+    if(prefetchOnVisible) {
+      scripts.executeScript(LinkRegistry.PREFETCH_OBSERVER_SCRIPT)
+    }
+  }
+
+  /**
+   * Views that aren't fullscreen make the scene as tall as their content, and scroll the browser window instead,
+   * so the visible part is reported by the browser, whenever it scrolls or is resized.
+   * It is only tracked from the first call on, and until the browser reported it, the whole scene is returned.
+   */
+  override def visibleArea(scene: Scene): (Double, Double) = {
+    if(view == null || view.fullscreen) super.visibleArea(scene)
+    else {
+      if(!viewportTracked) trackViewport()
+      if(viewportHeight < 0) super.visibleArea(scene)
+      else (viewportTop, viewportTop + viewportHeight)
+    }
+  }
+
+  private def trackViewport(): Unit = {
+    viewportTracked = true
+    webAPI.registerJavaFunction("jproViewport", (s: String) => {
+      val values = s.drop(1).dropRight(1).split(',')
+      viewportTop = values(0).toDouble
+      viewportHeight = values(1).toDouble
+    })
+    scripts.executeScript(
+      """(function() {
+        |  var scheduled = false;
+        |  function report() {
+        |    scheduled = false;
+        |    var app = document.getElementsByTagName("jpro-app")[0];
+        |    jpro.jproViewport(-app.getBoundingClientRect().top + ',' + window.innerHeight);
+        |  }
+        |  function schedule() {
+        |    if(!scheduled) {
+        |      scheduled = true;
+        |      window.requestAnimationFrame(report);
+        |    }
+        |  }
+        |  window.addEventListener('scroll', schedule, {passive: true});
+        |  window.addEventListener('resize', schedule);
+        |  report();
+        |})();""".stripMargin)
+  }
+
   def gotoFullEncodedURL(x: String, pushState: Boolean = true, track: Boolean = true): Unit = {
     // We no longer decode - we should only process proper URLs
     // If the URL is not proper, we will get a warning when creating the Request.
@@ -105,6 +175,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
   }
 
   def start(): Unit = {
+    registerPrefetch()
     gotoFullEncodedURL(webAPI.getBrowserURL, false, false)
     logger.debug("registering popstate")
     webAPI.registerJavaFunction("popstatejava", (s: String) => {
@@ -114,7 +185,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
       gotoURL(s.drop(1).dropRight(1).replace("\\\"", "\""))
     })
 
-    webAPI.executeScript(
+    scripts.executeScript(
       s"""var scheduled = false
          |window.addEventListener("scroll", function(e) {
          |  if(!scheduled) {
@@ -138,7 +209,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
     // that we have to move back to the saved scrollPosition.
     // we have to check, whether the ws is still alive, shortly after popstate.
     // we have to save the old scrollY immediately, so we remember it faster, than the safari resets it.
-    webAPI.executeScript("""
+    scripts.executeScript("""
                            |window.addEventListener('popstate', function(e) {
                            |  window.setTimeout(function(){console.log("popstate called!")},3000);
                            |  var scrollY = 0;
@@ -154,7 +225,7 @@ class SessionManagerWeb(val webApp: RouteNode, val webAPI: WebAPI) extends Sessi
                            |  }, 1);
                            |  jpro.popstatejava(location.href);
                            |});""".stripMargin)
-    webAPI.executeScript(
+    scripts.executeScript(
       // Back off, browser, I got this...
       """if ('scrollRestoration' in history) {
         |  history.scrollRestoration = 'manual';